@@ -0,0 +1,63 @@
+package com.company.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks with the gc profiler and prints MB/s, ns/symbol and the allocation rate of each of them.
+ *
+ * Accepts the usual JMH command line, e.g.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar PipelineBenchmark -p corpus=synthetic -p syntheticEntropy=2.0,6.0
+ * </pre>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class);
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        System.out.println();
+        System.out.printf("%-60s %12s %12s %14s%n", "Benchmark", "MB/s", "ns/symbol", "alloc MB/s");
+        for (RunResult result : results) {
+            Map<String, Result> secondary = result.getSecondaryResults();
+            double symbols = scoreOf(secondary, "symbols");
+            double bytes = scoreOf(secondary, "bytes");
+            double allocation = scoreOf(secondary, "gc.alloc.rate");
+            String name = result.getParams().getBenchmark().replaceFirst(".*\\.", "");
+            String corpus = result.getParams().getParam("corpus");
+            StringBuilder params = new StringBuilder();
+            for (String key : result.getParams().getParamsKeys()) {
+                // the synthetic text's parameters only matter for the synthetic corpus
+                if (!key.startsWith(Corpus.SYNTHETIC) || Corpus.SYNTHETIC.equals(corpus)) {
+                    params.append(' ').append(key).append('=').append(result.getParams().getParam(key));
+                }
+            }
+            System.out.printf("%-60s %12.1f %12.2f %14.1f%n", name + params, bytes / 1e6,
+                    symbols > 0 ? 1e9 / symbols : Double.NaN, allocation);
+        }
+    }
+
+    /**
+     * @return score of a secondary result whose name ends with the given label, NaN if there is none
+     */
+    private static double scoreOf(Map<String, Result> secondary, String label) {
+        for (Map.Entry<String, Result> entry : secondary.entrySet()) {
+            if (entry.getKey().endsWith(label)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+}
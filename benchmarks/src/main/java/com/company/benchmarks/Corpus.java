@@ -0,0 +1,83 @@
+package com.company.benchmarks;
+
+import com.company.Compressor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * A class providing the texts the benchmarks run on.
+ *
+ * The corpora are decompressed straight from resources/compressed_texts with their own trees,
+ * so Main does not have to be run first. Benchmarks have to be started from the project directory.
+ */
+public class Corpus {
+    /**
+     * Name of the generated corpus (see [synthetic])
+     */
+    public static final String SYNTHETIC = "synthetic";
+
+    private Corpus() {
+    }
+
+    /**
+     * Decompresses one of the compressed books or pseudo texts.
+     * @param name name of the tree and of the .bin file, e.g. "pride_and_prejudice_eng"
+     * @return the text
+     * @throws IOException if the corpus can not be found
+     */
+    public static String load(String name) throws IOException {
+        Path compressed = Paths.get("./resources/compressed_texts", subdirOf(name), name + ".bin");
+        if (!Files.exists(compressed)) {
+            throw new IOException(compressed + " not found, run the benchmarks from the project directory.");
+        }
+        return new Compressor(name).decompressLegacyBin(Files.readAllBytes(compressed));
+    }
+
+    /**
+     * Generates a text of chars drawn uniformly from an alphabet of 2^entropy chars (letters first),
+     * so that it has the given entropy per char.
+     * @param length number of chars
+     * @param entropy bits of entropy per char (0 - 16)
+     * @param seed seed of the generator
+     * @return the text
+     */
+    public static String synthetic(int length, double entropy, long seed) {
+        if (entropy < 0 || entropy > 16) {
+            throw new IllegalArgumentException("Entropy has to be between 0 and 16 bits per char.");
+        }
+        int alphabet = (int) Math.max(1, Math.round(Math.pow(2, entropy)));
+        Random random = new Random(seed);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(alphabet));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return subdirectory of resources/compressed_texts holding a corpus (the same as in Main)
+     */
+    private static String subdirOf(String name) {
+        switch (name) {
+            case "pride_and_prejudice_eng":
+                return "pride_and_prejudice";
+            case "the_picture_of_dorian_gray_eng":
+                return "dorian_gray";
+            case "historia_da_grecia_prt":
+                return "grecia";
+            case "lupe_prt":
+                return "lupe";
+            case "Leclaireur_fr":
+                return "leclaireur";
+            case "tolla_fr":
+                return "tolla";
+            default:
+                // artificial, pseudo_real and real
+                return name;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.company.benchmarks;
+
+import com.company.BookReader;
+import com.company.Compressor;
+import com.company.HuffmanTree;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the separate steps of the pipeline: counting chars, building a tree, compressing and
+ * decompressing.
+ *
+ * Every step also counts the chars and text bytes it processed (see [Processed]), so besides operations
+ * per second JMH reports symbols/s and bytes/s, from which [BenchmarkRunner] derives ns/symbol and MB/s.
+ * Building a tree counts the distinct chars instead, as its cost does not depend on the length of the text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+    /**
+     * A compressed book or pseudo text from resources, or [Corpus.SYNTHETIC]
+     */
+    @Param({"pride_and_prejudice_eng", "lupe_prt", "Leclaireur_fr", "artificial", "pseudo_real", "real",
+            Corpus.SYNTHETIC})
+    public String corpus;
+
+    /**
+     * Number of chars of the synthetic text
+     */
+    @Param({"1048576"})
+    public int syntheticLength;
+
+    /**
+     * Bits of entropy per char of the synthetic text
+     */
+    @Param({"4.0"})
+    public double syntheticEntropy;
+
+    private String text;
+    private int textBytes;
+    private Map<Character, Integer> occurrences;
+    private Compressor compressor;
+    private byte[] compressed;
+    private final BookReader bookReader = new BookReader();
+
+    /**
+     * Chars and text bytes processed by a benchmark, reported by JMH as rates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Processed {
+        public long symbols;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            symbols = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (Corpus.SYNTHETIC.equals(corpus)) {
+            text = Corpus.synthetic(syntheticLength, syntheticEntropy, 42);
+            occurrences = bookReader.countCharOccurrences(text);
+            compressor = new Compressor(new HuffmanTree(occurrences).getCodes());
+        } else {
+            text = Corpus.load(corpus);
+            occurrences = bookReader.countCharOccurrences(text);
+            compressor = new Compressor(corpus);
+        }
+        textBytes = text.getBytes(StandardCharsets.UTF_8).length;
+        compressed = compressor.getEncoder().encode(text);
+    }
+
+    @Benchmark
+    public Map<Character, Integer> countCharOccurrences(Processed processed) {
+        count(processed);
+        return bookReader.countCharOccurrences(text);
+    }
+
+    @Benchmark
+    public HuffmanTree buildTree(Processed processed) {
+        // the tree depends on the alphabet, not on the length of the text, so count the distinct chars
+        processed.symbols += occurrences.size();
+        return new HuffmanTree(occurrences);
+    }
+
+    /**
+     * The work of [Compressor.compressText] without saving the file.
+     */
+    @Benchmark
+    public byte[] compressText(Processed processed) {
+        count(processed);
+        return compressor.getEncoder().encode(text);
+    }
+
+    /**
+     * The work of [Compressor.decompressAndSaveAs] without reading and saving the files.
+     */
+    @Benchmark
+    public String decompress(Processed processed) {
+        count(processed);
+        StringBuilder decodedText = new StringBuilder(compressor.getDecoder().decode(compressed));
+        decodedText.deleteCharAt(decodedText.length() - 1);
+        return decodedText.toString();
+    }
+
+    private void count(Processed processed) {
+        processed.symbols += text.length();
+        processed.bytes += textBytes;
+    }
+}
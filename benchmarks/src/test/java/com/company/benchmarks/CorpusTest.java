@@ -0,0 +1,41 @@
+package com.company.benchmarks;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorpusTest {
+    @Test
+    void syntheticTextHasTheAlphabetOfItsEntropy() {
+        String text = Corpus.synthetic(100_000, 3.0, 1);
+        assertEquals(100_000, text.length());
+        assertEquals(8, text.chars().distinct().count());
+        assertTrue(text.chars().allMatch(c -> c >= 'a' && c < 'a' + 8));
+    }
+
+    @Test
+    void syntheticTextDependsOnlyOnTheSeed() {
+        assertEquals(Corpus.synthetic(1000, 6.0, 7), Corpus.synthetic(1000, 6.0, 7));
+    }
+
+    @Test
+    void syntheticTextRejectsImpossibleEntropy() {
+        assertThrows(IllegalArgumentException.class, () -> Corpus.synthetic(10, 17, 1));
+    }
+
+    @Test
+    void loadsACompressedBook() throws IOException {
+        String text = Corpus.load("pride_and_prejudice_eng");
+        assertTrue(text.length() > 100_000);
+        assertTrue(text.contains("Elizabeth"));
+    }
+
+    @Test
+    void unknownCorpusIsReported() {
+        assertThrows(IOException.class, () -> Corpus.load("no_such_book"));
+    }
+}
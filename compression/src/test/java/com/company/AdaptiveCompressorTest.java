@@ -0,0 +1,97 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveCompressorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void textsRoundTrip() throws IOException {
+        AdaptiveCompressor compressor = new AdaptiveCompressor();
+        Random random = new Random(28);
+        for (String text : new String[] {"", "a", "aaaa", "hello world", "中文 ĄŻ 😀 \u0000"}) {
+            assertEquals(text, compressor.decompress(compressor.compress(text)));
+        }
+        for (int i = 0; i < 50; i++) {
+            String alphabet = TestTexts.random(1 + random.nextInt(300), "abcdefghijklmnopqrstuvwxyz .,中文ĄŻé",
+                    random);
+            String text = TestTexts.random(random.nextInt(20000), alphabet, random);
+            assertEquals(text, compressor.decompress(compressor.compress(text)));
+        }
+    }
+
+    @Test
+    void manyDistinctCharsRoundTrip() throws IOException {
+        AdaptiveCompressor compressor = new AdaptiveCompressor();
+        StringBuilder text = new StringBuilder();
+        // every char of the basic plane but the surrogates, which UTF-8 can not carry alone
+        for (char c = 0; c < Character.MIN_SURROGATE; c++) {
+            text.append(c);
+        }
+        text.append(text);
+        assertEquals(text.toString(), compressor.decompress(compressor.compress(text.toString())));
+    }
+
+    @Test
+    void modelCountsItsSymbols() {
+        AdaptiveHuffmanModel encoder = new AdaptiveHuffmanModel();
+        BitWriter out = new BitWriter();
+        for (char c : "abracadabra".toCharArray()) {
+            encoder.encode(c, out);
+        }
+        encoder.encode(AdaptiveHuffmanModel.END, out);
+        assertEquals(5, encoder.getSymbolCount());
+        AdaptiveHuffmanModel decoder = new AdaptiveHuffmanModel();
+        BitReader in = new BitReader(out.toByteArray());
+        StringBuilder text = new StringBuilder();
+        for (int symbol = decoder.decode(in); symbol != AdaptiveHuffmanModel.END; symbol = decoder.decode(in)) {
+            text.append((char) symbol);
+        }
+        assertEquals("abracadabra", text.toString());
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode(AdaptiveHuffmanModel.END + 1, out));
+    }
+
+    @Test
+    void filesRoundTrip() throws IOException {
+        AdaptiveCompressor compressor = new AdaptiveCompressor();
+        Path input = directory.resolve("in.txt");
+        Path compressed = directory.resolve("in.huf");
+        Path output = directory.resolve("out.txt");
+        String text = TestTexts.random(100000, "abcdefgh ijk中", new Random(29));
+        Files.writeString(input, text);
+        long size = compressor.compressFile(input, compressed);
+        assertEquals(Files.size(compressed), size);
+        assertTrue(size < Files.size(input));
+        compressor.decompressFile(compressed, output);
+        assertEquals(text, Files.readString(output));
+    }
+
+    @Test
+    void corruptedAndTruncatedDataIsRejected() {
+        AdaptiveCompressor compressor = new AdaptiveCompressor();
+        byte[] compressed = compressor.compress(TestTexts.random(2000, "abcdefgh ijk中", new Random(30)));
+        for (int i = 0; i < compressed.length; i++) {
+            for (int bit = 0; bit < Byte.SIZE; bit++) {
+                byte[] corrupted = compressed.clone();
+                corrupted[i] ^= (byte) (1 << bit);
+                assertThrows(CorruptedDataException.class, () -> compressor.decompress(corrupted));
+            }
+        }
+        for (int length = 0; length < compressed.length; length++) {
+            byte[] truncated = Arrays.copyOf(compressed, length);
+            assertThrows(CorruptedDataException.class, () -> compressor.decompress(truncated));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCompressorTest {
+    @TempDir
+    Path directory;
+
+    private List<Path> writeFiles(Path parent, int count, Random random) throws IOException {
+        Files.createDirectories(parent);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = parent.resolve("file" + i + ".txt");
+            Files.writeString(file, TestTexts.random(random.nextInt(3000), "abcdefgh ijklm,.中", random));
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    void directoriesRoundTrip() throws Exception {
+        Random random = new Random(34);
+        Path input = directory.resolve("in");
+        writeFiles(input, 20, random);
+        writeFiles(input.resolve("sub"), 15, random);
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        BatchCompressor.Summary summary = new BatchCompressor(codec, 3)
+                .compressDirectory(input, directory.resolve("out"), OverwritePolicy.FAIL_IF_EXISTS);
+        assertEquals(35, summary.getFiles().size());
+        assertEquals(35, summary.getSucceeded());
+        assertEquals(0, summary.getFailed());
+        List<Path> inputs = BatchCompressor.listFiles(input);
+        long outputBytes = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            BatchCompressor.FileResult result = summary.getFiles().get(i);
+            assertEquals(inputs.get(i), result.getInput());
+            Path output = directory.resolve("out").resolve(input.relativize(inputs.get(i)) + BatchCompressor.EXTENSION);
+            assertEquals(output, result.getOutput());
+            String text = Files.readString(inputs.get(i));
+            assertEquals(text.length(), result.getChars());
+            assertEquals(text, codec.decompress(Files.readAllBytes(output)));
+            outputBytes += Files.size(output);
+        }
+        assertEquals(outputBytes, summary.getOutputBytes());
+    }
+
+    @Test
+    void failedFilesDoNotStopTheBatch() throws Exception {
+        List<Path> inputs = writeFiles(directory.resolve("in"), 5, new Random(35));
+        inputs.add(2, directory.resolve("in").resolve("missing.txt"));
+        Path output = directory.resolve("out");
+        Files.createDirectories(output);
+        Files.writeString(output.resolve("file3.txt" + BatchCompressor.EXTENSION), "kept");
+        BatchCompressor.Summary summary = new BatchCompressor(HuffmanCodec.load(TestTexts.TREE), 2)
+                .compress(inputs, output, OverwritePolicy.FAIL_IF_EXISTS);
+        assertEquals(4, summary.getSucceeded());
+        assertEquals(2, summary.getFailed());
+        assertFalse(summary.getFiles().get(2).isSuccessful());
+        assertInstanceOf(FileAlreadyExistsException.class, summary.getFiles().get(4).getError());
+        assertEquals("kept", Files.readString(output.resolve("file3.txt" + BatchCompressor.EXTENSION)));
+        assertTrue(summary.getFiles().get(0).isSuccessful());
+    }
+
+    @Test
+    void sampledTreeCompressesTheBatch() throws Exception {
+        List<Path> inputs = writeFiles(directory.resolve("in"), 10, new Random(36));
+        HuffmanTree tree = BatchCompressor.sampleTree(inputs, 3);
+        assertTrue(tree.getCodeLengths().length > 0);
+        HuffmanCodec codec = HuffmanCodec.of("sampled", tree);
+        Path output = directory.resolve("out");
+        BatchCompressor.Summary summary = new BatchCompressor(codec).compress(inputs, output,
+                OverwritePolicy.OVERWRITE);
+        assertEquals(10, summary.getSucceeded());
+        for (BatchCompressor.FileResult result : summary.getFiles()) {
+            assertEquals(Files.readString(result.getInput()), codec.decompress(Files.readAllBytes(result.getOutput())));
+        }
+    }
+
+    @Test
+    void inputsAndOutputsHaveToMatch() throws IOException {
+        BatchCompressor batch = new BatchCompressor(HuffmanCodec.load(TestTexts.TREE), 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.compress(List.of(directory.resolve("a")), List.of(), OverwritePolicy.OVERWRITE));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatchCompressor(HuffmanCodec.load(TestTexts.TREE), 0));
+    }
+}
@@ -0,0 +1,145 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BitIOTest {
+    private static int[] randomLengths(Random random, int count) {
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            lengths[i] = random.nextInt(33);
+        }
+        return lengths;
+    }
+
+    private static int[] randomValues(Random random, int[] lengths) {
+        int[] values = new int[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            values[i] = lengths[i] == 0 ? 0 : random.nextInt() >>> (32 - lengths[i]);
+        }
+        return values;
+    }
+
+    private static String toBitString(int[] values, int[] lengths) {
+        StringBuilder bits = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (lengths[i] > 0) {
+                bits.append(CanonicalCodes.toBinaryString(values[i], lengths[i]));
+            }
+        }
+        return bits.toString();
+    }
+
+    private static String toBitString(byte[] bytes, long bitCount) {
+        StringBuilder bits = new StringBuilder();
+        for (long i = 0; i < bitCount; i++) {
+            bits.append((bytes[(int) (i / 8)] >>> (7 - i % 8) & 1) == 0 ? '0' : '1');
+        }
+        return bits.toString();
+    }
+
+    @Test
+    void writtenBitsAreReadBack() {
+        Random random = new Random(5);
+        for (int round = 0; round < 100; round++) {
+            int[] lengths = randomLengths(random, random.nextInt(500));
+            int[] values = randomValues(random, lengths);
+            BitWriter out = new BitWriter();
+            for (int i = 0; i < values.length; i++) {
+                out.write(values[i], lengths[i]);
+            }
+            long bitCount = out.getBitCount();
+            byte[] bytes = out.toByteArray();
+            assertEquals((bitCount + 7) / 8, bytes.length);
+            assertEquals(toBitString(values, lengths), toBitString(bytes, bitCount));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+            for (BitReader in : new BitReader[] {new BitReader(bytes), new BitReader(direct, 0, bitCount)}) {
+                for (int i = 0; i < values.length; i++) {
+                    if (lengths[i] > 0) {
+                        assertEquals(values[i] & 0xFFFFFFFFL, in.read(lengths[i]));
+                    }
+                }
+                assertEquals(bitCount, in.position());
+            }
+        }
+    }
+
+    @Test
+    void streamedWriterWritesTheSameBytes() {
+        Random random = new Random(6);
+        int[] lengths = randomLengths(random, 10000);
+        int[] values = randomValues(random, lengths);
+        BitWriter memory = new BitWriter();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BitWriter streamed = new BitWriter(stream, 24);
+        for (int i = 0; i < values.length; i++) {
+            memory.write(values[i], lengths[i]);
+            streamed.write(values[i], lengths[i]);
+        }
+        streamed.finish();
+        assertArrayEquals(memory.toByteArray(), stream.toByteArray());
+    }
+
+    @Test
+    void readerStaysWithinItsRange() {
+        byte[] bytes = {(byte) 0b1010_1100, (byte) 0b0101_0011, (byte) 0xFF};
+        BitReader in = new BitReader(bytes, 3, 13);
+        assertEquals(10, in.remaining());
+        assertEquals(0b01100, in.peek(5));
+        in.skip(5);
+        assertEquals(0b01010, in.read(5));
+        assertEquals(0, in.remaining());
+        // the rest of the last byte is peeked at as it is, the bytes after it as 0s
+        assertEquals(0b0110_0000, in.peek(8));
+
+        in.reset(ByteBuffer.wrap(bytes), 16, 24);
+        assertEquals(16, in.position());
+        assertEquals(0xFF, in.read(8));
+    }
+
+    @Test
+    void packedEncoderWritesTheCodesOfTheMap() throws IOException {
+        Map<Character, String> codes = CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes();
+        String alphabet = TestTexts.alphabetOf(codes).replace(String.valueOf(EscapeCodes.ESCAPE), "");
+        PackedEncoder encoder = new PackedEncoder(codes);
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            String text = TestTexts.random(random.nextInt(2000), alphabet, random);
+            StringBuilder expected = new StringBuilder();
+            for (int j = 0; j < text.length(); j++) {
+                expected.append(codes.get(text.charAt(j)));
+            }
+            BitWriter out = new BitWriter();
+            assertEquals(text.length(), encoder.encode(text, out));
+            long bitCount = out.getBitCount();
+            assertEquals(expected.toString(), toBitString(out.toByteArray(), bitCount));
+
+            BitWriter fromArray = new BitWriter();
+            assertEquals(text.length(), encoder.encode(text.toCharArray(), 0, text.length(), fromArray));
+            assertArrayEquals(encoder.encode(text), fromArray.toByteArray());
+        }
+    }
+
+    @Test
+    void packedEncoderSkipsCharsWithoutACode() {
+        PackedEncoder encoder = new PackedEncoder(Map.of('a', "0", 'b', "1"));
+        assertFalse(encoder.hasEscape());
+        assertFalse(encoder.canEncode('c'));
+        assertTrue(encoder.canEncode('a'));
+        BitWriter out = new BitWriter();
+        assertEquals(3, encoder.encode("abcb", out));
+        assertEquals(3, out.getBitCount());
+        assertArrayEquals(new byte[] {(byte) 0b0110_0000}, out.toByteArray());
+    }
+}
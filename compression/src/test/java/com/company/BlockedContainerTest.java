@@ -0,0 +1,117 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockedContainerTest {
+    private static Map<Character, String> codes() throws IOException {
+        return CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes();
+    }
+
+    private static String randomText(int length, Random random) throws IOException {
+        String alphabet = TestTexts.alphabetOf(codes()).replace(String.valueOf(EscapeCodes.ESCAPE), "");
+        return TestTexts.random(length, alphabet, random);
+    }
+
+    @Test
+    void textsRoundTrip() throws IOException {
+        Random random = new Random(20);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int blockLength : new int[] {1, 7, 100, BlockedContainer.DEFAULT_BLOCK_LENGTH}) {
+                for (int i = 0; i < 10; i++) {
+                    String text = randomText(random.nextInt(5000), random);
+                    BlockedContainer container = BlockedContainer.open(
+                            BlockedContainer.write(codes(), text, blockLength));
+                    assertEquals((text.length() + blockLength - 1) / blockLength, container.getBlockCount());
+                    assertEquals(text.length(), container.getLength());
+                    assertEquals(text, container.decodeAll());
+                    assertEquals(text, container.decodeAll(pool));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rangesDecodeOnlyTheirChars() throws IOException {
+        Random random = new Random(21);
+        String text = randomText(1000, random);
+        BlockedContainer container = BlockedContainer.open(BlockedContainer.write(codes(), text, 64));
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(text.length() + 1);
+            int to = from + random.nextInt(text.length() - from + 1);
+            assertEquals(text.substring(from, to), container.decodeRange(from, to));
+        }
+        assertArrayEquals(text.substring(128, 192).toCharArray(), container.decodeBlock(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> container.decodeRange(10, 1001));
+        assertThrows(IndexOutOfBoundsException.class, () -> container.decodeRange(10, 9));
+    }
+
+    @Test
+    void blocksOfSkippedCharsAreEmpty() throws IOException {
+        BlockedContainer container = BlockedContainer.open(
+                BlockedContainer.write(Map.of('a', "0", 'b', "1"), "ab中中ba", 2));
+        assertEquals(3, container.getBlockCount());
+        assertEquals(4, container.getLength());
+        assertEquals("abba", container.decodeAll());
+        assertEquals("bb", container.decodeRange(1, 3));
+    }
+
+    @Test
+    void corruptedContainersAreRejected() throws IOException {
+        String text = randomText(300, new Random(22));
+        byte[] data = BlockedContainer.write(codes(), text, 100);
+        for (int i = 0; i < data.length; i++) {
+            byte[] corrupted = data.clone();
+            corrupted[i] ^= 0x08;
+            assertThrows(CorruptedDataException.class, () -> BlockedContainer.open(corrupted).decodeAll());
+        }
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(CorruptedDataException.class, () -> BlockedContainer.open(truncated).decodeAll());
+        }
+    }
+
+    @Test
+    void corruptedBlockDoesNotStopTheOthers() throws IOException {
+        String text = randomText(300, new Random(23));
+        byte[] data = BlockedContainer.write(codes(), text, 100);
+        // the last byte of the last block comes right before the index of 3 entries and the trailer
+        byte[] corrupted = data.clone();
+        corrupted[data.length - 20 - 3 * 20 - 1] ^= 0x01;
+        BlockedContainer container = BlockedContainer.open(corrupted);
+        assertEquals(text.substring(0, 200), container.decodeRange(0, 200));
+        assertThrows(CorruptedDataException.class, () -> container.decodeBlock(2));
+        assertThrows(CorruptedDataException.class, () -> container.decodeRange(150, 250));
+    }
+
+    @Test
+    void interruptIsKeptWhileWaitingForBlocks() throws IOException {
+        String text = randomText(3000, new Random(24));
+        BlockedContainer container = BlockedContainer.open(BlockedContainer.write(codes(), text, 100));
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedIOException.class, () -> container.decodeAll(pool));
+            // the flag is cleared here, so that it does not leak into other tests
+            assertTrue(Thread.interrupted());
+            assertEquals(text, container.decodeAll(pool));
+        } finally {
+            Thread.interrupted();
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ByteCompressorTest {
+    @TempDir
+    Path directory;
+
+    private static byte[] skewedBytes(int length, Random random) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            // a few values are frequent, the rest are rare
+            data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : random.nextInt(8));
+        }
+        return data;
+    }
+
+    @Test
+    void bytesRoundTrip() throws IOException {
+        Random random = new Random(24);
+        for (byte[] data : new byte[][] {new byte[0], {42}, {0, 0, 0}, {-1, 0, -1, 127, -128}}) {
+            assertArrayEquals(data, ByteCompressor.decompress(ByteCompressor.compress(data)));
+        }
+        for (int i = 0; i < 50; i++) {
+            byte[] data = skewedBytes(random.nextInt(20000), random);
+            assertArrayEquals(data, ByteCompressor.decompress(ByteCompressor.compress(data)));
+        }
+        byte[] uniform = new byte[70000];
+        random.nextBytes(uniform);
+        assertArrayEquals(uniform, ByteCompressor.decompress(ByteCompressor.compress(uniform)));
+    }
+
+    @Test
+    void filesRoundTrip() throws IOException {
+        Path input = directory.resolve("in.bin");
+        Path compressed = directory.resolve("in.huf");
+        Path output = directory.resolve("out.bin");
+        byte[] data = skewedBytes(300000, new Random(25));
+        Files.write(input, data);
+        long size = ByteCompressor.compressFile(input, compressed);
+        assertEquals(Files.size(compressed), size);
+        assertEquals(data.length, ByteCompressor.decompressFile(compressed, output));
+        assertArrayEquals(data, Files.readAllBytes(output));
+        // the file is the same container the array methods write
+        assertArrayEquals(data, ByteCompressor.decompress(Files.readAllBytes(compressed)));
+        assertArrayEquals(ByteCompressor.compress(data), Files.readAllBytes(compressed));
+    }
+
+    @Test
+    void existingFilesAreKeptIfAsked() throws IOException {
+        Path input = directory.resolve("in.bin");
+        Path compressed = directory.resolve("in.huf");
+        Files.write(input, new byte[] {1, 2, 3});
+        Files.write(compressed, new byte[] {9});
+        assertThrows(FileAlreadyExistsException.class,
+                () -> ByteCompressor.compressFile(input, compressed, OverwritePolicy.FAIL_IF_EXISTS));
+        assertArrayEquals(new byte[] {9}, Files.readAllBytes(compressed));
+    }
+
+    @Test
+    void corruptedContainersAreRejected() throws IOException {
+        byte[] container = ByteCompressor.compress(skewedBytes(500, new Random(26)));
+        for (int i = 0; i < container.length; i++) {
+            byte[] corrupted = container.clone();
+            corrupted[i] ^= 0x20;
+            assertThrows(IOException.class, () -> ByteCompressor.decompress(corrupted));
+        }
+        for (int length = 0; length < container.length; length++) {
+            byte[] truncated = Arrays.copyOf(container, length);
+            assertThrows(CorruptedDataException.class, () -> ByteCompressor.decompress(truncated));
+        }
+        byte[] chars = HuffmanContainer.write(new int[] {'a', 'b'}, new int[] {1, 1}, "ab");
+        assertThrows(IOException.class, () -> ByteCompressor.decompress(chars));
+    }
+}
@@ -0,0 +1,86 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CanonicalCodesTest {
+    // chars of a text get frequencies from 1 to a couple thousand, so the tree is deep and unbalanced
+    private static String skewedText(Random random) {
+        StringBuilder text = new StringBuilder();
+        for (char c = 'a'; c <= 'z'; c++) {
+            int count = 1 + random.nextInt(1 << (c - 'a') / 2 + 1);
+            for (int i = 0; i < count; i++) {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private static void assertPrefixFree(Map<Character, String> codes) {
+        for (Map.Entry<Character, String> a : codes.entrySet()) {
+            for (Map.Entry<Character, String> b : codes.entrySet()) {
+                if (a.getKey() != b.getKey()) {
+                    assertFalse(b.getValue().startsWith(a.getValue()), a.getKey() + " is a prefix of " + b.getKey());
+                }
+            }
+        }
+    }
+
+    @Test
+    void codesFollowTheLengthsAndSymbols() {
+        int[] symbols = {'d', 'a', 'c', 'b'};
+        int[] lengths = {3, 2, 3, 1};
+        assertArrayEquals(new int[] {0b111, 0b10, 0b110, 0b0}, CanonicalCodes.assign(symbols, lengths));
+        assertEquals(Map.of('b', "0", 'a', "10", 'c', "110", 'd', "111"), CanonicalCodes.toCodeMap(symbols, lengths));
+        assertEquals("0011", CanonicalCodes.toBinaryString(0b11, 4));
+    }
+
+    @Test
+    void lengthsThatAreNotAPrefixCodeAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CanonicalCodes.assign(new int[] {'a', 'b', 'c'}, new int[] {1, 1, 1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> CanonicalCodes.assign(new int[] {'a', 'b', 'c', 'd'}, new int[] {1, 2, 2, 2}));
+    }
+
+    @Test
+    void canonicalTreeKeepsTheLengthsOfThePlainTree() {
+        Random random = new Random(9);
+        for (int i = 0; i < 20; i++) {
+            Map<Character, Integer> frequencies = new BookReader().countCharOccurrences(skewedText(random));
+            Map<Character, String> plain = new HuffmanTree(frequencies).getCodes();
+            HuffmanTree canonical = new HuffmanTree(frequencies, true);
+            Map<Character, String> codes = canonical.getCodes();
+            assertEquals(plain.keySet(), codes.keySet());
+            for (char c : plain.keySet()) {
+                assertEquals(plain.get(c).length(), codes.get(c).length());
+            }
+            assertPrefixFree(codes);
+            assertEquals(CanonicalCodes.toCodeMap(canonical.getSymbols(), canonical.getCodeLengths()), codes);
+        }
+    }
+
+    @Test
+    void singleCharGetsACode() {
+        HuffmanTree tree = new HuffmanTree(Map.of('a', 5), true);
+        assertEquals(Map.of('a', "0"), tree.getCodes());
+    }
+
+    @Test
+    void canonicalTreeRoundTripsThroughAContainer() throws IOException {
+        Random random = new Random(10);
+        String text = skewedText(random);
+        HuffmanTree tree = new HuffmanTree(new BookReader().countCharOccurrences(text), true);
+        byte[] container = HuffmanContainer.write(tree.getSymbols(), tree.getCodeLengths(), text);
+        assertEquals(tree.getCodes(), HuffmanContainer.readCodes(container));
+        assertEquals(text, HuffmanContainer.read(container));
+    }
+}
@@ -0,0 +1,89 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeTableRegistryTest {
+    private static final String[] TREES = {"real", "tolla_fr", TestTexts.TREE};
+
+    @TempDir
+    Path directory;
+
+    private CodeTableRegistry registry(int capacity) throws IOException {
+        for (String tree : TREES) {
+            Files.copy(CodeTableRegistry.TREES_DIRECTORY.resolve(tree + ".txt"), directory.resolve(tree + ".txt"));
+        }
+        return new CodeTableRegistry(directory, capacity);
+    }
+
+    @Test
+    void treesAreCompiledOnce() throws IOException {
+        CodeTableRegistry registry = registry(4);
+        CodeTable table = registry.get("real");
+        assertEquals("real", table.getName());
+        assertSame(table, registry.get("real"));
+        assertEquals(1, registry.getMisses());
+        assertEquals(1, registry.getHits());
+        assertEquals(Compressor.readTreeFile(directory.resolve("real.txt")), table.getCodes());
+        Compressor compressor = registry.compressor(TestTexts.TREE);
+        assertEquals("hello", compressor.decompress(compressor.compress("hello")));
+    }
+
+    @Test
+    void leastRecentlyUsedTreeIsDropped() throws IOException {
+        CodeTableRegistry registry = registry(2);
+        registry.warmUp("real", "tolla_fr");
+        registry.get("real");
+        registry.get(TestTexts.TREE);
+        assertEquals(2, registry.size());
+        assertTrue(registry.contains("real"));
+        assertFalse(registry.contains("tolla_fr"));
+        registry.clear();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void missingAndBrokenTreesAreReported() throws IOException {
+        CodeTableRegistry registry = registry(2);
+        TreeNotFoundException missing = assertThrows(TreeNotFoundException.class, () -> registry.get("missing"));
+        assertEquals(directory.resolve("missing.txt").toString(), missing.getTree());
+        Files.writeString(directory.resolve("broken.txt"), "\"a\" : \"0\"\n\"b\" : \"01\"\n");
+        assertThrows(CorruptedDataException.class, () -> registry.get("broken"));
+        assertFalse(registry.contains("broken"));
+        assertThrows(IllegalArgumentException.class, () -> new CodeTableRegistry(0));
+    }
+
+    @Test
+    void threadsGetTheSameTable() throws Exception {
+        CodeTableRegistry registry = registry(4);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CodeTable>> tables = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                tables.add(pool.submit(() -> registry.get(TestTexts.TREE)));
+            }
+            CodeTable first = tables.get(0).get();
+            for (Future<CodeTable> table : tables) {
+                assertSame(first, table.get());
+            }
+            assertEquals(32, registry.getHits() + registry.getMisses());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
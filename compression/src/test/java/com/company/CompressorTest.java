@@ -0,0 +1,79 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressorTest {
+    @Test
+    void shortTextsRoundTrip() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        for (String text : new String[] {"", "e", "hello", "hello world", "Elizabeth.\n"}) {
+            assertEquals(text, compressor.decompress(compressor.compress(text)));
+        }
+    }
+
+    @Test
+    void randomTextsRoundTrip() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        Random random = new Random(18);
+        for (int i = 0; i < 200; i++) {
+            String text = TestTexts.random(random.nextInt(2000), alphabet, random);
+            assertEquals(text, compressor.decompress(compressor.compress(text)));
+        }
+    }
+
+    @Test
+    void containerCanBeReadFromABufferAndWithoutTheTree() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] container = compressor.compress("hello world");
+        ByteBuffer direct = ByteBuffer.allocateDirect(container.length + 3);
+        direct.put(new byte[3]).put(container).flip().position(3);
+        assertEquals("hello world", compressor.decompress(direct));
+        assertEquals(3, direct.position());
+        assertEquals("hello world", Compressor.decompressContainer(container));
+        assertEquals("hello world", new Compressor("tolla_fr").decompress(container));
+    }
+
+    @Test
+    void charsWithoutACodeAreRejectedUnlessEscaped() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> compressor.compress("abc\u4e2d"));
+        assertTrue(e.getMessage().contains("U+4E2D at index 3"));
+        Compressor escaping = new Compressor(TestTexts.TREE, true);
+        assertEquals("abc\u4e2d", escaping.decompress(escaping.compress("abc\u4e2d")));
+        assertEquals("a\uE000b", escaping.decompress(escaping.compress("a\uE000b")));
+    }
+
+    @Test
+    void corruptedContainerIsRejected() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] container = compressor.compress("hello world");
+        for (int i = 0; i < container.length; i++) {
+            byte[] corrupted = container.clone();
+            corrupted[i] ^= 0x10;
+            assertThrows(IOException.class, () -> compressor.decompress(corrupted));
+        }
+        byte[] truncated = Arrays.copyOf(container, container.length - 1);
+        assertThrows(CorruptedDataException.class, () -> compressor.decompress(truncated));
+        assertThrows(CorruptedDataException.class, () -> compressor.decompress(new byte[0]));
+    }
+
+    @Test
+    void legacyBinDropsTheLastDecodedChar() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] bin = compressor.compressLegacyBin("hello");
+        String decoded = compressor.decompressLegacyBin(bin);
+        assertTrue("hello".startsWith(decoded));
+        assertTrue(decoded.length() >= 4);
+    }
+}
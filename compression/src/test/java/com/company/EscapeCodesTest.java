@@ -0,0 +1,88 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EscapeCodesTest {
+    private static String decode(TableDecoder decoder, byte[] data, int length) {
+        char[] out = new char[length];
+        BitReader in = new BitReader(data);
+        assertEquals(length, decoder.decode(in, out, 0, length));
+        return new String(out);
+    }
+
+    @Test
+    void escapeSplitsTheLongestCode() {
+        Map<Character, String> codes = Map.of('a', "0", 'b', "10", 'c', "110", 'd', "111");
+        Map<Character, String> escaped = EscapeCodes.addEscape(codes);
+        assertFalse(EscapeCodes.hasEscape(codes));
+        assertTrue(EscapeCodes.hasEscape(escaped));
+        Map<Character, String> expected = new HashMap<>(codes);
+        expected.put('d', "1110");
+        expected.put(EscapeCodes.ESCAPE, "1111");
+        assertEquals(expected, escaped);
+        assertEquals(escaped, EscapeCodes.addEscape(escaped));
+        assertEquals(Map.of(EscapeCodes.ESCAPE, "0"), EscapeCodes.addEscape(Map.of()));
+    }
+
+    @Test
+    void escapeThatWouldBeTooLongIsRejected() {
+        Map<Character, String> codes = Map.of('a', "0", 'b', "1" + "0".repeat(TableDecoder.MAX_CODE_LENGTH - 1));
+        assertThrows(IllegalArgumentException.class, () -> EscapeCodes.addEscape(codes));
+    }
+
+    @Test
+    void everyCharRoundTripsAsALiteral() {
+        Map<Character, String> codes = EscapeCodes.addEscape(Map.of('a', "0", 'b', "10", 'c', "11"));
+        PackedEncoder encoder = new PackedEncoder(codes);
+        TableDecoder decoder = new TableDecoder(codes);
+        assertTrue(encoder.hasEscape());
+        char[] all = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            all[c] = (char) c;
+        }
+        // unpaired surrogates and U+FFFF itself included
+        String text = new String(all);
+        assertEquals(text, decode(decoder, encoder.encode(text), text.length()));
+        String escapes = "\uFFFFa\uFFFF\uFFFF";
+        assertEquals(escapes, decode(decoder, encoder.encode(escapes), escapes.length()));
+        BitReader in = new BitReader(encoder.encode("\uFFFF"));
+        assertEquals(EscapeCodes.ESCAPE, decoder.decodeOne(in));
+    }
+
+    @Test
+    void compressorKeepsCharsMissingFromTheTree() throws IOException {
+        Compressor escaping = new Compressor(TestTexts.TREE, true);
+        Compressor plain = Compressor.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        Random random = new Random(27);
+        for (int i = 0; i < 50; i++) {
+            String text = TestTexts.random(random.nextInt(1000), alphabet + "中文ĄŻ😀\uFFFF\u0000", random);
+            assertEquals(text, escaping.decompress(escaping.compress(text)));
+        }
+        // without the escape they are rejected
+        assertThrows(IllegalArgumentException.class, () -> plain.compress("hello 中文 world"));
+    }
+
+    @Test
+    void treeWithEscapeGivesItTheRarestLeaf() {
+        Map<Character, Integer> frequencies = new BookReader().countCharOccurrences("aaaaabbbbccd");
+        HuffmanTree tree = HuffmanTree.withEscape(frequencies);
+        Map<Character, String> codes = tree.getCodes();
+        assertTrue(EscapeCodes.hasEscape(codes));
+        assertEquals(codes.get('d').length(), codes.get(EscapeCodes.ESCAPE).length());
+        PackedEncoder encoder = new PackedEncoder(codes);
+        TableDecoder decoder = new TableDecoder(codes);
+        String text = "abcdxyz\uFFFF";
+        assertEquals(text, decode(decoder, encoder.encode(text), text.length()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FrequencyTableTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void countsMatchTheBoxedCounts() {
+        String text = TestTexts.random(50000, "abcdefghij ,.é中", new Random(16)) + "zzz";
+        FrequencyTable table = FrequencyTable.ofChars(text);
+        Map<Character, Integer> boxed = new BookReader().countCharOccurrences(text);
+        int[] symbols = table.getSymbols();
+        long[] frequencies = table.getFrequencies();
+        assertEquals(boxed.size(), symbols.length);
+        assertEquals(text.length(), table.getTotal());
+        for (int i = 0; i < symbols.length; i++) {
+            assertEquals((long) boxed.get((char) symbols[i]), frequencies[i]);
+            assertEquals(frequencies[i], table.get(symbols[i]));
+        }
+        // both are sorted from the least to the most frequent
+        List<Character> boxedOrder = new ArrayList<>(boxed.keySet());
+        assertEquals('z', boxedOrder.get(0));
+        assertEquals('z', symbols[0]);
+    }
+
+    @Test
+    void symbolsAreSortedByFrequencyThenSymbol() {
+        FrequencyTable table = FrequencyTable.ofChars("ccbbbaad");
+        assertArrayEquals(new int[] {'d', 'a', 'c', 'b'}, table.getSymbols());
+        assertArrayEquals(new long[] {1, 2, 2, 3}, table.getFrequencies());
+        // counting more afterwards sorts again
+        table.addChars("dddd");
+        assertArrayEquals(new int[] {'a', 'c', 'b', 'd'}, table.getSymbols());
+    }
+
+    @Test
+    void partsAddUpToTheWhole() {
+        String text = TestTexts.random(10000, "abcdef", new Random(17));
+        FrequencyTable whole = FrequencyTable.ofChars(text);
+        FrequencyTable first = FrequencyTable.ofChars(text.substring(0, 3333));
+        FrequencyTable second = new FrequencyTable(FrequencyTable.CHAR_ALPHABET);
+        second.addChars(text.toCharArray(), 3333, text.length() - 3333);
+        first.addAll(second);
+        assertArrayEquals(whole.getSymbols(), first.getSymbols());
+        assertArrayEquals(whole.getFrequencies(), first.getFrequencies());
+        StringBuilder builder = new StringBuilder(text);
+        FrequencyTable fromBuilder = FrequencyTable.ofChars(builder);
+        assertArrayEquals(whole.getFrequencies(), fromBuilder.getFrequencies());
+    }
+
+    @Test
+    void bytesAreCountedFromArraysBuffersAndFiles() throws IOException {
+        byte[] bytes = new byte[100000];
+        new Random(18).nextBytes(bytes);
+        long[] expected = new long[FrequencyTable.BYTE_ALPHABET];
+        for (byte b : bytes) {
+            expected[b & 0xFF]++;
+        }
+        Path file = directory.resolve("bytes.bin");
+        Files.write(file, bytes);
+        FrequencyTable heap = new FrequencyTable(FrequencyTable.BYTE_ALPHABET);
+        heap.addBytes(ByteBuffer.wrap(bytes));
+        FrequencyTable direct = new FrequencyTable(FrequencyTable.BYTE_ALPHABET);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        direct.addBytes(buffer);
+        assertFalse(buffer.hasRemaining());
+        for (FrequencyTable table : new FrequencyTable[] {heap, direct, FrequencyTable.ofBytes(file)}) {
+            for (int b = 0; b < FrequencyTable.BYTE_ALPHABET; b++) {
+                assertEquals(expected[b], table.get(b));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HuffmanCodeLengthsTest {
+    // the size of a huffman code is the sum of the counts of all merged nodes
+    private static long optimalBits(long[] frequencies) {
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for (long frequency : frequencies) {
+            queue.add(frequency);
+        }
+        long bits = 0;
+        while (queue.size() > 1) {
+            long merged = queue.poll() + queue.poll();
+            bits += merged;
+            queue.add(merged);
+        }
+        return bits;
+    }
+
+    private static long[] randomFrequencies(Random random, int n) {
+        long[] frequencies = new long[n];
+        for (int i = 0; i < n; i++) {
+            frequencies[i] = 1 + random.nextInt(1 << random.nextInt(20));
+        }
+        return frequencies;
+    }
+
+    private static double kraftSum(int[] lengths) {
+        double sum = 0;
+        for (int length : lengths) {
+            sum += Math.pow(2, -length);
+        }
+        return sum;
+    }
+
+    @Test
+    void lengthsAreOptimalForSortedAndUnsortedFrequencies() {
+        Random random = new Random(13);
+        for (int round = 0; round < 100; round++) {
+            long[] unsorted = randomFrequencies(random, 2 + random.nextInt(300));
+            long[] sorted = unsorted.clone();
+            Arrays.sort(sorted);
+            // the sorted frequencies are merged with two queues, the others with a priority queue
+            for (long[] frequencies : new long[][] {sorted, unsorted}) {
+                int[] lengths = HuffmanCodeLengths.compute(frequencies);
+                assertEquals(optimalBits(frequencies), LengthLimitedCodes.encodedBits(frequencies, lengths));
+                assertEquals(1.0, kraftSum(lengths));
+            }
+        }
+    }
+
+    @Test
+    void largeAlphabetsAreMergedInOrder() {
+        long[] frequencies = randomFrequencies(new Random(14), 60000);
+        Arrays.sort(frequencies);
+        int[] lengths = HuffmanCodeLengths.compute(frequencies);
+        assertEquals(optimalBits(frequencies), LengthLimitedCodes.encodedBits(frequencies, lengths));
+        // a more frequent symbol never gets a longer code
+        for (int i = 1; i < lengths.length; i++) {
+            assertTrue(lengths[i] <= lengths[i - 1]);
+        }
+    }
+
+    @Test
+    void smallAlphabetsGetOneBitCodes() {
+        assertArrayEquals(new int[0], HuffmanCodeLengths.compute(new long[0]));
+        assertArrayEquals(new int[] {1}, HuffmanCodeLengths.compute(new long[] {7}));
+        assertArrayEquals(new int[] {1, 1}, HuffmanCodeLengths.compute(new long[] {7, 3}));
+    }
+
+    @Test
+    void treeOfArraysMatchesTheTreeOfNodes() throws IOException {
+        String text = TestTexts.random(20000, "abcdefghijklmnopqrstuvwxyz ", new Random(15))
+                + "eeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeeetttttttttttaaaaaa";
+        FrequencyTable table = FrequencyTable.ofChars(text);
+        HuffmanTree arrays = new HuffmanTree(table);
+        HuffmanTree nodes = new HuffmanTree(new BookReader().countCharOccurrences(text));
+        long[] frequencies = table.getFrequencies();
+        int[] nodeLengths = new int[frequencies.length];
+        int[] symbols = arrays.getSymbols();
+        for (int i = 0; i < symbols.length; i++) {
+            nodeLengths[i] = nodes.getCodes().get((char) symbols[i]).length();
+        }
+        assertEquals(LengthLimitedCodes.encodedBits(frequencies, nodeLengths),
+                LengthLimitedCodes.encodedBits(frequencies, arrays.getCodeLengths()));
+        assertEquals(text, HuffmanContainer.read(HuffmanContainer.write(symbols, arrays.getCodeLengths(), text)));
+    }
+}
@@ -0,0 +1,119 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HuffmanCodecTest {
+    private static byte[] compressStream(TextCodec codec, String text) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        codec.compress(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), compressed);
+        return compressed.toByteArray();
+    }
+
+    private static String decompressStream(TextCodec codec, byte[] compressed) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        codec.decompress(new ByteArrayInputStream(compressed), text);
+        return text.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void textsRoundTripThroughBytesAndStreams() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        Random random = new Random(19);
+        for (int i = 0; i < 100; i++) {
+            String text = TestTexts.random(random.nextInt(3000), alphabet, random);
+            assertEquals(text, codec.decompress(codec.compress(text)));
+            assertEquals(text, decompressStream(codec, compressStream(codec, text)));
+        }
+    }
+
+    @Test
+    void streamsWriteContainersTheByteMethodsRead() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        String text = "hello world, 中文 and 😀 are escaped";
+        byte[] streamed = compressStream(codec, text);
+        assertEquals(text, codec.decompress(streamed));
+        assertEquals(text, codec.newDecoder().decompress(streamed));
+        assertEquals(text, HuffmanContainer.read(streamed));
+        assertEquals(text, HuffmanContainer.read(codec.compress(text)));
+    }
+
+    @Test
+    void namedTreesAreEscapedOnce() throws IOException {
+        CodeTable table = HuffmanCodec.load(TestTexts.TREE).getTable();
+        assertTrue(EscapeCodes.hasEscape(table.getCodes()));
+        assertSame(table, HuffmanCodec.load(TestTexts.TREE).getTable());
+        assertSame(table, CodeTableRegistry.getDefault().get(TestTexts.TREE).withEscape());
+        assertSame(table, table.withEscape());
+    }
+
+    @Test
+    void containersOfAnotherTreeAreRejected() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        HuffmanCodec other = HuffmanCodec.load("tolla_fr");
+        assertThrows(CorruptedDataException.class, () -> other.decompress(codec.compress("hello")));
+        assertThrows(CorruptedDataException.class, () -> other.decompress(compressStream(codec, "hello")));
+        assertThrows(CorruptedDataException.class, () -> decompressStream(other, compressStream(codec, "hello")));
+    }
+
+    @Test
+    void corruptedContainersAreRejected() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        for (byte[] container : new byte[][] {codec.compress("hello world"), compressStream(codec, "hello world")}) {
+            for (int i = 0; i < container.length; i++) {
+                byte[] corrupted = container.clone();
+                corrupted[i] ^= 0x02;
+                assertThrows(IOException.class, () -> codec.decompress(corrupted));
+            }
+            byte[] truncated = Arrays.copyOf(container, container.length - 1);
+            assertThrows(CorruptedDataException.class, () -> codec.decompress(truncated));
+        }
+    }
+
+    @Test
+    void threadsShareOneCodec() throws Exception {
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                results.add(pool.submit(() -> {
+                    HuffmanCodec.Encoder encoder = codec.newEncoder();
+                    HuffmanCodec.Decoder decoder = codec.newDecoder();
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50; i++) {
+                        String text = TestTexts.random(random.nextInt(2000), alphabet, random);
+                        if (!text.equals(decoder.decompress(encoder.compress(text)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
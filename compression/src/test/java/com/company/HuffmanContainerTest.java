@@ -0,0 +1,66 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HuffmanContainerTest {
+    @Test
+    void textsRoundTrip() throws IOException {
+        Map<Character, String> codes = CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes();
+        String alphabet = TestTexts.alphabetOf(codes).replace(String.valueOf(EscapeCodes.ESCAPE), "");
+        Random random = new Random(8);
+        for (String text : new String[] {"", "e", "hello world"}) {
+            assertEquals(text, HuffmanContainer.read(HuffmanContainer.write(codes, text)));
+        }
+        for (int i = 0; i < 100; i++) {
+            String text = TestTexts.random(random.nextInt(3000), alphabet, random);
+            assertEquals(text, HuffmanContainer.read(HuffmanContainer.write(codes, text)));
+        }
+    }
+
+    @Test
+    void containerDescribesItsOwnCodes() throws IOException {
+        Map<Character, String> codes = CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes();
+        byte[] container = HuffmanContainer.write(codes, "hello world");
+        assertTrue(HuffmanContainer.isContainer(container));
+        assertFalse(HuffmanContainer.isContainer("hello world".getBytes()));
+        Map<Character, String> read = HuffmanContainer.readCodes(container);
+        assertEquals(codes.keySet(), read.keySet());
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            assertEquals(entry.getValue().length(), read.get(entry.getKey()).length());
+        }
+        // the codes read back compress to the same container
+        assertArrayEquals(container, HuffmanContainer.write(read, "hello world"));
+    }
+
+    @Test
+    void charsWithoutACodeAreSkipped() throws IOException {
+        byte[] container = HuffmanContainer.write(new int[] {'a', 'b'}, new int[] {1, 1}, "abcab");
+        assertEquals("abab", HuffmanContainer.read(container));
+    }
+
+    @Test
+    void corruptedAndTruncatedContainersAreRejected() throws IOException {
+        Map<Character, String> codes = CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes();
+        byte[] container = HuffmanContainer.write(codes, "hello world");
+        for (int i = 0; i < container.length; i++) {
+            byte[] corrupted = container.clone();
+            corrupted[i] ^= 0x10;
+            assertThrows(IOException.class, () -> HuffmanContainer.read(corrupted));
+        }
+        for (int length = 0; length < container.length; length++) {
+            byte[] truncated = Arrays.copyOf(container, length);
+            assertThrows(CorruptedDataException.class, () -> HuffmanContainer.read(truncated));
+        }
+    }
+}
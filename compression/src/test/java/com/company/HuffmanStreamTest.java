@@ -0,0 +1,141 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HuffmanStreamTest {
+    private static byte[] compress(Compressor compressor, String text) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(compressed, compressor)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String decompress(Compressor compressor, byte[] compressed) throws IOException {
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed), compressor)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void shortTextsRoundTrip() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        for (String text : new String[] {"", "e", "hello", "hello world"}) {
+            assertEquals(text, decompress(compressor, compress(compressor, text)));
+        }
+    }
+
+    @Test
+    void randomTextsRoundTrip() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            String text = TestTexts.random(random.nextInt(3000), alphabet, random);
+            assertEquals(text, decompress(compressor, compress(compressor, text)));
+        }
+    }
+
+    @Test
+    void textsLongerThanABlockRoundTrip() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        String text = TestTexts.random(3 * StreamedContainer.MAX_BLOCK_CHARS + 17, alphabet, new Random(4));
+        byte[] compressed = compress(compressor, text);
+        assertEquals(text, decompress(compressor, compressed));
+        assertEquals(text, compressor.decompress(compressed));
+        assertEquals(text, HuffmanContainer.read(compressed));
+        try (InputStream in = new HuffmanInputStream(
+                Channels.newChannel(new ByteArrayInputStream(compressed)), compressor)) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void surrogatePairsSurviveBlockBoundaries() throws IOException {
+        Compressor escaping = new Compressor(TestTexts.TREE, true);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < StreamedContainer.MAX_BLOCK_CHARS + 5; i++) {
+            text.append(i % 3 == 0 ? "😀" : "e");
+        }
+        assertEquals(text.toString(), decompress(escaping, compress(escaping, text.toString())));
+    }
+
+    @Test
+    void flushWritesEverythingWrittenSoFar() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(compressed, compressor);
+        out.write("hello".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        byte[] flushed = compressed.toByteArray();
+        // everything but the end marker is there
+        byte[] withEnd = Arrays.copyOf(flushed, flushed.length + 4);
+        assertEquals("hello", decompress(compressor, withEnd));
+        out.write(" world".getBytes(StandardCharsets.UTF_8));
+        out.close();
+        assertEquals("hello world", decompress(compressor, compressed.toByteArray()));
+    }
+
+    @Test
+    void containerCanBeReadWithoutTheCompressor() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] compressed = compress(compressor, "hello world");
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals("hello world".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+        }
+        assertEquals("hello world", decompress(new Compressor("tolla_fr"), compressed));
+    }
+
+    @Test
+    void containerOfARegistryTableCanBeReadWithoutIt() throws IOException {
+        CodeTable table = CodeTableRegistry.getDefault().get(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(table.getCodes());
+        String text = TestTexts.random(5000, alphabet, new Random(4)) + "\u4e2d";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(compressed, table)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed.toByteArray()), table)) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(text, HuffmanCodec.load(TestTexts.TREE).decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    void truncatedContainerIsRejected() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] compressed = compress(compressor, "hello world");
+        for (int length = 0; length < compressed.length; length++) {
+            byte[] truncated = Arrays.copyOf(compressed, length);
+            assertThrows(CorruptedDataException.class, () -> decompress(compressor, truncated));
+        }
+    }
+
+    @Test
+    void corruptedContainerIsRejected() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] compressed = compress(compressor, "hello world");
+        for (int i = 0; i < compressed.length; i++) {
+            byte[] corrupted = compressed.clone();
+            corrupted[i] ^= 0x04;
+            assertThrows(IOException.class, () -> decompress(compressor, corrupted));
+        }
+    }
+}
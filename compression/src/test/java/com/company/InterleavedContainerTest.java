@@ -0,0 +1,115 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InterleavedContainerTest {
+    @Test
+    void textsRoundTripWithAnyNumberOfStreams() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        Random random = new Random(46);
+        String prose = TestTexts.prose(20000, random);
+        for (int streams : new int[] {1, 2, 3, 4, 5, 8, 255}) {
+            for (String text : new String[] {"", "a", "abc", "hello world", prose.substring(0, 1 + streams),
+                    prose}) {
+                byte[] container = compressor.compressInterleaved(text, streams);
+                assertEquals(text, HuffmanContainer.read(container));
+                assertEquals(text, compressor.decompressContainer(container));
+            }
+        }
+        assertEquals(prose, HuffmanContainer.read(compressor.compressInterleaved(prose)));
+        assertThrows(IllegalArgumentException.class, () -> compressor.compressInterleaved(prose, 0));
+        assertThrows(IllegalArgumentException.class, () -> compressor.compressInterleaved(prose, 256));
+    }
+
+    @Test
+    void escapedCharsRoundTrip() throws IOException {
+        Compressor compressor = new Compressor(TestTexts.TREE, true);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        Random random = new Random(47);
+        for (int streams = 1; streams <= 6; streams++) {
+            String text = TestTexts.random(3000, alphabet + "中文ĄŻ😀\uFFFF\u0000", random);
+            assertEquals(text, HuffmanContainer.read(compressor.compressInterleaved(text, streams)));
+        }
+    }
+
+    @Test
+    void decoderMatchesTheEncoder() {
+        Map<Character, String> codes = new HuffmanTree(new BookReader().countCharOccurrences(
+                TestTexts.random(10000, "aaaaaaaabbbbccd 中", new Random(48))), true).getCodes();
+        PackedEncoder encoder = new PackedEncoder(codes);
+        TableDecoder decoder = new TableDecoder(codes);
+        String text = TestTexts.random(5001, "aaaaaaaabbbbccd 中", new Random(49));
+        for (int count = 1; count <= 9; count++) {
+            BitWriter[] writers = new BitWriter[count];
+            for (int i = 0; i < count; i++) {
+                writers[i] = new BitWriter();
+            }
+            assertEquals(text.length(), encoder.encodeInterleaved(text, writers));
+            byte[][] streams = new byte[count][];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                streams[i] = writers[i].toByteArray();
+                size += streams[i].length;
+            }
+            byte[] data = new byte[size];
+            long[] bitOffsets = new long[count];
+            long[] bitLimits = new long[count];
+            for (int i = 0, start = 0; i < count; start += streams[i].length, i++) {
+                System.arraycopy(streams[i], 0, data, start, streams[i].length);
+                bitOffsets[i] = (long) start * Byte.SIZE;
+                bitLimits[i] = (long) (start + streams[i].length) * Byte.SIZE;
+            }
+            char[] out = new char[text.length() + 2];
+            assertEquals(text.length(), decoder.decodeInterleaved(data, bitOffsets, bitLimits, out, 1,
+                    text.length()));
+            assertEquals(text, new String(out, 1, text.length()));
+
+            // a stream cut short ends the decoding early
+            bitLimits[count - 1] -= 2 * Byte.SIZE;
+            assertTrue(decoder.decodeInterleaved(data, bitOffsets, bitLimits, out, 0, text.length())
+                    < text.length());
+        }
+    }
+
+    @Test
+    void corruptedAndTruncatedContainersAreRejected() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        byte[] container = compressor.compressInterleaved(TestTexts.prose(200, new Random(50)), 3);
+        for (int i = 0; i < container.length; i++) {
+            for (int bit = 0; bit < Byte.SIZE; bit++) {
+                byte[] corrupted = container.clone();
+                corrupted[i] ^= (byte) (1 << bit);
+                assertThrows(IOException.class, () -> HuffmanContainer.read(corrupted));
+            }
+        }
+        for (int length = 0; length < container.length; length++) {
+            byte[] truncated = Arrays.copyOf(container, length);
+            assertThrows(IOException.class, () -> HuffmanContainer.read(truncated));
+        }
+    }
+
+    @Test
+    void invalidJumpTablesAreRejected() {
+        int[] symbols = {'a', 'b'};
+        int[] lengths = {1, 1};
+        // no streams, a truncated jump table, and a stream reaching past the payload
+        for (byte[] payload : new byte[][] {{0}, {2, 0, 0}, {2, 0, 0, 0, 9, 0x55}, {}}) {
+            byte[] container = HuffmanContainer.write(HuffmanContainer.FLAG_INTERLEAVED, 8, symbols, lengths,
+                    payload);
+            assertThrows(CorruptedDataException.class, () -> HuffmanContainer.read(container));
+        }
+        // streams that hold fewer chars than the header promises
+        byte[] container = HuffmanContainer.write(HuffmanContainer.FLAG_INTERLEAVED, 20, symbols, lengths,
+                new byte[] {2, 0, 0, 0, 1, 0x55, 0x55});
+        assertThrows(CorruptedDataException.class, () -> HuffmanContainer.read(container));
+    }
+}
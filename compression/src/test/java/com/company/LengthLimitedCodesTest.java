@@ -0,0 +1,119 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LengthLimitedCodesTest {
+    // fibonacci frequencies give the deepest possible huffman tree
+    private static long[] fibonacci(int n) {
+        long[] frequencies = new long[n];
+        for (int i = 0; i < n; i++) {
+            frequencies[i] = i < 2 ? 1 : frequencies[i - 1] + frequencies[i - 2];
+        }
+        return frequencies;
+    }
+
+    private static double kraftSum(int[] lengths) {
+        double sum = 0;
+        for (int length : lengths) {
+            sum += Math.pow(2, -length);
+        }
+        return sum;
+    }
+
+    private static int longest(int[] lengths) {
+        int max = 0;
+        for (int length : lengths) {
+            max = Math.max(max, length);
+        }
+        return max;
+    }
+
+    // tries every assignment of lengths 1..maxLength that is a prefix code
+    private static long bruteForceBits(long[] frequencies, int maxLength) {
+        int n = frequencies.length;
+        int[] lengths = new int[n];
+        long best = Long.MAX_VALUE;
+        for (long k = 0; k < Math.pow(maxLength, n); k++) {
+            long rest = k;
+            for (int i = 0; i < n; i++) {
+                lengths[i] = (int) (rest % maxLength) + 1;
+                rest /= maxLength;
+            }
+            if (kraftSum(lengths) <= 1) {
+                best = Math.min(best, LengthLimitedCodes.encodedBits(frequencies, lengths));
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void lengthsStayWithinTheLimitAndFormACompleteCode() {
+        long[] frequencies = fibonacci(40);
+        assertEquals(39, longest(HuffmanCodeLengths.compute(frequencies)));
+        for (int maxLength = 6; maxLength <= 39; maxLength++) {
+            int[] lengths = LengthLimitedCodes.computeLengths(frequencies, maxLength);
+            assertTrue(longest(lengths) <= maxLength);
+            assertEquals(1.0, kraftSum(lengths));
+        }
+    }
+
+    @Test
+    void lengthsAreOptimalForTheLimit() {
+        Random random = new Random(12);
+        for (int round = 0; round < 30; round++) {
+            long[] frequencies = new long[2 + random.nextInt(5)];
+            for (int i = 0; i < frequencies.length; i++) {
+                frequencies[i] = 1 + random.nextInt(1 << random.nextInt(10));
+            }
+            for (int maxLength = 3; maxLength <= 5; maxLength++) {
+                int[] lengths = LengthLimitedCodes.computeLengths(frequencies, maxLength);
+                assertEquals(bruteForceBits(frequencies, maxLength),
+                        LengthLimitedCodes.encodedBits(frequencies, lengths));
+            }
+        }
+    }
+
+    @Test
+    void huffmanLengthsAreKeptIfTheyFit() {
+        long[] frequencies = fibonacci(10);
+        int[] huffman = HuffmanCodeLengths.compute(frequencies);
+        assertEquals(LengthLimitedCodes.encodedBits(frequencies, huffman),
+                LengthLimitedCodes.encodedBits(frequencies, LengthLimitedCodes.huffmanLengths(frequencies, 9)));
+        assertEquals(LengthLimitedCodes.encodedBits(frequencies, huffman),
+                LengthLimitedCodes.encodedBits(frequencies, LengthLimitedCodes.computeLengths(frequencies, 9)));
+    }
+
+    @Test
+    void tooShortLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LengthLimitedCodes.computeLengths(fibonacci(9), 3));
+        assertEquals(3, longest(LengthLimitedCodes.computeLengths(fibonacci(8), 3)));
+    }
+
+    @Test
+    void limitedTreeRoundTripsThroughAContainer() throws IOException {
+        Map<Character, Integer> frequencies = new LinkedHashMap<>();
+        long[] fibonacci = fibonacci(30);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fibonacci.length; i++) {
+            frequencies.put((char) ('A' + i), (int) fibonacci[i]);
+            text.append((char) ('A' + i));
+        }
+        HuffmanTree tree = new HuffmanTree(frequencies, 12);
+        assertTrue(longest(tree.getCodeLengths()) <= 12);
+        assertTrue(tree.getEncodedBits() > tree.getUnrestrictedEncodedBits());
+        assertTrue(tree.describeLengthLimit().startsWith("12 bits max"));
+        String encoded = text.toString();
+        assertEquals(encoded, HuffmanContainer.read(
+                HuffmanContainer.write(tree.getSymbols(), tree.getCodeLengths(), encoded)));
+        assertEquals(encoded, HuffmanContainer.read(HuffmanContainer.write(tree.getCodes(), encoded)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedFileCodecTest {
+    @TempDir
+    Path directory;
+
+    private String roundTrip(Compressor compressor, String text) throws IOException {
+        Path input = directory.resolve("in.txt");
+        Path compressed = directory.resolve("in.huf");
+        Path output = directory.resolve("out.txt");
+        Files.writeString(input, text);
+        MappedFileCodec.compressFile(input, compressed, compressor);
+        assertEquals(text.length(), MappedFileCodec.decompressFile(compressed, output, compressor));
+        return Files.readString(output);
+    }
+
+    @Test
+    void filesRoundTrip() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        String alphabet = TestTexts.alphabetOf(CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes());
+        Random random = new Random(11);
+        for (String text : new String[] {"", "e", "hello", "hello world",
+                TestTexts.random(3 * StreamedContainer.MAX_BLOCK_CHARS + 5, alphabet, random)}) {
+            assertEquals(text, roundTrip(compressor, text));
+        }
+        for (int i = 0; i < 20; i++) {
+            String text = TestTexts.random(random.nextInt(5000), alphabet, random);
+            assertEquals(text, roundTrip(compressor, text));
+        }
+    }
+
+    @Test
+    void surrogatePairsSurviveBlockBoundaries() throws IOException {
+        Compressor escaping = new Compressor(TestTexts.TREE, true);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < StreamedContainer.MAX_BLOCK_CHARS + 5; i++) {
+            text.append(i % 3 == 0 ? "😀" : "e");
+        }
+        assertEquals(text.toString(), roundTrip(escaping, text.toString()));
+    }
+
+    @Test
+    void filesAreTheSameContainersTheStreamsRead() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        Path input = directory.resolve("in.txt");
+        Path compressed = directory.resolve("in.huf");
+        Files.writeString(input, "hello world");
+        MappedFileCodec.compressFile(input, compressed, compressor);
+        byte[] container = Files.readAllBytes(compressed);
+        assertEquals("hello world", compressor.decompress(container));
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(container), compressor)) {
+            assertArrayEquals("hello world".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void truncatedAndCorruptedFilesAreRejected() throws IOException {
+        Compressor compressor = Compressor.load(TestTexts.TREE);
+        Path input = directory.resolve("in.txt");
+        Path compressed = directory.resolve("in.huf");
+        Path output = directory.resolve("out.txt");
+        Files.writeString(input, "hello world");
+        MappedFileCodec.compressFile(input, compressed, compressor);
+        byte[] container = Files.readAllBytes(compressed);
+        for (int length = 0; length < container.length; length++) {
+            Files.write(compressed, Arrays.copyOf(container, length));
+            assertThrows(CorruptedDataException.class,
+                    () -> MappedFileCodec.decompressFile(compressed, output, compressor));
+        }
+        for (int i = 0; i < container.length; i++) {
+            byte[] corrupted = container.clone();
+            corrupted[i] ^= 0x01;
+            Files.write(compressed, corrupted);
+            assertThrows(IOException.class, () -> MappedFileCodec.decompressFile(compressed, output, compressor));
+        }
+    }
+}
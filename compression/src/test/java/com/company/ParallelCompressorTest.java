@@ -0,0 +1,55 @@
+package com.company;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ParallelCompressorTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelEncodingIsTheSameAsSerial() throws IOException {
+        CodeTable table = CodeTableRegistry.getDefault().get(TestTexts.TREE);
+        // chars without a code are skipped, so the chunks end at all kinds of bit offsets
+        String alphabet = TestTexts.alphabetOf(table.getCodes()) + "中文";
+        ParallelCompressor parallel = new ParallelCompressor(pool);
+        Random random = new Random(9);
+        for (int length : new int[] {0, 1, 1000, 3 << 18, (16 << 18) + 77}) {
+            String text = TestTexts.random(length, alphabet, random);
+            assertArrayEquals(table.getEncoder().encode(text), parallel.compress(text, table.getEncoder()));
+        }
+    }
+
+    @Test
+    void parallelEncodingOfLowEntropyTextIsTheSameAsSerial() throws IOException {
+        CodeTable table = CodeTableRegistry.getDefault().get(TestTexts.TREE);
+        String text = TestTexts.random(12 << 18, "e ", new Random(10));
+        assertArrayEquals(table.getEncoder().encode(text), new ParallelCompressor(pool).compress(text,
+                table.getEncoder()));
+    }
+
+    @Test
+    void parallelCountingIsTheSameAsSerial() {
+        String text = TestTexts.random((8 << 18) + 5, "abcdefgh ijk\n", new Random(11));
+        FrequencyTable serial = FrequencyTable.ofChars(text);
+        FrequencyTable parallel = new ParallelCompressor(pool).countFrequencies(text);
+        assertArrayEquals(serial.getSymbols(), parallel.getSymbols());
+        assertArrayEquals(serial.getFrequencies(), parallel.getFrequencies());
+    }
+}
@@ -0,0 +1,102 @@
+package com.company;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingMetricsTest {
+    @AfterEach
+    void uninstall() {
+        Metrics.install(null);
+    }
+
+    @Test
+    void codecsReportTheirSizesPerTree() throws IOException {
+        assertSame(CompressionMetrics.NOOP, Metrics.get());
+        assertFalse(Metrics.get().isEnabled());
+        RecordingMetrics metrics = new RecordingMetrics();
+        Metrics.install(metrics);
+        HuffmanCodec codec = HuffmanCodec.load(TestTexts.TREE);
+        String text = TestTexts.prose(10000, new Random(43));
+        byte[] container = codec.compress(text);
+        assertEquals(text, codec.decompress(container));
+
+        assertEquals(Map.of(TestTexts.TREE, (long) text.length()), metrics.getCharsCompressed());
+        assertEquals(Map.of(TestTexts.TREE, (long) container.length), metrics.getBytesCompressed());
+        assertEquals(Map.of(TestTexts.TREE, (long) container.length), metrics.getBytesDecompressed());
+        assertEquals(Map.of(TestTexts.TREE, (long) text.length()), metrics.getCharsDecompressed());
+        assertEquals((double) container.length * Byte.SIZE / text.length(),
+                metrics.getBitsPerChar().get(TestTexts.TREE), 1e-9);
+        assertEquals(1, metrics.getHistogram(TestTexts.TREE, CompressionMetrics.Stage.ENCODE).getCount());
+        assertEquals(1, metrics.getHistogram(TestTexts.TREE, CompressionMetrics.Stage.DECODE).getCount());
+        assertEquals(1L, metrics.getStageCounts().get("ENCODE " + TestTexts.TREE));
+        assertTrue(metrics.toString().contains(TestTexts.TREE + ": " + text.length() + " chars"));
+
+        metrics.reset();
+        assertTrue(metrics.getCharsCompressed().isEmpty());
+        Metrics.install(null);
+        codec.compress(text);
+        assertTrue(metrics.getCharsCompressed().isEmpty());
+    }
+
+    @Test
+    void treeCacheLookupsAreCounted() throws IOException {
+        RecordingMetrics metrics = new RecordingMetrics();
+        Metrics.install(metrics);
+        CodeTableRegistry registry = new CodeTableRegistry(2);
+        registry.get(TestTexts.TREE);
+        registry.get(TestTexts.TREE);
+        registry.get(TestTexts.TREE);
+        assertEquals(2, metrics.getCacheHits());
+        assertEquals(1, metrics.getCacheMisses());
+        assertEquals(2.0 / 3, metrics.getCacheHitRate(), 1e-9);
+        assertEquals(1, metrics.getHistogram(TestTexts.TREE, CompressionMetrics.Stage.TREE_LOAD).getCount());
+        new HuffmanTree(new BookReader().countCharOccurrences("abracadabra"));
+        assertEquals(1, metrics.getHistogram(CompressionMetrics.NO_TREE, CompressionMetrics.Stage.TREE_BUILD)
+                .getCount());
+    }
+
+    @Test
+    void histogramBoundsPercentilesByPowersOfTwo() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        RecordingMetrics.Histogram empty = metrics.getHistogram("tree", CompressionMetrics.Stage.IO);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getPercentileNanos(0.99));
+        for (int i = 0; i < 99; i++) {
+            metrics.recordStage(CompressionMetrics.Stage.IO, "tree", 100);
+        }
+        metrics.recordStage(CompressionMetrics.Stage.IO, "tree", 5000);
+        RecordingMetrics.Histogram histogram = metrics.getHistogram("tree", CompressionMetrics.Stage.IO);
+        assertEquals(100, histogram.getCount());
+        assertEquals(99 * 100 + 5000, histogram.getTotalNanos());
+        assertEquals(127, histogram.getPercentileNanos(0.5));
+        assertEquals(127, histogram.getPercentileNanos(0.99));
+        assertEquals(8191, histogram.getPercentileNanos(1));
+    }
+
+    @Test
+    void metricsCanBeReadThroughJmx() throws Exception {
+        RecordingMetrics metrics = new RecordingMetrics();
+        ObjectName name = metrics.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            metrics.recordCacheLookup(TestTexts.TREE, true);
+            assertEquals(1L, server.getAttribute(name, "CacheHits"));
+            assertThrows(IllegalStateException.class, () -> new RecordingMetrics().register());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
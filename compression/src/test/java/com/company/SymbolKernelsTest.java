@@ -0,0 +1,132 @@
+package com.company;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolKernelsTest {
+    private static final List<String> TEXTS = new ArrayList<>();
+
+    /**
+     * The books in resources/compressed_texts, and texts with many repeats the lanes are used for.
+     */
+    @BeforeAll
+    static void loadTexts() throws IOException {
+        Compressor compressor = new Compressor(TestTexts.TREE);
+        try (DirectoryStream<Path> books = Files.newDirectoryStream(Paths.get("resources/compressed_texts"),
+                Files::isDirectory)) {
+            for (Path book : books) {
+                TEXTS.add(compressor.decompressLegacyBin(Files.readAllBytes(book.resolve(TestTexts.TREE + ".bin"))));
+            }
+        }
+        assertTrue(TEXTS.size() >= 9);
+        Random random = new Random(24);
+        TEXTS.add(TestTexts.random(1 << 20, "01", random));
+        TEXTS.add(TestTexts.random(1 << 20, "ACGT", random));
+        // chars above the lanes between the repeats
+        TEXTS.add(TestTexts.random((1 << 20) + 3, "aabĀ中", random));
+        TEXTS.add(TestTexts.random(5000, "ab", random));
+        TEXTS.add("");
+    }
+
+    private static long[] naiveCounts(CharSequence text, int offset, int length) {
+        long[] counts = new long[FrequencyTable.CHAR_ALPHABET];
+        for (int i = offset; i < offset + length; i++) {
+            counts[text.charAt(i)]++;
+        }
+        return counts;
+    }
+
+    @Test
+    void charCountsAreTheSameAsAPlainLoop() {
+        Random random = new Random(1);
+        for (String text : TEXTS) {
+            long[] counts = new long[FrequencyTable.CHAR_ALPHABET];
+            SymbolKernels.scalar().countChars(text, 0, text.length(), counts);
+            assertArrayEquals(naiveCounts(text, 0, text.length()), counts);
+            // the lanes have to handle any alignment and the rest at the end
+            int offset = text.isEmpty() ? 0 : random.nextInt(Math.min(text.length(), 7));
+            int length = text.length() - offset - (text.length() - offset > 3 ? random.nextInt(4) : 0);
+            counts = new long[FrequencyTable.CHAR_ALPHABET];
+            SymbolKernels.scalar().countChars(text.toCharArray(), offset, length, counts);
+            assertArrayEquals(naiveCounts(text, offset, length), counts);
+        }
+    }
+
+    @Test
+    void byteCountsAreTheSameAsAPlainLoop() {
+        for (String text : TEXTS) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            long[] expected = new long[FrequencyTable.BYTE_ALPHABET];
+            for (int i = 1; i < bytes.length; i++) {
+                expected[bytes[i] & 0xFF]++;
+            }
+            long[] counts = new long[FrequencyTable.BYTE_ALPHABET];
+            SymbolKernels.scalar().countBytes(bytes, Math.min(1, bytes.length), Math.max(0, bytes.length - 1),
+                    counts);
+            assertArrayEquals(expected, counts);
+            FrequencyTable table = new FrequencyTable(FrequencyTable.BYTE_ALPHABET);
+            table.addBytes(ByteBuffer.wrap(bytes));
+            assertEquals(bytes.length, table.getTotal());
+        }
+    }
+
+    @Test
+    void kernelsFallBackToTheScalarOnes() {
+        assertSame(SymbolKernels.scalar(), SymbolKernels.get());
+        // the vector module is not on the class path of this module
+        assertSame(SymbolKernels.scalar(), SymbolKernels.select("vector"));
+        assertSame(SymbolKernels.scalar(), SymbolKernels.select("unknown"));
+        assertTrue(SymbolKernels.countsLikeScalar(SymbolKernels.scalar()));
+        SymbolKernels dropsLastByte = new SymbolKernels() {
+            @Override
+            public void countBytes(byte[] bytes, int offset, int length, long[] counts) {
+                super.countBytes(bytes, offset, Math.max(0, length - 1), counts);
+            }
+        };
+        assertFalse(SymbolKernels.countsLikeScalar(dropsLastByte));
+    }
+
+    @Test
+    void encodingIsTheSameAsConcatenatedCodes() throws IOException {
+        Map<Character, String> codes = CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes();
+        PackedEncoder encoder = new PackedEncoder(codes);
+        for (String text : TEXTS) {
+            StringBuilder bits = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                String code = codes.get(text.charAt(i));
+                if (code != null) {
+                    bits.append(code);
+                }
+            }
+            while (bits.length() % Byte.SIZE != 0) {
+                bits.append('0');
+            }
+            byte[] expected = new byte[bits.length() / Byte.SIZE];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = (byte) Integer.parseInt(bits.substring(i * Byte.SIZE, (i + 1) * Byte.SIZE), 2);
+            }
+            assertArrayEquals(expected, encoder.encode(text));
+            BitWriter fromArray = new BitWriter();
+            encoder.encode(text.toCharArray(), 0, text.length(), fromArray);
+            assertArrayEquals(expected, fromArray.toByteArray());
+        }
+    }
+}
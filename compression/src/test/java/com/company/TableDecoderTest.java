@@ -0,0 +1,117 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableDecoderTest {
+    // packs the codes bit by bit, without BitWriter
+    private static byte[] pack(String text, Map<Character, String> codes) {
+        StringBuilder bits = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            bits.append(codes.get(text.charAt(i)));
+        }
+        byte[] bytes = new byte[(bits.length() + 7) / 8];
+        for (int i = 0; i < bits.length(); i++) {
+            if (bits.charAt(i) == '1') {
+                bytes[i / 8] |= (byte) (0x80 >>> (i % 8));
+            }
+        }
+        return bytes;
+    }
+
+    // the padding of the last byte may decode to chars too, so only as many chars as were packed are decoded
+    private static String decode(TableDecoder decoder, byte[] data, int length) {
+        char[] out = new char[length];
+        BitReader in = new BitReader(data);
+        assertEquals(length, decoder.decode(in, out, 0, length));
+        assertTrue(in.remaining() < Byte.SIZE);
+        return new String(out);
+    }
+
+    // codes 0, 10, 110, ... of lengths 1, 2, ..., 31, 32, 32
+    private static Map<Character, String> longCodes() {
+        Map<Character, String> codes = new HashMap<>();
+        for (int i = 0; i < 32; i++) {
+            codes.put((char) ('A' + i), "1".repeat(i) + "0");
+        }
+        codes.put((char) ('A' + 32), "1".repeat(32));
+        return codes;
+    }
+
+    @Test
+    void decodesTheSameAsTheCodeMap() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            String alphabet = "abcdefghijklmnopqrstuvwxyz ,.\n\"ĄŻ中文字".substring(0, 2 + random.nextInt(35));
+            Map<Character, String> codes = TestTexts.prefixCodes(alphabet, random);
+            TableDecoder decoder = new TableDecoder(codes);
+            String text = TestTexts.random(random.nextInt(2000), alphabet, random);
+            assertEquals(text, decode(decoder, pack(text, codes), text.length()));
+        }
+    }
+
+    @Test
+    void decodesCodesUpToTheLongestLength() {
+        Map<Character, String> codes = longCodes();
+        TableDecoder decoder = new TableDecoder(codes);
+        assertEquals(TableDecoder.MAX_CODE_LENGTH, decoder.getMaxCodeLength());
+        String alphabet = TestTexts.alphabetOf(codes);
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            String text = TestTexts.random(random.nextInt(300), alphabet, random);
+            assertEquals(text, decode(decoder, pack(text, codes), text.length()));
+        }
+    }
+
+    @Test
+    void decodeOneMatchesDecode() {
+        Map<Character, String> codes = longCodes();
+        TableDecoder decoder = new TableDecoder(codes);
+        String text = TestTexts.random(500, TestTexts.alphabetOf(codes), new Random(3));
+        BitReader in = new BitReader(pack(text, codes));
+        StringBuilder decoded = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            decoded.append((char) decoder.decodeOne(in));
+        }
+        assertEquals(text, decoded.toString());
+        assertTrue(in.remaining() < Byte.SIZE);
+    }
+
+    @Test
+    void wholeBytesAreDecodedWithoutACount() {
+        TableDecoder decoder = new TableDecoder(longCodes());
+        // 10 10 10 10 fills a byte, while 10 followed by six 0s of padding decodes to B and six As
+        assertEquals("BBBB", decoder.decode(new byte[] {(byte) 0b1010_1010}));
+        assertEquals("BAAAAAA", decoder.decode(new byte[] {(byte) 0b1000_0000}));
+    }
+
+    @Test
+    void incompleteCodesAtTheEndAreNotDecoded() {
+        Map<Character, String> codes = longCodes();
+        TableDecoder decoder = new TableDecoder(codes);
+        // the code of 'Z' is 26 bits long, only its first byte is there
+        byte[] data = pack("AZ", codes);
+        BitReader in = new BitReader(data, 0, 9);
+        assertEquals('A', decoder.decodeOne(in));
+        assertEquals(-1, decoder.decodeOne(in));
+        assertEquals(1, in.position());
+        char[] out = new char[4];
+        assertEquals(0, decoder.decode(in, out, 0, out.length));
+        assertEquals(1, in.position());
+    }
+
+    @Test
+    void unsupportedLengthsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TableDecoder(new int[] {'a', 'b'}, new int[] {0, 1}, new int[] {0, 1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TableDecoder(new int[] {'a', 'b'}, new int[] {0, 1}, new int[] {1, 33}));
+    }
+}
@@ -0,0 +1,82 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Texts the tests compress.
+ */
+final class TestTexts {
+    static final String TREE = "pride_and_prejudice_eng";
+    private static final String[] WORDS = {"the", "and", "of", "to", "a", "in", "that", "it", "was", "her", "she",
+            "he", "not", "you", "his", "be", "as", "had", "with", "for"};
+
+    private TestTexts() {
+    }
+
+    /**
+     * @param length number of chars
+     * @param alphabet chars the text is drawn from
+     * @param random source of the chars
+     * @return a text of chars drawn uniformly from the alphabet
+     */
+    static String random(int length, String alphabet, Random random) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(text);
+    }
+
+    /**
+     * @param codes codes of a tree
+     * @return every char that has a code, in no particular order
+     */
+    static String alphabetOf(Map<Character, String> codes) {
+        StringBuilder alphabet = new StringBuilder();
+        for (char c : codes.keySet()) {
+            alphabet.append(c);
+        }
+        return alphabet.toString();
+    }
+
+    /**
+     * @param alphabet chars that get a code, at least two
+     * @param random source of the shape of the tree
+     * @return a complete prefix code of at most [TableDecoder.MAX_CODE_LENGTH] bits per char: a random leaf
+     * of the tree is split until there are as many leaves as chars
+     */
+    static Map<Character, String> prefixCodes(String alphabet, Random random) {
+        List<String> leaves = new ArrayList<>(List.of("0", "1"));
+        while (leaves.size() < alphabet.length()) {
+            String leaf = leaves.remove(random.nextInt(leaves.size()));
+            if (leaf.length() < TableDecoder.MAX_CODE_LENGTH) {
+                leaves.add(leaf + "0");
+                leaves.add(leaf + "1");
+            } else {
+                leaves.add(leaf);
+            }
+        }
+        Map<Character, String> codes = new HashMap<>();
+        for (int i = 0; i < alphabet.length(); i++) {
+            codes.put(alphabet.charAt(i), leaves.get(i));
+        }
+        return codes;
+    }
+
+    /**
+     * @param length least number of chars
+     * @param random source of the words
+     * @return a text of frequent English words drawn uniformly, separated by spaces and some commas
+     */
+    static String prose(int length, Random random) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ", " : " ");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TreeFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void canonicalTreesRoundTrip() throws IOException {
+        String text = TestTexts.random(5000, "abc \":\n\t中文\uFFFE", new Random(44));
+        HuffmanTree tree = new HuffmanTree(new BookReader().countCharOccurrences(text), true);
+        Path file = directory.resolve("canonical" + TreeFile.EXTENSION);
+        tree.writeBinaryTreeFile(file, OverwritePolicy.FAIL_IF_EXISTS);
+        CodeTable table = TreeFile.load("canonical", file);
+        assertEquals("canonical", table.getName());
+        assertEquals(tree.getCodes(), table.getCodes());
+        assertEquals(table.getCodes(), CodeTable.load(file).getCodes());
+        assertThrows(FileAlreadyExistsException.class,
+                () -> tree.writeBinaryTreeFile(file, OverwritePolicy.FAIL_IF_EXISTS));
+    }
+
+    @Test
+    void convertedTextTreesKeepTheirCodes() throws IOException {
+        Files.copy(CodeTableRegistry.TREES_DIRECTORY.resolve(TestTexts.TREE + TreeFile.TEXT_EXTENSION),
+                directory.resolve(TestTexts.TREE + TreeFile.TEXT_EXTENSION));
+        Files.copy(CodeTableRegistry.TREES_DIRECTORY.resolve("real" + TreeFile.TEXT_EXTENSION),
+                directory.resolve("real" + TreeFile.TEXT_EXTENSION));
+        String text = TestTexts.prose(2000, new Random(45));
+        byte[] compressed = HuffmanCodec.of(CodeTable.load(directory.resolve(TestTexts.TREE + ".txt")))
+                .compress(text);
+
+        List<Path> converted = TreeFile.convertDirectory(directory, OverwritePolicy.FAIL_IF_EXISTS);
+        assertEquals(List.of(directory.resolve("pride_and_prejudice_eng.huft"), directory.resolve("real.huft")),
+                converted);
+        Path binary = TreeFile.resolve(directory, TestTexts.TREE);
+        assertEquals(converted.get(0), binary);
+        Map<Character, String> codes = Compressor.readTreeFile(directory.resolve(TestTexts.TREE + ".txt"));
+        assertEquals(codes, TreeFile.load(TestTexts.TREE, binary).getCodes());
+        assertEquals(text, HuffmanCodec.of(CodeTable.load(binary)).decompress(compressed));
+        assertEquals(directory.resolve("missing.txt"), TreeFile.resolve(directory, "missing"));
+        assertThrows(TreeNotFoundException.class, () -> TreeFile.load("missing", directory.resolve("missing.huft")));
+    }
+
+    @Test
+    void invalidCodesAreNotSaved() {
+        assertThrows(IllegalArgumentException.class, () -> TreeFile.toBytes(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> TreeFile.toBytes(Map.of('a', "")));
+        assertThrows(IllegalArgumentException.class, () -> TreeFile.toBytes(Map.of('a', "02")));
+        assertThrows(IllegalArgumentException.class,
+                () -> TreeFile.toBytes(Map.of('a', "0".repeat(TableDecoder.MAX_CODE_LENGTH + 1))));
+        // codes that could not be loaded
+        assertThrows(IllegalArgumentException.class, () -> TreeFile.toBytes(Map.of('a', "0", 'b', "01")));
+        assertThrows(IllegalArgumentException.class,
+                () -> TreeFile.toBytes(Map.of('a', "0", 'b', "1", 'c', "00")));
+    }
+
+    @Test
+    void corruptedAndTruncatedFilesAreRejected() throws IOException {
+        // explicit codes that are not canonical, and canonical codes
+        for (Map<Character, String> codes : List.of(Map.of('a', "1", 'b', "01", 'c', "00"),
+                new HuffmanTree(new BookReader().countCharOccurrences("abracadabra"), true).getCodes())) {
+            byte[] file = TreeFile.toBytes(codes);
+            assertEquals(codes, TreeFile.read("tree", ByteBuffer.wrap(file)).getCodes());
+            for (int i = 0; i < file.length; i++) {
+                for (int bit = 0; bit < Byte.SIZE; bit++) {
+                    byte[] corrupted = file.clone();
+                    corrupted[i] ^= (byte) (1 << bit);
+                    assertThrows(CorruptedDataException.class,
+                            () -> TreeFile.read("tree", ByteBuffer.wrap(corrupted)));
+                }
+            }
+            for (int length = 0; length < file.length; length++) {
+                byte[] truncated = Arrays.copyOf(file, length);
+                assertThrows(CorruptedDataException.class, () -> TreeFile.read("tree", ByteBuffer.wrap(truncated)));
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeSelectorTest {
+    private static final String[] TREES = {"real", "tolla_fr", TestTexts.TREE};
+
+    // chars drawn with the probabilities the codes of a tree are optimal for
+    private static String textOf(Map<Character, String> codes, int length, Random random) {
+        StringBuilder weighted = new StringBuilder();
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            int copies = 1 << Math.max(0, 12 - entry.getValue().length());
+            if (entry.getKey() != EscapeCodes.ESCAPE) {
+                weighted.append(String.valueOf(entry.getKey()).repeat(copies));
+            }
+        }
+        return TestTexts.random(length, weighted.toString(), random);
+    }
+
+    @Test
+    void treeATextWasDrawnFromIsChosen() throws IOException {
+        TreeSelector selector = new TreeSelector(CodeTableRegistry.getDefault(), TREES);
+        assertEquals(Arrays.asList(TREES), selector.getTreeNames());
+        Random random = new Random(31);
+        for (String tree : new String[] {TestTexts.TREE, "tolla_fr"}) {
+            String text = textOf(CodeTableRegistry.getDefault().get(tree).getCodes(), 20000, random);
+            TreeSelector.Choice choice = selector.select(text);
+            assertEquals(tree, choice.getTreeName());
+            assertEquals(TREES.length + 1, choice.getEstimates().size());
+            assertEquals(text, selector.decompress(selector.compress(text)));
+        }
+    }
+
+    @Test
+    void textOfOtherCharsGetsItsOwnTree() throws IOException {
+        TreeSelector selector = new TreeSelector(CodeTableRegistry.getDefault(), TREES);
+        String text = TestTexts.random(5000, "中文字符压缩", new Random(32));
+        TreeSelector.Choice choice = selector.select(text);
+        assertTrue(choice.isCustomTree());
+        byte[] container = selector.compress(text);
+        assertEquals(text, selector.decompress(container));
+        assertEquals(text, HuffmanContainer.read(container));
+    }
+
+    @Test
+    void estimatesOfShortTextsAreExact() throws IOException {
+        TreeSelector selector = new TreeSelector(CodeTableRegistry.getDefault(), TREES);
+        Random random = new Random(33);
+        for (String text : new String[] {"", "a", "hello world", "中文 and english",
+                textOf(CodeTableRegistry.getDefault().get("real").getCodes(), 3000, random)}) {
+            TreeSelector.Choice choice = selector.select(text);
+            byte[] container = selector.compress(text);
+            assertEquals(choice.getExpectedSize(), container.length, text);
+            assertEquals(text, selector.decompress(container));
+        }
+    }
+
+    @Test
+    void containersNamingATreeAreReadWithoutSelectingIt() throws IOException {
+        TreeSelector selector = new TreeSelector(CodeTableRegistry.getDefault(), TREES);
+        String text = "Hello world, 😀 is escaped";
+        byte[] container = selector.compress(text);
+        assertEquals(text, new TreeSelector(CodeTableRegistry.getDefault()).decompress(container));
+        assertEquals(text, HuffmanContainer.read(container));
+        assertEquals(text, Compressor.load("real").decompress(container));
+        IOException e = assertThrows(IOException.class, () -> ByteCompressor.decompress(container));
+        assertTrue(e.getMessage().contains("HuffmanContainer.read"));
+    }
+
+    @Test
+    void corruptedContainersAreRejected() throws IOException {
+        TreeSelector selector = new TreeSelector(CodeTableRegistry.getDefault(), TREES);
+        byte[] container = selector.compress("Hello world");
+        for (int i = 0; i < container.length; i++) {
+            byte[] corrupted = container.clone();
+            corrupted[i] ^= 0x40;
+            assertThrows(IOException.class, () -> selector.decompress(corrupted));
+        }
+        for (int length = 0; length < container.length; length++) {
+            byte[] truncated = Arrays.copyOf(container, length);
+            assertThrows(IOException.class, () -> selector.decompress(truncated));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordCompressorTest {
+    @Test
+    void textsRoundTrip() throws IOException {
+        WordCompressor compressor = new WordCompressor();
+        Random random = new Random(37);
+        for (String text : new String[] {"", "a", "aaaa", "hello world", "中文 ĄŻ 😀 \u0000 \uFFFE",
+                TestTexts.prose(20000, random), TestTexts.random(5000, "abcdefgh 中文字", random)}) {
+            byte[] container = compressor.compress(text);
+            assertEquals(text, compressor.decompress(container));
+            assertEquals(text, HuffmanContainer.read(container));
+        }
+    }
+
+    @Test
+    void streamsRoundTrip() throws IOException {
+        WordCompressor compressor = new WordCompressor();
+        String text = TestTexts.prose(50000, new Random(38));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressor.compress(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), compressed);
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        compressor.decompress(new ByteArrayInputStream(compressed.toByteArray()), decompressed);
+        assertEquals(text, decompressed.toString(StandardCharsets.UTF_8));
+        int single = HuffmanCodec.of("prose", new HuffmanTree(new BookReader().countCharOccurrences(text)))
+                .compress(text).length;
+        assertTrue(compressed.size() < single);
+    }
+
+    @Test
+    void corruptedAndTruncatedContainersAreRejected() {
+        WordCompressor compressor = new WordCompressor();
+        byte[] container = compressor.compress(TestTexts.prose(300, new Random(39)));
+        for (int i = 0; i < container.length; i++) {
+            for (int bit = 0; bit < Byte.SIZE; bit++) {
+                byte[] corrupted = container.clone();
+                corrupted[i] ^= (byte) (1 << bit);
+                assertThrows(IOException.class, () -> compressor.decompress(corrupted));
+            }
+        }
+        for (int length = 0; length < container.length; length++) {
+            byte[] truncated = Arrays.copyOf(container, length);
+            assertThrows(IOException.class, () -> compressor.decompress(truncated));
+        }
+        assertThrows(IOException.class, () -> compressor.decompress(HuffmanContainer.write(
+                CodeTableRegistry.getDefault().get(TestTexts.TREE).getCodes(), "hello")));
+    }
+}
@@ -0,0 +1,233 @@
+package com.company;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * A class compressing text in a single pass with an adaptive huffman tree (see [AdaptiveHuffmanModel]).
+ *
+ * Nothing has to be counted or loaded before compressing: the tree starts empty and is updated after every char,
+ * and the decompressor repeats the same updates. Text is read and written in small chunks, so streams of any
+ * length (also live ones) can be compressed with bounded memory, and every char is encoded as soon as it is read.
+ * The bits are followed by a CRC32 of the text, so data that was corrupted is reported once it is read to the end.
+ */
+public class AdaptiveCompressor implements TextCodec {
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final int CHECKSUM_SIZE = 4;
+
+    /**
+     * Compresses a stream of UTF-8 text into another stream.
+     * @param in stream with the text (is not closed)
+     * @param out stream the compressed bits are written to (is closed)
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void compress(InputStream in, OutputStream out) throws IOException {
+        try (OutputStream closedOut = out) {
+            Reader text = new InputStreamReader(in, StandardCharsets.UTF_8);
+            AdaptiveHuffmanModel model = new AdaptiveHuffmanModel();
+            BitWriter bits = new BitWriter(closedOut, BUFFER_SIZE);
+            char[] chars = new char[BUFFER_SIZE];
+            CRC32 crc = new CRC32();
+            byte[] checksummed = new byte[BUFFER_SIZE * 2];
+            int n;
+            while ((n = text.read(chars)) >= 0) {
+                for (int i = 0; i < n; i++) {
+                    model.encode(chars[i], bits);
+                }
+                updateChecksum(crc, chars, n, checksummed);
+            }
+            model.encode(AdaptiveHuffmanModel.END, bits);
+            bits.finish();
+            closedOut.write(ByteBuffer.allocate(CHECKSUM_SIZE).putInt((int) crc.getValue()).array());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Decompresses a stream compressed by an adaptive compressor into UTF-8 text.
+     * @param in stream with the compressed bits (is closed)
+     * @param out stream the text is written to (is not closed)
+     * @throws IOException if the data is corrupted or reading or writing fails
+     */
+    @Override
+    public void decompress(InputStream in, OutputStream out) throws IOException {
+        try (InputStream closedIn = in) {
+            Writer text = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            AdaptiveHuffmanModel model = new AdaptiveHuffmanModel();
+            byte[] compressed = new byte[BUFFER_SIZE];
+            int compressedSize = 0;
+            boolean endOfInput = false;
+            BitReader reader = new BitReader(compressed, 0, 0);
+            char[] chars = new char[BUFFER_SIZE];
+            int decoded = 0;
+            CRC32 crc = new CRC32();
+            byte[] checksummed = new byte[BUFFER_SIZE * 2];
+            while (true) {
+                // keep at least half of the buffer filled so codes are not cut off
+                if (!endOfInput && reader.remaining() < compressed.length * (long) Byte.SIZE / 2) {
+                    long position = reader.position();
+                    int firstUnread = (int) (position >>> 3);
+                    System.arraycopy(compressed, firstUnread, compressed, 0, compressedSize - firstUnread);
+                    compressedSize -= firstUnread;
+                    while (compressedSize < compressed.length) {
+                        int read = closedIn.read(compressed, compressedSize, compressed.length - compressedSize);
+                        if (read < 0) {
+                            endOfInput = true;
+                            break;
+                        }
+                        compressedSize += read;
+                    }
+                    reader.reset(compressed, position & 7, (long) compressedSize * Byte.SIZE);
+                }
+                int symbol;
+                try {
+                    symbol = model.decode(reader);
+                } catch (IllegalStateException e) {
+                    throw new CorruptedDataException(e.getMessage(), e);
+                }
+                if (reader.remaining() < 0) {
+                    throw new CorruptedDataException("Compressed data is truncated.");
+                }
+                if (symbol == AdaptiveHuffmanModel.END) {
+                    break;
+                }
+                chars[decoded++] = (char) symbol;
+                if (decoded == chars.length) {
+                    text.write(chars, 0, decoded);
+                    updateChecksum(crc, chars, decoded, checksummed);
+                    decoded = 0;
+                }
+            }
+            text.write(chars, 0, decoded);
+            updateChecksum(crc, chars, decoded, checksummed);
+            text.flush();
+            // the checksum follows the padding of the last byte, which is written as 0s
+            int padding = (int) (-reader.position() & 7);
+            if (padding > 0 && reader.read(padding) != 0) {
+                throw new CorruptedDataException("Padding of the last byte is corrupted.");
+            }
+            int checksumStart = (int) (reader.position() >>> 3);
+            System.arraycopy(compressed, checksumStart, compressed, 0, compressedSize - checksumStart);
+            compressedSize -= checksumStart;
+            if (compressedSize < CHECKSUM_SIZE) {
+                compressedSize += closedIn.readNBytes(compressed, compressedSize, CHECKSUM_SIZE - compressedSize);
+            }
+            if (compressedSize < CHECKSUM_SIZE) {
+                throw new CorruptedDataException("Compressed data is truncated.");
+            }
+            if (ByteBuffer.wrap(compressed).getInt() != (int) crc.getValue()) {
+                throw new CorruptedDataException("Checksum does not match, the data is corrupted.");
+            }
+        }
+    }
+
+    /**
+     * Adds chars to a checksum, each as its two UTF-16 bytes.
+     */
+    private static void updateChecksum(CRC32 crc, char[] chars, int length, byte[] bytes) {
+        for (int i = 0; i < length; i++) {
+            bytes[2 * i] = (byte) (chars[i] >>> 8);
+            bytes[2 * i + 1] = (byte) chars[i];
+        }
+        crc.update(bytes, 0, 2 * length);
+    }
+
+    /**
+     * Compresses a text in memory.
+     * @param text text to compress
+     * @return compressed bytes
+     */
+    public byte[] compress(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            compress(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), out);
+        } catch (IOException e) {
+            // reading and writing memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses bytes compressed by [compress] in memory.
+     * @param compressed compressed bytes
+     * @return decompressed text
+     * @throws IOException if the data is corrupted
+     */
+    public String decompress(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        decompress(new ByteArrayInputStream(compressed), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresses a UTF-8 text file into another file.
+     * @param input text file
+     * @param output file the compressed bits are saved in (overwritten if it exists)
+     * @return size of the compressed file in bytes
+     * @throws IOException if reading or writing fails
+     */
+    public long compressFile(Path input, Path output) throws IOException {
+        return compressFile(input, output, OverwritePolicy.OVERWRITE);
+    }
+
+    /**
+     * Compresses a UTF-8 text file into another file.
+     * @param input text file
+     * @param output file the compressed bits are saved in
+     * @param policy what to do if the output file exists
+     * @return size of the compressed file in bytes
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public long compressFile(Path input, Path output, OverwritePolicy policy) throws IOException {
+        try (InputStream in = Files.newInputStream(input)) {
+            compress(in, Files.newOutputStream(output, policy.openOptions()));
+        }
+        return Files.size(output);
+    }
+
+    /**
+     * Decompresses a file into a UTF-8 text file.
+     * @param input file with the compressed bits
+     * @param output file the text is saved in (overwritten if it exists)
+     * @return size of the text file in bytes
+     * @throws IOException if the data is corrupted or reading or writing fails
+     */
+    public long decompressFile(Path input, Path output) throws IOException {
+        return decompressFile(input, output, OverwritePolicy.OVERWRITE);
+    }
+
+    /**
+     * Decompresses a file into a UTF-8 text file.
+     * @param input file with the compressed bits
+     * @param output file the text is saved in
+     * @param policy what to do if the output file exists
+     * @return size of the text file in bytes
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws CorruptedDataException if the data is corrupted
+     * @throws IOException if reading or writing fails
+     */
+    public long decompressFile(Path input, Path output, OverwritePolicy policy) throws IOException {
+        try (OutputStream out = Files.newOutputStream(output, policy.openOptions())) {
+            decompress(Files.newInputStream(input), out);
+        }
+        return Files.size(output);
+    }
+}
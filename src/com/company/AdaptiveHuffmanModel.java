@@ -0,0 +1,218 @@
+package com.company;
+
+import java.util.Arrays;
+
+/**
+ * A class holding an adaptive huffman tree (the FGK algorithm) that is updated after every symbol.
+ *
+ * The encoder and the decoder start with a tree made of a single "not yet transmitted" (NYT) node and update
+ * their trees in the same way after each symbol, so no codes have to be counted or saved beforehand.
+ * A symbol seen for the first time is sent as the code of the NYT node followed by a 17-bit literal,
+ * and [END] sent the same way marks the end of the data.
+ * <p>
+ * Nodes are kept in arrays indexed by their position in the sibling order: the root is at 0 and weights never
+ * grow with the index, so the first node of a block of equal weights can be found with a binary search.
+ */
+public class AdaptiveHuffmanModel {
+    /**
+     * Symbol marking the end of the data (one more than the largest char)
+     */
+    public static final int END = Character.MAX_VALUE + 1;
+    private static final int LITERAL_BITS = 17;
+    private static final int NONE = -1;
+
+    private int[] parents;
+    private int[] children;
+    private long[] weights;
+    // NONE for internal nodes and the NYT node
+    private int[] symbols;
+    private int size;
+    private int nyt;
+    private final int[] leaves = new int[END];
+    // reused when writing the bits of a code from the root down
+    private int[] path = new int[64];
+
+    /**
+     * Creates a model that has not seen any symbol yet.
+     */
+    public AdaptiveHuffmanModel() {
+        int capacity = 64;
+        parents = new int[capacity];
+        children = new int[capacity * 2];
+        weights = new long[capacity];
+        symbols = new int[capacity];
+        Arrays.fill(leaves, NONE);
+        parents[0] = NONE;
+        symbols[0] = NONE;
+        size = 1;
+        nyt = 0;
+    }
+
+    /**
+     * Writes the code of a symbol and updates the tree.
+     * @param symbol a char or [END]
+     * @param out writer the bits are written to
+     */
+    public void encode(int symbol, BitWriter out) {
+        if (symbol < 0 || symbol > END) {
+            throw new IllegalArgumentException("Symbol " + symbol + " is outside of the alphabet.");
+        }
+        int leaf = symbol == END ? NONE : leaves[symbol];
+        if (leaf == NONE) {
+            writePath(nyt, out);
+            out.write(symbol, LITERAL_BITS);
+            if (symbol != END) {
+                update(symbol);
+            }
+        } else {
+            writePath(leaf, out);
+            update(symbol);
+        }
+    }
+
+    /**
+     * Reads the code of a symbol and updates the tree.
+     * The reader has to hold the whole code (at most the depth of the tree plus 17 bits).
+     * @param in reader of the encoded bits
+     * @return the decoded char or [END]
+     * @throws IllegalStateException if the bits could not have been written by the encoder
+     */
+    public int decode(BitReader in) {
+        int node = 0;
+        while (symbols[node] == NONE && node != nyt) {
+            node = children[node * 2 + (int) in.read(1)];
+        }
+        int symbol = node == nyt ? (int) in.read(LITERAL_BITS) : symbols[node];
+        if (symbol == END) {
+            return END;
+        }
+        if (symbol > END || (node == nyt && leaves[symbol] != NONE)) {
+            throw new IllegalStateException("Literal " + symbol + " is not a new symbol, the data is corrupted.");
+        }
+        update(symbol);
+        return symbol;
+    }
+
+    /**
+     * @return number of different symbols seen so far
+     */
+    public int getSymbolCount() {
+        return size / 2;
+    }
+
+    private void writePath(int node, BitWriter out) {
+        int depth = 0;
+        for (; node != 0; node = parents[node]) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = children[parents[node] * 2 + 1] == node ? 1 : 0;
+        }
+        // write the bits from the root down, up to 32 at a time
+        while (depth > 0) {
+            int chunk = Math.min(depth, Integer.SIZE);
+            int bits = 0;
+            for (int i = 0; i < chunk; i++) {
+                bits = bits << 1 | path[--depth];
+            }
+            out.write(bits, chunk);
+        }
+    }
+
+    /**
+     * Adds one occurrence of a symbol, splitting the NYT node first if the symbol is new.
+     */
+    private void update(int symbol) {
+        int node = leaves[symbol];
+        if (node == NONE) {
+            node = splitNyt(symbol);
+        }
+        while (node != NONE) {
+            int leader = leaderOf(node);
+            if (leader != node && leader != parents[node]) {
+                swap(node, leader);
+                node = leader;
+            }
+            weights[node]++;
+            node = parents[node];
+        }
+    }
+
+    /**
+     * Turns the NYT node into an internal node with a new NYT node and a leaf of the symbol as its children.
+     * @return the new leaf
+     */
+    private int splitNyt(int symbol) {
+        ensureCapacity(size + 2);
+        int leaf = size;
+        int newNyt = size + 1;
+        size += 2;
+        children[nyt * 2] = newNyt;
+        children[nyt * 2 + 1] = leaf;
+        parents[leaf] = nyt;
+        parents[newNyt] = nyt;
+        symbols[leaf] = symbol;
+        symbols[newNyt] = NONE;
+        leaves[symbol] = leaf;
+        nyt = newNyt;
+        return leaf;
+    }
+
+    /**
+     * @return the first node with the same weight as the given one
+     */
+    private int leaderOf(int node) {
+        long weight = weights[node];
+        int low = 0;
+        int high = node;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (weights[middle] > weight) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Swaps the subtrees at two positions of equal weight. The parents stay where they are.
+     */
+    private void swap(int a, int b) {
+        int symbolA = symbols[a];
+        symbols[a] = symbols[b];
+        symbols[b] = symbolA;
+        for (int side = 0; side < 2; side++) {
+            int childA = children[a * 2 + side];
+            children[a * 2 + side] = children[b * 2 + side];
+            children[b * 2 + side] = childA;
+        }
+        relink(a);
+        relink(b);
+    }
+
+    /**
+     * Points the children (or the leaf index of the symbol) back at a node after it was moved.
+     */
+    private void relink(int node) {
+        if (symbols[node] != NONE) {
+            leaves[symbols[node]] = node;
+        } else if (children[node * 2] == 0 && children[node * 2 + 1] == 0) {
+            nyt = node;
+        } else {
+            parents[children[node * 2]] = node;
+            parents[children[node * 2 + 1]] = node;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > parents.length) {
+            int newCapacity = Math.max(capacity, parents.length * 2);
+            parents = Arrays.copyOf(parents, newCapacity);
+            children = Arrays.copyOf(children, newCapacity * 2);
+            weights = Arrays.copyOf(weights, newCapacity);
+            symbols = Arrays.copyOf(symbols, newCapacity);
+        }
+    }
+}
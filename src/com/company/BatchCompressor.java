@@ -0,0 +1,470 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A class compressing many (small) UTF-8 text files with one shared tree.
+ *
+ * The work runs as a pipeline of three stages connected by bounded queues: one thread reads the files,
+ * a fixed number of workers encode them (each with its own [HuffmanCodec.Encoder]) and one thread writes
+ * the containers. Nothing is set up per file, so the throughput is limited by the disk rather than by
+ * the compressor, and at most a few files per worker are held in memory at once.
+ * A file that can not be read or written does not stop the batch; its error is reported in its [FileResult].
+ * Every output is a container of the codec's tree and can be decompressed with [HuffmanCodec.decompress].
+ */
+public class BatchCompressor {
+    /**
+     * Extension appended to the names of the compressed files
+     */
+    public static final String EXTENSION = ".hufc";
+    // marks the end of the files in the queues
+    private static final Job END = new Job(-1, null, null);
+
+    private final HuffmanCodec codec;
+    private final int workers;
+
+    /**
+     * Creates a batch compressor with one encoding worker per core.
+     * @param codec codec of the shared tree
+     */
+    public BatchCompressor(HuffmanCodec codec) {
+        this(codec, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a batch compressor.
+     * @param codec codec of the shared tree
+     * @param workers number of threads encoding files at the same time
+     */
+    public BatchCompressor(HuffmanCodec codec, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed.");
+        }
+        this.codec = codec;
+        this.workers = workers;
+    }
+
+    /**
+     * Builds a tree for a whole batch from a sample of its files, to be used when no pretrained tree fits.
+     * The codes are at most 31 bits long, leaving room for the escape code of chars missing from the sample.
+     * @param inputs files of the batch
+     * @param sampleFiles maximal number of evenly spaced files that are counted
+     * @return the tree, which should be saved (see [HuffmanTree.writeTreeCodes]) to decompress the batch later
+     * @throws IOException if a sampled file can not be read
+     */
+    public static HuffmanTree sampleTree(List<Path> inputs, int sampleFiles) throws IOException {
+        FrequencyTable sample = new FrequencyTable(FrequencyTable.CHAR_ALPHABET);
+        int sampled = Math.min(sampleFiles, inputs.size());
+        for (int i = 0; i < sampled; i++) {
+            Path input = inputs.get((int) ((long) i * inputs.size() / sampled));
+            sample.addChars(new String(Files.readAllBytes(input), StandardCharsets.UTF_8));
+        }
+        // the tree expects the chars sorted from the least to the most frequent, as the table keeps them
+        int[] symbols = sample.getSymbols();
+        long[] counts = sample.getFrequencies();
+        Map<Character, Integer> frequencyMap = new LinkedHashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            frequencyMap.put((char) symbols[i], (int) Math.min(Integer.MAX_VALUE, counts[i]));
+        }
+        return new HuffmanTree(frequencyMap, TableDecoder.MAX_CODE_LENGTH - 1);
+    }
+
+    /**
+     * @param directory a directory
+     * @return all the regular files in the directory and its subdirectories, sorted
+     * @throws IOException if the directory can not be listed
+     */
+    public static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Compresses every file in a directory and its subdirectories. The outputs keep the relative paths
+     * of the inputs, with [EXTENSION] appended.
+     * @param inputDirectory directory with the text files
+     * @param outputDirectory directory the containers are saved in (created if needed)
+     * @param policy what to do if an output file exists
+     * @return statistics of every file and of the whole batch
+     * @throws IOException if the input directory can not be listed
+     * @throws InterruptedException if the thread is interrupted while waiting for the stages
+     */
+    public Summary compressDirectory(Path inputDirectory, Path outputDirectory, OverwritePolicy policy)
+            throws IOException, InterruptedException {
+        List<Path> inputs = listFiles(inputDirectory);
+        List<Path> outputs = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            Path relative = inputDirectory.relativize(input);
+            outputs.add(outputDirectory.resolve(relative.toString() + EXTENSION));
+        }
+        return compress(inputs, outputs, policy);
+    }
+
+    /**
+     * Compresses files into one directory, each output is named after its input with [EXTENSION] appended.
+     * @param inputs text files
+     * @param outputDirectory directory the containers are saved in (created if needed)
+     * @param policy what to do if an output file exists
+     * @return statistics of every file and of the whole batch
+     * @throws InterruptedException if the thread is interrupted while waiting for the stages
+     */
+    public Summary compress(List<Path> inputs, Path outputDirectory, OverwritePolicy policy)
+            throws InterruptedException {
+        List<Path> outputs = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            outputs.add(outputDirectory.resolve(input.getFileName().toString() + EXTENSION));
+        }
+        return compress(inputs, outputs, policy);
+    }
+
+    /**
+     * Compresses files into given output files.
+     * @param inputs text files
+     * @param outputs file each input's container is saved in (missing directories are created)
+     * @param policy what to do if an output file exists
+     * @return statistics of every file and of the whole batch
+     * @throws InterruptedException if the thread is interrupted while waiting for the stages
+     */
+    public Summary compress(List<Path> inputs, List<Path> outputs, OverwritePolicy policy)
+            throws InterruptedException {
+        if (inputs.size() != outputs.size()) {
+            throw new IllegalArgumentException("Every input needs exactly one output.");
+        }
+        long start = System.nanoTime();
+        FileResult[] results = new FileResult[inputs.size()];
+        BlockingQueue<Job> read = new ArrayBlockingQueue<>(workers * 2);
+        BlockingQueue<Job> encoded = new ArrayBlockingQueue<>(workers * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(workers + 2);
+        CompletionService<Void> stages = new ExecutorCompletionService<>(pool);
+        try {
+            stages.submit(() -> {
+                readFiles(inputs, outputs, read);
+                return null;
+            });
+            for (int i = 0; i < workers; i++) {
+                stages.submit(() -> {
+                    encodeFiles(read, encoded);
+                    return null;
+                });
+            }
+            stages.submit(() -> {
+                writeFiles(encoded, policy, results);
+                return null;
+            });
+            // wait in the order the stages finish, so a failed stage is noticed while the others are still blocked
+            for (int i = 0; i < workers + 2; i++) {
+                try {
+                    stages.take().get();
+                } catch (ExecutionException e) {
+                    // the stages catch the errors of single files, anything else is a bug
+                    throw new IllegalStateException("A stage of the batch failed.", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(Arrays.asList(results), System.nanoTime() - start);
+    }
+
+    private void readFiles(List<Path> inputs, List<Path> outputs, BlockingQueue<Job> read)
+            throws InterruptedException {
+        for (int i = 0; i < inputs.size(); i++) {
+            Job job = new Job(i, inputs.get(i), outputs.get(i));
+            long start = System.nanoTime();
+            try {
+                byte[] bytes = Files.readAllBytes(job.input);
+                job.inputBytes = bytes.length;
+                job.text = new String(bytes, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                job.error = e;
+            }
+            job.readNanos = System.nanoTime() - start;
+            recordIo(job.readNanos);
+            read.put(job);
+        }
+        for (int i = 0; i < workers; i++) {
+            read.put(END);
+        }
+    }
+
+    private void encodeFiles(BlockingQueue<Job> read, BlockingQueue<Job> encoded) throws InterruptedException {
+        HuffmanCodec.Encoder encoder = codec.newEncoder();
+        for (Job job = read.take(); job != END; job = read.take()) {
+            if (job.error == null) {
+                long start = System.nanoTime();
+                job.chars = job.text.length();
+                job.compressed = encoder.compress(job.text);
+                job.text = null;
+                job.encodeNanos = System.nanoTime() - start;
+            }
+            encoded.put(job);
+        }
+        encoded.put(END);
+    }
+
+    private void writeFiles(BlockingQueue<Job> encoded, OverwritePolicy policy, FileResult[] results)
+            throws InterruptedException {
+        int running = workers;
+        // files of one directory usually come one after another, its existence is checked once
+        Path createdParent = null;
+        while (running > 0) {
+            Job job = encoded.take();
+            if (job == END) {
+                running--;
+                continue;
+            }
+            if (job.error == null) {
+                long start = System.nanoTime();
+                try {
+                    Path parent = job.output.toAbsolutePath().getParent();
+                    if (parent != null && !parent.equals(createdParent)) {
+                        Files.createDirectories(parent);
+                        createdParent = parent;
+                    }
+                    Files.write(job.output, job.compressed, policy.openOptions());
+                } catch (IOException e) {
+                    job.error = e;
+                }
+                job.writeNanos = System.nanoTime() - start;
+                recordIo(job.writeNanos);
+            }
+            results[job.index] = new FileResult(job);
+        }
+    }
+
+    private void recordIo(long nanos) {
+        CompressionMetrics metrics = Metrics.get();
+        if (metrics.isEnabled()) {
+            metrics.recordStage(CompressionMetrics.Stage.IO, codec.getName(), nanos);
+        }
+    }
+
+    /**
+     * A file moving through the stages.
+     */
+    private static class Job {
+        final int index;
+        final Path input;
+        final Path output;
+        String text;
+        byte[] compressed;
+        long inputBytes;
+        long chars;
+        long readNanos;
+        long encodeNanos;
+        long writeNanos;
+        IOException error;
+
+        Job(int index, Path input, Path output) {
+            this.index = index;
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    /**
+     * Statistics of one compressed file.
+     */
+    public static class FileResult {
+        private final Path input;
+        private final Path output;
+        private final long inputBytes;
+        private final long chars;
+        private final long outputBytes;
+        private final long readNanos;
+        private final long encodeNanos;
+        private final long writeNanos;
+        private final IOException error;
+
+        private FileResult(Job job) {
+            this.input = job.input;
+            this.output = job.output;
+            this.inputBytes = job.inputBytes;
+            this.chars = job.chars;
+            this.outputBytes = job.error == null ? job.compressed.length : 0;
+            this.readNanos = job.readNanos;
+            this.encodeNanos = job.encodeNanos;
+            this.writeNanos = job.writeNanos;
+            this.error = job.error;
+        }
+
+        /**
+         * @return the text file
+         */
+        public Path getInput() {
+            return input;
+        }
+
+        /**
+         * @return file the container is saved in
+         */
+        public Path getOutput() {
+            return output;
+        }
+
+        /**
+         * @return size of the text file in bytes
+         */
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        /**
+         * @return number of chars of the text
+         */
+        public long getChars() {
+            return chars;
+        }
+
+        /**
+         * @return size of the container, 0 if the file failed
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * @return time spent reading and decoding the text file
+         */
+        public long getReadNanos() {
+            return readNanos;
+        }
+
+        /**
+         * @return time spent compressing the text
+         */
+        public long getEncodeNanos() {
+            return encodeNanos;
+        }
+
+        /**
+         * @return time spent writing the container
+         */
+        public long getWriteNanos() {
+            return writeNanos;
+        }
+
+        /**
+         * @return why the file could not be read or written, null if it was compressed
+         */
+        public IOException getError() {
+            return error;
+        }
+
+        /**
+         * @return true if the file was compressed and saved
+         */
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return input + ": failed, " + error;
+            }
+            return String.format("%s: %d -> %d bytes, read %d us, encode %d us, write %d us",
+                    input, inputBytes, outputBytes, readNanos / 1000, encodeNanos / 1000, writeNanos / 1000);
+        }
+    }
+
+    /**
+     * Statistics of a whole batch.
+     */
+    public static class Summary {
+        private final List<FileResult> files;
+        private final long elapsedNanos;
+
+        private Summary(List<FileResult> files, long elapsedNanos) {
+            this.files = Collections.unmodifiableList(files);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return statistics of every file, in the order of the inputs
+         */
+        public List<FileResult> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return number of files that were compressed and saved
+         */
+        public int getSucceeded() {
+            return (int) files.stream().filter(FileResult::isSuccessful).count();
+        }
+
+        /**
+         * @return number of files that could not be read or written
+         */
+        public int getFailed() {
+            return files.size() - getSucceeded();
+        }
+
+        /**
+         * @return size of all the text files in bytes
+         */
+        public long getInputBytes() {
+            return files.stream().mapToLong(FileResult::getInputBytes).sum();
+        }
+
+        /**
+         * @return size of all the saved containers in bytes
+         */
+        public long getOutputBytes() {
+            return files.stream().mapToLong(FileResult::getOutputBytes).sum();
+        }
+
+        /**
+         * @return wall-clock time of the whole batch
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return time spent in each stage, summed over all files: read, encode and write
+         */
+        public long[] getStageNanos() {
+            return new long[]{
+                    files.stream().mapToLong(FileResult::getReadNanos).sum(),
+                    files.stream().mapToLong(FileResult::getEncodeNanos).sum(),
+                    files.stream().mapToLong(FileResult::getWriteNanos).sum()};
+        }
+
+        /**
+         * @return input megabytes compressed per second of wall-clock time
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getInputBytes() / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            long[] stages = getStageNanos();
+            return String.format("%d files (%d failed): %d -> %d bytes in %d ms, %.1f MB/s; "
+                            + "read %d ms, encode %d ms, write %d ms",
+                    files.size(), getFailed(), getInputBytes(), getOutputBytes(), elapsedNanos / 1000000,
+                    getThroughput(), stages[0] / 1000000, stages[1] / 1000000, stages[2] / 1000000);
+        }
+    }
+}
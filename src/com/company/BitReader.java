@@ -0,0 +1,156 @@
+package com.company;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A class reading bits (most significant bit first) from an array of bytes or a byte buffer.
+ *
+ * The bits are kept in a 64-bit window so that the next few bits can be peeked at and skipped
+ * without touching the array for every single bit. Bits past the end of the array read as 0s.
+ */
+public class BitReader {
+    private byte[] data;
+    // used instead of the array for buffers without one (e.g. memory-mapped files)
+    private ByteBuffer buffer;
+    private int bytePosition;
+    private int byteLimit;
+    private long bitPosition;
+    private long bitLimit;
+    // bits that were already read from the array, aligned to the left
+    private long window;
+    private int windowBits;
+
+    /**
+     * Creates a reader over all the bits of an array.
+     * @param data an array of bytes (0s and 1s)
+     */
+    public BitReader(byte[] data) {
+        this(data, 0, (long) data.length * Byte.SIZE);
+    }
+
+    /**
+     * Creates a reader over a part of an array.
+     * @param data an array of bytes (0s and 1s)
+     * @param bitOffset index of the first bit to be read
+     * @param bitLimit index of the bit after the last one that can be read
+     */
+    public BitReader(byte[] data, long bitOffset, long bitLimit) {
+        reset(data, bitOffset, bitLimit);
+    }
+
+    /**
+     * Creates a reader over a part of a byte buffer, reading it by absolute indexes.
+     * @param buffer a buffer of bytes (0s and 1s), its position and limit are ignored
+     * @param bitOffset index of the first bit to be read
+     * @param bitLimit index of the bit after the last one that can be read
+     */
+    public BitReader(ByteBuffer buffer, long bitOffset, long bitLimit) {
+        reset(buffer, bitOffset, bitLimit);
+    }
+
+    /**
+     * Starts reading a (possibly different) buffer from a given bit.
+     * @param buffer a buffer of bytes (0s and 1s), its position and limit are ignored
+     * @param bitOffset index of the first bit to be read
+     * @param bitLimit index of the bit after the last one that can be read
+     */
+    public void reset(ByteBuffer buffer, long bitOffset, long bitLimit) {
+        if (bitOffset < 0 || bitOffset > bitLimit || bitLimit > (long) buffer.capacity() * Byte.SIZE) {
+            throw new IllegalArgumentException("Bit range [" + bitOffset + ", " + bitLimit
+                    + ") is outside of the buffer.");
+        }
+        this.data = null;
+        this.buffer = buffer;
+        start(bitOffset, bitLimit);
+    }
+
+    /**
+     * Starts reading a (possibly different) array from a given bit.
+     * @param data an array of bytes (0s and 1s)
+     * @param bitOffset index of the first bit to be read
+     * @param bitLimit index of the bit after the last one that can be read
+     */
+    public void reset(byte[] data, long bitOffset, long bitLimit) {
+        if (bitOffset < 0 || bitOffset > bitLimit || bitLimit > (long) data.length * Byte.SIZE) {
+            throw new IllegalArgumentException("Bit range [" + bitOffset + ", " + bitLimit
+                    + ") is outside of the array.");
+        }
+        this.data = data;
+        this.buffer = null;
+        start(bitOffset, bitLimit);
+    }
+
+    private void start(long bitOffset, long bitLimit) {
+        this.bytePosition = (int) (bitOffset >>> 3);
+        this.byteLimit = (int) ((bitLimit + 7) >>> 3);
+        this.bitPosition = bitOffset & ~7L;
+        this.bitLimit = bitLimit;
+        this.window = 0;
+        this.windowBits = 0;
+        skip((int) (bitOffset & 7));
+    }
+
+    /**
+     * Returns the next bits without consuming them.
+     * @param n number of bits (1 - 56)
+     * @return the bits as the lowest n bits of an int (or long for n > 32)
+     */
+    public long peek(int n) {
+        if (windowBits < n) {
+            refill();
+        }
+        return window >>> (Long.SIZE - n);
+    }
+
+    /**
+     * Consumes the next bits.
+     * @param n number of bits (0 - 56)
+     */
+    public void skip(int n) {
+        if (windowBits < n) {
+            refill();
+        }
+        window <<= n;
+        windowBits -= n;
+        bitPosition += n;
+    }
+
+    /**
+     * Reads and consumes the next bits.
+     * @param n number of bits (1 - 56)
+     * @return the bits as the lowest n bits of a long
+     */
+    public long read(int n) {
+        long bits = peek(n);
+        skip(n);
+        return bits;
+    }
+
+    /**
+     * @return number of bits that can still be read
+     */
+    public long remaining() {
+        return bitLimit - bitPosition;
+    }
+
+    /**
+     * @return index of the next bit to be read
+     */
+    public long position() {
+        return bitPosition;
+    }
+
+    /**
+     * Loads whole bytes into the window until it holds at least 57 bits (or the array ends).
+     */
+    private void refill() {
+        while (windowBits <= 56) {
+            if (bytePosition < byteLimit) {
+                int b = data != null ? data[bytePosition++] : buffer.get(bytePosition++);
+                window |= (long) (b & 0xFF) << (56 - windowBits);
+            }
+            // past the end the window is filled with 0s
+            windowBits += 8;
+        }
+    }
+}
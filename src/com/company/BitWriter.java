@@ -0,0 +1,141 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * A class writing bits (most significant bit first) into an array of bytes.
+ *
+ * Codes are shifted into a 64-bit accumulator, which is saved in the buffer as a whole word once it is full.
+ * If an output stream is given, the buffer is written to it whenever it fills up, so the memory used stays
+ * the same however many bits are written.
+ */
+public class BitWriter {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int size;
+    private long accumulator;
+    private int accumulatedBits;
+    private long bitCount;
+
+    /**
+     * Creates a writer that keeps all the bytes in memory (see [toByteArray]).
+     */
+    public BitWriter() {
+        this.out = null;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    }
+
+    /**
+     * Creates a writer that passes the bytes to a stream in chunks of a given size.
+     * @param out stream that the bytes will be written to
+     * @param bufferSize number of bytes kept before writing them to the stream (at least 8)
+     */
+    public BitWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(Long.BYTES, bufferSize & ~7)];
+    }
+
+    /**
+     * Writes the lowest bits of a code.
+     * @param bits the code stored in the lowest bits of an int
+     * @param length number of bits to be written (0 - 32)
+     */
+    public void write(int bits, int length) {
+        long code = bits & 0xFFFFFFFFL;
+        int free = Long.SIZE - accumulatedBits;
+        bitCount += length;
+        if (length < free) {
+            accumulator = (accumulator << length) | code;
+            accumulatedBits += length;
+            return;
+        }
+        // fill the accumulator up, save it as a whole word and keep the rest of the code
+        int rest = length - free;
+        accumulator = (accumulator << free) | (code >>> rest);
+        writeWord(accumulator);
+        accumulator = code & ((1L << rest) - 1);
+        accumulatedBits = rest;
+    }
+
+    /**
+     * Pads the last byte with 0s and passes everything that is buffered to the stream.
+     * Nothing else should be written afterwards.
+     */
+    public void finish() {
+        if (accumulatedBits > 0) {
+            long aligned = accumulator << (Long.SIZE - accumulatedBits);
+            int bytes = (accumulatedBits + 7) / 8;
+            for (int i = 0; i < bytes; i++) {
+                ensureSpace(1);
+                buffer[size++] = (byte) (aligned >>> (Long.SIZE - 8 * (i + 1)));
+            }
+            accumulator = 0;
+            accumulatedBits = 0;
+        }
+        if (out != null) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Drops everything written so far, so that the writer (and its buffer) can be used for another text.
+     * Only for writers without a stream.
+     */
+    public void reset() {
+        if (out != null) {
+            throw new IllegalStateException("Bits already passed to the stream can not be dropped.");
+        }
+        size = 0;
+        accumulator = 0;
+        accumulatedBits = 0;
+        bitCount = 0;
+    }
+
+    /**
+     * @return number of bits written so far (without the padding)
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Finishes writing and returns all the bytes (only for writers without a stream).
+     * @return written bits packed in bytes, with the last byte padded with 0s
+     */
+    public byte[] toByteArray() {
+        finish();
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void writeWord(long word) {
+        ensureSpace(Long.BYTES);
+        for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (word >>> shift);
+        }
+    }
+
+    private void ensureSpace(int bytes) {
+        if (size + bytes <= buffer.length) {
+            return;
+        }
+        if (out != null) {
+            flushBuffer();
+        } else {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+    }
+
+    private void flushBuffer() {
+        try {
+            out.write(buffer, 0, size);
+            size = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
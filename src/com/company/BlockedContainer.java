@@ -0,0 +1,330 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+
+/**
+ * A class writing and reading compressed files made of independently decodable blocks.
+ *
+ * Every block holds a fixed number of chars of the text, encoded from a byte boundary, and a trailing index
+ * tells where each block starts. Blocks can therefore be decoded in parallel, or only the blocks covering
+ * a requested range of the text can be decoded. Layout:
+ * <pre>
+ * magic          4 bytes   "HUFB"
+ * version        1 byte
+ * flags          1 byte    reserved, 0
+ * block length   4 bytes   number of chars in every block but the last
+ * table          code lengths, the same as in [HuffmanContainer]
+ * checksum       4 bytes   CRC32 of everything above
+ * blocks         canonical codes of each block's chars, last byte of each block padded with 0s
+ * index          per block: offset (8 bytes), compressed size (4 bytes), chars (4 bytes), CRC32 (4 bytes)
+ * index offset   8 bytes
+ * block count    4 bytes
+ * checksum       4 bytes   CRC32 of the index, its offset and the block count
+ * magic          4 bytes   "HUFB"
+ * </pre>
+ * The header, the index and every block have a checksum of their own, so a block can be checked
+ * without reading the others.
+ */
+public class BlockedContainer {
+    public static final int MAGIC = 0x48554642;
+    public static final int VERSION = 1;
+    public static final int DEFAULT_BLOCK_LENGTH = 1 << 16;
+    private static final int INDEX_ENTRY_SIZE = 20;
+    private static final int TRAILER_SIZE = 20;
+
+    private final byte[] data;
+    private final TableDecoder decoder;
+    private final long[] offsets;
+    private final int[] sizes;
+    private final int[] lengths;
+    private final int[] checksums;
+    // index of the first char of every block, and the number of all chars at the end
+    private final long[] firstChars;
+
+    private BlockedContainer(byte[] data, TableDecoder decoder, long[] offsets, int[] sizes, int[] lengths,
+                             int[] checksums) {
+        this.data = data;
+        this.decoder = decoder;
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.lengths = lengths;
+        this.checksums = checksums;
+        this.firstChars = new long[lengths.length + 1];
+        for (int i = 0; i < lengths.length; i++) {
+            firstChars[i + 1] = firstChars[i] + lengths[i];
+        }
+    }
+
+    /**
+     * Compresses a text into blocks using canonical codes with the same lengths as the given codes.
+     * Chars that have no code are skipped.
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @param text text to compress
+     * @param blockLength number of chars of the text in every block
+     * @return bytes of the blocked container
+     */
+    public static byte[] write(Map<Character, String> codes, CharSequence text, int blockLength) {
+        if (blockLength < 1) {
+            throw new IllegalArgumentException("Block length has to be positive.");
+        }
+        int[] symbols = new int[codes.size()];
+        int[] codeLengths = new int[codes.size()];
+        int i = 0;
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            symbols[i] = entry.getKey();
+            codeLengths[i] = entry.getValue().length();
+            i++;
+        }
+        PackedEncoder encoder = new PackedEncoder(symbols, CanonicalCodes.assign(symbols, codeLengths), codeLengths);
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(0);
+            out.writeInt(blockLength);
+            HuffmanContainer.writeLengthTable(out, symbols, codeLengths);
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(bytes.toByteArray());
+            out.writeInt((int) headerCrc.getValue());
+
+            int blocks = (text.length() + blockLength - 1) / blockLength;
+            ByteArrayOutputStream index = new ByteArrayOutputStream(blocks * INDEX_ENTRY_SIZE);
+            DataOutputStream indexOut = new DataOutputStream(index);
+            for (int block = 0; block < blocks; block++) {
+                int start = block * blockLength;
+                BitWriter bits = new BitWriter();
+                long encoded = encoder.encode(text.subSequence(start, Math.min(text.length(), start + blockLength)), bits);
+                byte[] blockBytes = bits.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(blockBytes);
+                indexOut.writeLong(bytes.size());
+                indexOut.writeInt(blockBytes.length);
+                indexOut.writeInt((int) encoded);
+                indexOut.writeInt((int) crc.getValue());
+                out.write(blockBytes);
+            }
+            long indexOffset = bytes.size();
+            indexOut.writeLong(indexOffset);
+            indexOut.writeInt(blocks);
+            CRC32 indexCrc = new CRC32();
+            indexCrc.update(index.toByteArray());
+            index.writeTo(out);
+            out.writeInt((int) indexCrc.getValue());
+            out.writeInt(MAGIC);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the header and the index of a blocked container. No block is decoded yet.
+     * @param data bytes of the blocked container
+     * @return container ready for decoding blocks
+     * @throws IOException if the data is not a valid blocked container
+     */
+    public static BlockedContainer open(byte[] data) throws IOException {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            if (data.length < 14 + TRAILER_SIZE || in.getInt() != MAGIC
+                    || in.getInt(data.length - 4) != MAGIC) {
+                throw new CorruptedDataException("Not a blocked huffman container.");
+            }
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new CorruptedDataException("Unsupported container version " + version + ".");
+            }
+            int flags = in.get() & 0xFF;
+            int blockLength = in.getInt();
+            int[][] table = HuffmanContainer.readLengthTable(in);
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(data, 0, in.position());
+            if ((int) headerCrc.getValue() != in.getInt() || flags != 0 || blockLength < 1) {
+                throw new CorruptedDataException("Header checksum does not match, the data is corrupted.");
+            }
+            TableDecoder decoder;
+            try {
+                decoder = new TableDecoder(table[0], CanonicalCodes.assign(table[0], table[1]), table[1]);
+            } catch (IllegalArgumentException e) {
+                throw new CorruptedDataException("Code length table is corrupted: " + e.getMessage());
+            }
+
+            long indexOffset = in.getLong(data.length - TRAILER_SIZE);
+            int blocks = in.getInt(data.length - 12);
+            if (blocks < 0 || indexOffset < in.position()
+                    || indexOffset + (long) blocks * INDEX_ENTRY_SIZE != data.length - TRAILER_SIZE) {
+                throw new CorruptedDataException("Block index is corrupted.");
+            }
+            CRC32 indexCrc = new CRC32();
+            indexCrc.update(data, (int) indexOffset, data.length - 8 - (int) indexOffset);
+            if ((int) indexCrc.getValue() != in.getInt(data.length - 8)) {
+                throw new CorruptedDataException("Index checksum does not match, the data is corrupted.");
+            }
+            in.position((int) indexOffset);
+            long[] offsets = new long[blocks];
+            int[] sizes = new int[blocks];
+            int[] lengths = new int[blocks];
+            int[] checksums = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = in.getLong();
+                sizes[i] = in.getInt();
+                lengths[i] = in.getInt();
+                checksums[i] = in.getInt();
+                if (offsets[i] < 0 || sizes[i] < 0 || lengths[i] < 0 || lengths[i] > blockLength
+                        || offsets[i] + sizes[i] > indexOffset) {
+                    throw new CorruptedDataException("Block index is corrupted.");
+                }
+            }
+            return new BlockedContainer(data, decoder, offsets, sizes, lengths, checksums);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new CorruptedDataException("Blocked container is truncated.");
+        }
+    }
+
+    /**
+     * @return number of blocks
+     */
+    public int getBlockCount() {
+        return lengths.length;
+    }
+
+    /**
+     * @return number of chars in all the blocks
+     */
+    public long getLength() {
+        return firstChars[lengths.length];
+    }
+
+    /**
+     * Decodes a single block.
+     * @param block index of the block
+     * @return chars of the block
+     * @throws IOException if the block is corrupted
+     */
+    public char[] decodeBlock(int block) throws IOException {
+        int offset = (int) offsets[block];
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, sizes[block]);
+        if ((int) crc.getValue() != checksums[block]) {
+            throw new CorruptedDataException("Checksum of block " + block + " does not match, the data is corrupted.");
+        }
+        BitReader reader = new BitReader(data, (long) offset * Byte.SIZE, (long) (offset + sizes[block]) * Byte.SIZE);
+        char[] chars = new char[lengths[block]];
+        // only the padding of the last byte may be left
+        if (decoder.decode(reader, chars, 0, chars.length) != chars.length || reader.remaining() >= Byte.SIZE) {
+            throw new CorruptedDataException("Block " + block + " is corrupted.");
+        }
+        return chars;
+    }
+
+    /**
+     * Decodes all the blocks on the common fork/join pool.
+     * @return decompressed text
+     * @throws IOException if a block is corrupted
+     */
+    public String decodeAll() throws IOException {
+        return decodeAll(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decodes all the blocks in parallel.
+     * @param pool pool the blocks are decoded in
+     * @return decompressed text
+     * @throws IOException if a block is corrupted
+     * @throws InterruptedIOException if the thread is interrupted while waiting for the blocks
+     */
+    public String decodeAll(ForkJoinPool pool) throws IOException {
+        return decodeRange(0, getLength(), pool);
+    }
+
+    /**
+     * Decodes a range of the text, decoding only the blocks that cover it.
+     * @param from index of the first char (inclusive)
+     * @param to index after the last char (exclusive)
+     * @return chars [from, to) of the text
+     * @throws IOException if a block is corrupted
+     * @throws InterruptedIOException if the thread is interrupted while waiting for the blocks
+     */
+    public String decodeRange(long from, long to) throws IOException {
+        return decodeRange(from, to, ForkJoinPool.commonPool());
+    }
+
+    private String decodeRange(long from, long to, ForkJoinPool pool) throws IOException {
+        if (from < 0 || to > getLength() || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is outside of the text.");
+        }
+        if (to - from > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Range is too long to be decoded into a String.");
+        }
+        if (from == to) {
+            return "";
+        }
+        int first = blockOf(from);
+        int last = blockOf(to - 1);
+        List<ForkJoinTask<char[]>> tasks = new ArrayList<>(last - first + 1);
+        for (int block = first; block <= last; block++) {
+            int b = block;
+            tasks.add(pool.submit(() -> decodeBlock(b)));
+        }
+        StringBuilder text = new StringBuilder((int) (to - from));
+        for (int block = first; block <= last; block++) {
+            char[] chars;
+            try {
+                chars = tasks.get(block - first).get();
+            } catch (InterruptedException e) {
+                // nobody waits for the other blocks any more
+                for (ForkJoinTask<char[]> task : tasks.subList(block - first, tasks.size())) {
+                    task.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException(
+                        "Interrupted while decoding block " + block + ".");
+                interrupted.initCause(e);
+                throw interrupted;
+            } catch (Exception e) {
+                // the pool wraps checked exceptions, find the original one
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                }
+                throw new IOException("Decoding block " + block + " failed.", e);
+            }
+            int start = (int) Math.max(0, from - firstChars[block]);
+            int end = (int) Math.min(chars.length, to - firstChars[block]);
+            text.append(chars, start, end - start);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param charIndex index of a char in the text
+     * @return index of the block containing it
+     */
+    private int blockOf(long charIndex) {
+        int found = Arrays.binarySearch(firstChars, 0, lengths.length, charIndex);
+        if (found < 0) {
+            found = -found - 2;
+        }
+        // skip empty blocks (blocks where every char had no code)
+        while (lengths[found] == 0) {
+            found++;
+        }
+        return found;
+    }
+}
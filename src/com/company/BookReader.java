@@ -1,7 +1,12 @@
 package com.company;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -35,6 +40,18 @@ public class BookReader {
         return null;
     }
 
+    /**
+     * Opens a stream over the unchanged contents of a file in resources, so that it can be compressed
+     * without loading it into memory (see [HuffmanOutputStream]).
+     * @param fileName name of the file in the resources folder (with the extension)
+     *                 if it is in a subfolder - "subfolder/name.txt"
+     * @return a buffered stream with the file's bytes
+     * @throws IOException if the file can not be opened
+     */
+    public InputStream openBook(String fileName) throws IOException {
+        return new BufferedInputStream(Files.newInputStream(Paths.get("./resources/" + fileName)));
+    }
+
     /**
      * Counts number of occurrences for each char in the text
      * @param text text that we want to analyze
@@ -42,15 +59,20 @@ public class BookReader {
      * the map is sorted so that the most occurring char will be last
      */
     public Map<Character, Integer> countCharOccurrences(String text){
-        Map<Character, Integer> chars = new HashMap<>();
+        // count in a primitive table, remembering the order in which chars first occurred
+        int[] counts = new int[Character.MAX_VALUE + 1];
+        char[] firstOccurrences = new char[Character.MAX_VALUE + 1];
+        int distinct = 0;
         for (int i = 0; i < text.length(); i++) {
-            Character c = text.charAt(i);
-            if (chars.containsKey(c)){
-                Integer count = chars.get(c);
-                count += 1;
-                chars.put(c, count);
-            }else
-                chars.put(c, 1);
+            char c = text.charAt(i);
+            if (counts[c]++ == 0) {
+                firstOccurrences[distinct++] = c;
+            }
+        }
+        // fill the map in the same order as counting straight into it would
+        Map<Character, Integer> chars = new HashMap<>();
+        for (int i = 0; i < distinct; i++) {
+            chars.put(firstOccurrences[i], counts[firstOccurrences[i]]);
         }
         // using stream on chars map entry set to sort it by values
         Map<Character, Integer> sorted = chars.entrySet().stream()
@@ -63,4 +85,13 @@ public class BookReader {
                         (prevVal, sortedVal) -> prevVal, LinkedHashMap::new));
         return sorted;
     }
+
+    /**
+     * Counts number of occurrences for each char in the text without boxing them into a map.
+     * @param text text that we want to analyze
+     * @return a table of counts that can be passed straight to [HuffmanTree]
+     */
+    public FrequencyTable countFrequencies(CharSequence text){
+        return FrequencyTable.ofChars(text);
+    }
 }
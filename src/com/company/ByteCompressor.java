@@ -0,0 +1,248 @@
+package com.company;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A class compressing raw bytes with a 256 symbol alphabet, so that any file round-trips exactly.
+ *
+ * Unlike [Compressor] it does not decode text into chars: every byte value is a symbol, codes and counts
+ * are kept in 256-entry arrays, and the output is a [HuffmanContainer] flagged with [HuffmanContainer.FLAG_BYTES]
+ * that holds its own code lengths.
+ */
+public class ByteCompressor {
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final int[] symbols;
+    private final int[] lengths;
+    private final int[] codeBits = new int[FrequencyTable.BYTE_ALPHABET];
+    private final byte[] codeLengths = new byte[FrequencyTable.BYTE_ALPHABET];
+
+    /**
+     * Creates a compressor with huffman codes for counted bytes.
+     * @param counts counts of byte values (a table with [FrequencyTable.BYTE_ALPHABET] symbols)
+     */
+    public ByteCompressor(FrequencyTable counts) {
+        if (counts.getAlphabetSize() != FrequencyTable.BYTE_ALPHABET) {
+            throw new IllegalArgumentException("Counts of bytes are needed, not of chars.");
+        }
+        this.symbols = counts.getSymbols();
+        int[] huffmanLengths = HuffmanCodeLengths.compute(counts.getFrequencies());
+        for (int length : huffmanLengths) {
+            if (length > TableDecoder.MAX_CODE_LENGTH) {
+                // very skewed counts, limit the codes so they fit in the encoder's int
+                huffmanLengths = LengthLimitedCodes.computeLengths(counts.getFrequencies(), TableDecoder.MAX_CODE_LENGTH);
+                break;
+            }
+        }
+        this.lengths = huffmanLengths;
+        int[] codes = CanonicalCodes.assign(symbols, lengths);
+        for (int i = 0; i < symbols.length; i++) {
+            codeBits[symbols[i]] = codes[i];
+            codeLengths[symbols[i]] = (byte) lengths[i];
+        }
+    }
+
+    /**
+     * Compresses bytes with codes built for them.
+     * @param data bytes to compress
+     * @return bytes of the container
+     */
+    public static byte[] compress(byte[] data) {
+        FrequencyTable counts = new FrequencyTable(FrequencyTable.BYTE_ALPHABET);
+        counts.addBytes(ByteBuffer.wrap(data));
+        return new ByteCompressor(counts).encode(data);
+    }
+
+    /**
+     * Compresses bytes with this compressor's codes. Every byte value in the data has to have a code.
+     * @param data bytes to compress
+     * @return bytes of the container
+     */
+    public byte[] encode(byte[] data) {
+        BitWriter payload = new BitWriter();
+        encode(ByteBuffer.wrap(data), payload);
+        return HuffmanContainer.write(HuffmanContainer.FLAG_BYTES, data.length, symbols, lengths,
+                payload.toByteArray());
+    }
+
+    /**
+     * Decompresses a container written by a byte compressor.
+     * @param container bytes of the container
+     * @return the original bytes
+     * @throws IOException if the data is not a valid byte container
+     */
+    public static byte[] decompress(byte[] container) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(container);
+        HuffmanContainer.Header header = HuffmanContainer.readHeader(in, HuffmanContainer.FLAG_BYTES);
+        if (header.symbolCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Container holds too many bytes to be decompressed into an array.");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) header.symbolCount);
+        decode(in, header, out::put);
+        return out.array();
+    }
+
+    /**
+     * Compresses a file of any content. The file is memory-mapped and read twice: once to count the bytes,
+     * once to encode them.
+     * @param input file to compress
+     * @param output file the container is saved in (overwritten if it exists)
+     * @return size of the container in bytes
+     * @throws IOException if reading or writing fails
+     */
+    public static long compressFile(Path input, Path output) throws IOException {
+        return compressFile(input, output, OverwritePolicy.OVERWRITE);
+    }
+
+    /**
+     * Compresses a file of any content. The file is memory-mapped and read twice: once to count the bytes,
+     * once to encode them.
+     * @param input file to compress
+     * @param output file the container is saved in
+     * @param policy what to do if the output file exists
+     * @return size of the container in bytes
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public static long compressFile(Path input, Path output, OverwritePolicy policy) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Files larger than 2 GiB are not supported.");
+            }
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            FrequencyTable counts = new FrequencyTable(FrequencyTable.BYTE_ALPHABET);
+            counts.addBytes(data.duplicate());
+            ByteCompressor compressor = new ByteCompressor(counts);
+
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(output, policy.openOptions())) {
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(file, CHUNK_SIZE), crc));
+                HuffmanContainer.writeHeader(out, HuffmanContainer.FLAG_BYTES, size, compressor.symbols,
+                        compressor.lengths);
+                BitWriter payload = new BitWriter(out, CHUNK_SIZE);
+                compressor.encode(data, payload);
+                payload.finish();
+                // the checksum itself is not part of the checksum
+                out.flush();
+                file.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+            }
+            return Files.size(output);
+        }
+    }
+
+    /**
+     * Decompresses a container file into the original file. The container is memory-mapped.
+     * @param input file with the container
+     * @param output file the original bytes are saved in (overwritten if it exists)
+     * @return number of decompressed bytes
+     * @throws IOException if the container is not valid or reading or writing fails
+     */
+    public static long decompressFile(Path input, Path output) throws IOException {
+        return decompressFile(input, output, OverwritePolicy.OVERWRITE);
+    }
+
+    /**
+     * Decompresses a container file into the original file. The container is memory-mapped.
+     * @param input file with the container
+     * @param output file the original bytes are saved in
+     * @param policy what to do if the output file exists
+     * @return number of decompressed bytes
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws CorruptedDataException if the container is not valid
+     * @throws IOException if reading or writing fails
+     */
+    public static long decompressFile(Path input, Path output, OverwritePolicy policy) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, policy.openOptions())) {
+            if (in.size() > Integer.MAX_VALUE) {
+                throw new IOException("Files larger than 2 GiB are not supported.");
+            }
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            HuffmanContainer.Header header = HuffmanContainer.readHeader(data, HuffmanContainer.FLAG_BYTES);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            decode(data, header, bytes -> {
+                if (chunk.remaining() < bytes.remaining()) {
+                    writeFully(out, chunk);
+                }
+                chunk.put(bytes);
+            });
+            writeFully(out, chunk);
+            return header.symbolCount;
+        }
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer (the buffer is consumed).
+     */
+    private void encode(ByteBuffer data, BitWriter out) {
+        if (data.hasArray()) {
+            byte[] array = data.array();
+            int end = data.arrayOffset() + data.limit();
+            for (int i = data.arrayOffset() + data.position(); i < end; i++) {
+                int b = array[i] & 0xFF;
+                out.write(codeBits[b], codeLengths[b]);
+            }
+            data.position(data.limit());
+        } else {
+            while (data.hasRemaining()) {
+                int b = data.get() & 0xFF;
+                out.write(codeBits[b], codeLengths[b]);
+            }
+        }
+    }
+
+    /**
+     * Decodes the payload of a container in chunks.
+     * @param container buffer holding the container
+     * @param header header of the container
+     * @param sink receives every decoded chunk (the buffer is only valid during the call)
+     */
+    private static void decode(ByteBuffer container, HuffmanContainer.Header header, ChunkSink sink)
+            throws IOException {
+        TableDecoder decoder = header.newDecoder();
+        BitReader reader = new BitReader(container, header.payloadStart * Byte.SIZE, header.payloadEnd * Byte.SIZE);
+        char[] symbols = new char[CHUNK_SIZE];
+        byte[] bytes = new byte[CHUNK_SIZE];
+        long left = header.symbolCount;
+        while (left > 0) {
+            int decoded = decoder.decode(reader, symbols, 0, (int) Math.min(CHUNK_SIZE, left));
+            if (decoded == 0) {
+                throw new CorruptedDataException("Container is truncated: " + (header.symbolCount - left) + " of "
+                        + header.symbolCount + " bytes decoded.");
+            }
+            for (int i = 0; i < decoded; i++) {
+                bytes[i] = (byte) symbols[i];
+            }
+            sink.accept(ByteBuffer.wrap(bytes, 0, decoded));
+            left -= decoded;
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            out.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Receives decoded chunks of bytes.
+     */
+    private interface ChunkSink {
+        void accept(ByteBuffer bytes) throws IOException;
+    }
+}
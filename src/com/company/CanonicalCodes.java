@@ -0,0 +1,73 @@
+package com.company;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class assigning canonical huffman codes.
+ *
+ * Only the length of each code has to be known: symbols are sorted by (code length, symbol)
+ * and get consecutive codes, with the code shifted left whenever the length grows.
+ * Thanks to that a set of codes can be saved as a table of lengths.
+ */
+public class CanonicalCodes {
+    private CanonicalCodes() {
+    }
+
+    /**
+     * Assigns canonical codes to symbols.
+     * @param symbols encoded symbols (in any order)
+     * @param lengths length of each symbol's code
+     * @return code of each symbol (stored in the lowest bits), in the same order as the symbols
+     */
+    public static int[] assign(int[] symbols, int[] lengths) {
+        Integer[] order = new Integer[symbols.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> lengths[i]).thenComparingInt(i -> symbols[i]));
+        int[] codes = new int[symbols.length];
+        long code = 0;
+        int previousLength = 0;
+        for (int i : order) {
+            code <<= lengths[i] - previousLength;
+            if (code >= 1L << lengths[i]) {
+                throw new IllegalArgumentException("Code lengths do not describe a prefix code.");
+            }
+            codes[i] = (int) code;
+            code++;
+            previousLength = lengths[i];
+        }
+        return codes;
+    }
+
+    /**
+     * Assigns canonical codes to characters and writes them as Strings (like in the tree files).
+     * @param symbols encoded characters
+     * @param lengths length of each character's code
+     * @return map containing characters as keys and codes (0s and 1s) as values
+     */
+    public static Map<Character, String> toCodeMap(int[] symbols, int[] lengths) {
+        int[] codes = assign(symbols, lengths);
+        Map<Character, String> map = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            map.put((char) symbols[i], toBinaryString(codes[i], lengths[i]));
+        }
+        return map;
+    }
+
+    /**
+     * @param code code stored in the lowest bits
+     * @param length length of the code
+     * @return code written as 0s and 1s, with leading 0s
+     */
+    public static String toBinaryString(int code, int length) {
+        StringBuilder s = new StringBuilder(length);
+        for (int bit = length - 1; bit >= 0; bit--) {
+            s.append((code >>> bit & 1) == 0 ? '0' : '1');
+        }
+        return s.toString();
+    }
+}
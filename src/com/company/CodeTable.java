@@ -0,0 +1,145 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class holding the codes of a tree compiled for encoding and decoding.
+ *
+ * The encoder arrays and decoder tables are built once, when the table is created, and are never changed
+ * afterwards, so one table can be shared by any number of [Compressor]s and threads.
+ * The same codes with an escape code (see [withEscape]) are compiled on first use and kept with the table.
+ */
+public final class CodeTable {
+    private final String name;
+    private final Map<Character, String> codes;
+    private final PackedEncoder encoder;
+    private final TableDecoder decoder;
+    // compiled on first use, two threads may both compile it but get equal tables
+    private volatile CodeTable escaped;
+
+    /**
+     * Compiles codes of a tree.
+     * @param name name of the tree
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     */
+    public CodeTable(String name, Map<Character, String> codes) {
+        this.name = name;
+        this.codes = Collections.unmodifiableMap(new HashMap<>(codes));
+        this.encoder = new PackedEncoder(this.codes);
+        this.decoder = new TableDecoder(this.codes);
+    }
+
+    /**
+     * Compiles codes given as parallel arrays, without parsing strings of 0s and 1s.
+     * @param name name of the tree
+     * @param symbols chars that are encoded
+     * @param codes code of each char stored in the lowest bits
+     * @param lengths length of each code in bits
+     */
+    CodeTable(String name, int[] symbols, int[] codes, int[] lengths) {
+        Map<Character, String> codeStrings = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            StringBuilder code = new StringBuilder(lengths[i]);
+            for (int bit = lengths[i] - 1; bit >= 0; bit--) {
+                code.append((codes[i] >>> bit & 1) == 0 ? '0' : '1');
+            }
+            codeStrings.put((char) symbols[i], code.toString());
+        }
+        this.name = name;
+        this.codes = Collections.unmodifiableMap(codeStrings);
+        this.encoder = new PackedEncoder(symbols, codes, lengths);
+        this.decoder = new TableDecoder(symbols, codes, lengths);
+    }
+
+    /**
+     * Loads and compiles a tree from the trees directory, from its binary file (see [TreeFile])
+     * if there is one and from its txt file otherwise.
+     * @param treeName name of the tree file in trees directory (without .txt or .huft)
+     * @return compiled codes of the tree
+     * @throws TreeNotFoundException if the tree file does not exist
+     * @throws CorruptedDataException if the tree file is not well formatted or its codes are not valid
+     * @throws IOException if reading the tree file fails
+     */
+    public static CodeTable load(String treeName) throws IOException {
+        return load(treeName, TreeFile.resolve(CodeTableRegistry.TREES_DIRECTORY, treeName));
+    }
+
+    /**
+     * Loads and compiles a tree file, the tree is named after the file (without .txt or .huft).
+     * @param treeFile txt file with codes saved by [HuffmanTree.saveTreeCodes]
+     * or binary file saved by [HuffmanTree.writeBinaryTreeFile]
+     * @return compiled codes of the tree
+     * @throws TreeNotFoundException if the tree file does not exist
+     * @throws CorruptedDataException if the tree file is not well formatted or its codes are not valid
+     * @throws IOException if reading the tree file fails
+     */
+    public static CodeTable load(Path treeFile) throws IOException {
+        String fileName = String.valueOf(treeFile.getFileName());
+        String treeName = fileName;
+        if (fileName.endsWith(TreeFile.TEXT_EXTENSION)) {
+            treeName = fileName.substring(0, fileName.length() - TreeFile.TEXT_EXTENSION.length());
+        } else if (fileName.endsWith(TreeFile.EXTENSION)) {
+            treeName = fileName.substring(0, fileName.length() - TreeFile.EXTENSION.length());
+        }
+        return load(treeName, treeFile);
+    }
+
+    static CodeTable load(String treeName, Path treeFile) throws IOException {
+        if (String.valueOf(treeFile.getFileName()).endsWith(TreeFile.EXTENSION)) {
+            return TreeFile.load(treeName, treeFile);
+        }
+        Map<Character, String> codes = Compressor.readTreeFile(treeFile);
+        try {
+            return new CodeTable(treeName, codes);
+        } catch (IllegalArgumentException e) {
+            throw new CorruptedDataException("Tree " + treeName + " has invalid codes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return name of the tree
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return unmodifiable map of characters and their codes
+     */
+    public Map<Character, String> getCodes() {
+        return codes;
+    }
+
+    /**
+     * @return encoder using the codes
+     */
+    public PackedEncoder getEncoder() {
+        return encoder;
+    }
+
+    /**
+     * @return decoder using the codes
+     */
+    public TableDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Returns the codes with an escape code (see [EscapeCodes.addEscape]), the way [HuffmanCodec] and containers
+     * naming a tree use them. A table cached by [CodeTableRegistry] is therefore escaped only once.
+     * @return this table if its codes already have an escape code, the escaped table otherwise
+     * @throws IllegalArgumentException if the escape code would be longer than [TableDecoder.MAX_CODE_LENGTH]
+     */
+    public CodeTable withEscape() {
+        CodeTable table = escaped;
+        if (table == null) {
+            table = EscapeCodes.hasEscape(codes) ? this : new CodeTable(name, EscapeCodes.addEscape(codes));
+            escaped = table;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,170 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class caching compiled trees, so that a tree file is parsed and its tables are built only once.
+ *
+ * At most [capacity] trees are kept, the least recently used one is dropped when another one is loaded.
+ * The registry can be used from many threads; a tree requested by several threads at once may be compiled
+ * more than once, but all of them get the same [CodeTable].
+ */
+public class CodeTableRegistry {
+    public static final int DEFAULT_CAPACITY = 16;
+    /**
+     * Directory the trees are loaded from unless another one is given
+     */
+    public static final Path TREES_DIRECTORY = Paths.get("./resources/trees");
+    private static final CodeTableRegistry DEFAULT = new CodeTableRegistry(DEFAULT_CAPACITY);
+
+    private final Path treesDirectory;
+    private final int capacity;
+    private final Map<String, CodeTable> tables;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an empty registry loading trees from [TREES_DIRECTORY].
+     * @param capacity maximal number of cached trees
+     */
+    public CodeTableRegistry(int capacity) {
+        this(TREES_DIRECTORY, capacity);
+    }
+
+    /**
+     * Creates an empty registry.
+     * @param treesDirectory directory with the txt files of the trees
+     * @param capacity maximal number of cached trees
+     */
+    public CodeTableRegistry(Path treesDirectory, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity has to be positive.");
+        }
+        this.treesDirectory = treesDirectory;
+        this.capacity = capacity;
+        this.tables = new LinkedHashMap<String, CodeTable>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CodeTable> eldest) {
+                return size() > CodeTableRegistry.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return registry shared by the whole application
+     */
+    public static CodeTableRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a compiled tree, loading it from the trees directory if it is not cached.
+     * The binary file of the tree (see [TreeFile]) is loaded if there is one, the txt file otherwise.
+     * @param treeName name of the tree file in trees directory (without .txt or .huft)
+     * @return compiled codes of the tree
+     * @throws TreeNotFoundException if there is no such tree
+     * @throws IOException if the tree can not be loaded
+     */
+    public CodeTable get(String treeName) throws IOException {
+        synchronized (tables) {
+            CodeTable table = tables.get(treeName);
+            if (table != null) {
+                hits++;
+                Metrics.get().recordCacheLookup(treeName, true);
+                return table;
+            }
+            misses++;
+        }
+        Metrics.get().recordCacheLookup(treeName, false);
+        // compile without holding the lock, other trees can be used in the meantime
+        long start = Metrics.start();
+        CodeTable loaded = CodeTable.load(treeName, TreeFile.resolve(treesDirectory, treeName));
+        Metrics.stage(CompressionMetrics.Stage.TREE_LOAD, treeName, start);
+        synchronized (tables) {
+            CodeTable raced = tables.get(treeName);
+            if (raced != null) {
+                return raced;
+            }
+            tables.put(treeName, loaded);
+            return loaded;
+        }
+    }
+
+    /**
+     * Creates a compressor sharing a compiled tree.
+     * @param treeName name of the tree file in trees directory (without .txt or .huft)
+     * @return compressor using the cached tables
+     * @throws IOException if the tree can not be loaded
+     */
+    public Compressor compressor(String treeName) throws IOException {
+        return new Compressor(get(treeName));
+    }
+
+    /**
+     * @return directory the trees are loaded from
+     */
+    public Path getTreesDirectory() {
+        return treesDirectory;
+    }
+
+    /**
+     * Loads and compiles trees ahead of their first use, e.g. at startup.
+     * @param treeNames names of the txt files in trees directory (without .txt)
+     * @throws IOException if a tree can not be loaded
+     */
+    public void warmUp(String... treeNames) throws IOException {
+        for (String treeName : treeNames) {
+            get(treeName);
+        }
+    }
+
+    /**
+     * @param treeName name of a tree
+     * @return true if the tree is cached
+     */
+    public boolean contains(String treeName) {
+        synchronized (tables) {
+            return tables.containsKey(treeName);
+        }
+    }
+
+    /**
+     * @return number of cached trees
+     */
+    public int size() {
+        synchronized (tables) {
+            return tables.size();
+        }
+    }
+
+    /**
+     * @return number of requests answered from the cache
+     */
+    public long getHits() {
+        synchronized (tables) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return number of requests that had to load a tree
+     */
+    public long getMisses() {
+        synchronized (tables) {
+            return misses;
+        }
+    }
+
+    /**
+     * Drops all cached trees.
+     */
+    public void clear() {
+        synchronized (tables) {
+            tables.clear();
+        }
+    }
+}
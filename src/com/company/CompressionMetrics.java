@@ -0,0 +1,86 @@
+package com.company;
+
+/**
+ * A sink for measurements of compressing and decompressing, e.g. to send them to a monitoring system.
+ *
+ * The library reports to the sink installed with [Metrics.install]; by default that is [NOOP], which reports
+ * itself disabled, so no clock is read and nothing is recorded. [RecordingMetrics] keeps counters and latency
+ * histograms in memory and can be read through JMX. All methods can be called from many threads at once
+ * and should return quickly, they are called on the hot paths.
+ */
+public interface CompressionMetrics {
+    /**
+     * Tree name of the measurements that do not belong to any tree, e.g. counting chars.
+     */
+    String NO_TREE = "(none)";
+
+    /**
+     * A sink that records nothing.
+     */
+    CompressionMetrics NOOP = new CompressionMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * A part of the work whose time is measured.
+     */
+    enum Stage {
+        /** counting the chars or bytes of a text */
+        HISTOGRAM,
+        /** building a tree from counts */
+        TREE_BUILD,
+        /** reading and compiling a tree file */
+        TREE_LOAD,
+        /** encoding chars into bits */
+        ENCODE,
+        /** decoding bits into chars */
+        DECODE,
+        /** reading and writing files */
+        IO
+    }
+
+    /**
+     * @return false if nothing is recorded, the library then does not measure anything
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Records how long a stage took.
+     * @param stage the stage
+     * @param tree name of the tree, or [NO_TREE]
+     * @param nanos duration in nanoseconds
+     */
+    default void recordStage(Stage stage, String tree, long nanos) {
+    }
+
+    /**
+     * Records a compressed text.
+     * @param tree name of the tree
+     * @param chars number of chars of the text
+     * @param bytes number of compressed bytes
+     */
+    default void recordCompression(String tree, long chars, long bytes) {
+    }
+
+    /**
+     * Records a decompressed text.
+     * @param tree name of the tree
+     * @param bytes number of compressed bytes
+     * @param chars number of chars of the text
+     */
+    default void recordDecompression(String tree, long bytes, long chars) {
+    }
+
+    /**
+     * Records a request for a compiled tree (see [CodeTableRegistry]).
+     * @param tree name of the tree
+     * @param hit true if the tree was cached
+     */
+    default void recordCacheLookup(String tree, boolean hit) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.company;
+
+import java.util.Map;
+
+/**
+ * Attributes of [RecordingMetrics] shown by JMX clients such as JConsole.
+ *
+ * Maps are keyed by tree name; stage maps are keyed by "STAGE tree", e.g. "ENCODE eng1".
+ */
+public interface CompressionMetricsMXBean {
+    /**
+     * @return number of compressed chars per tree
+     */
+    Map<String, Long> getCharsCompressed();
+
+    /**
+     * @return number of bytes chars were compressed into per tree
+     */
+    Map<String, Long> getBytesCompressed();
+
+    /**
+     * @return number of decompressed bytes per tree
+     */
+    Map<String, Long> getBytesDecompressed();
+
+    /**
+     * @return number of chars bytes were decompressed into per tree
+     */
+    Map<String, Long> getCharsDecompressed();
+
+    /**
+     * @return compressed bits per char per tree
+     */
+    Map<String, Double> getBitsPerChar();
+
+    /**
+     * @return number of measurements per stage and tree
+     */
+    Map<String, Long> getStageCounts();
+
+    /**
+     * @return total time in milliseconds per stage and tree
+     */
+    Map<String, Double> getStageTotalMillis();
+
+    /**
+     * @return upper bound of the 99th percentile of durations in microseconds per stage and tree
+     */
+    Map<String, Double> getStageP99Micros();
+
+    /**
+     * @return number of requests for a compiled tree answered from the cache
+     */
+    long getCacheHits();
+
+    /**
+     * @return number of requests for a compiled tree that had to load it
+     */
+    long getCacheMisses();
+
+    /**
+     * @return share of requests for a compiled tree answered from the cache, 0 if there were none
+     */
+    double getCacheHitRate();
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
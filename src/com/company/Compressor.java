@@ -1,8 +1,11 @@
 package com.company;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
@@ -10,17 +13,65 @@ import java.util.Scanner;
 /**
  * A class containing compressing and decompressing methods for a given encoding based on a huffman tree.
  */
-public class Compressor {
+public class Compressor implements TextCodec {
     private Map<Character, String> codes = new HashMap<>();
+    // built from codes on first use
+    private PackedEncoder encoder;
+    private TableDecoder decoder;
+    // canonical codes with the same lengths, which containers are written with; built on first use
+    private int[] tableSymbols;
+    private int[] tableLengths;
+    private CodeTable canonical;
+    // reported to [Metrics], null if the codes do not come from a named tree
+    private String treeName;
 
     /**
      * Constructor for compressor, automatically fetches the default encoding for a given
      * @param nameOfTxtFileWithCodes name of the txt file in trees directory containing the encoding
      */
     public Compressor(String nameOfTxtFileWithCodes) {
+        this.treeName = nameOfTxtFileWithCodes;
         getCodesFromFile(nameOfTxtFileWithCodes);
     }
 
+    /**
+     * Constructor for compressor that can also compress characters missing from the tree.
+     * If the tree has no escape code, one is added (see [EscapeCodes.addEscape]), and chars without a code
+     * are then saved as the escape code followed by the char instead of being dropped.
+     * Files compressed this way have to be decompressed by a compressor created the same way.
+     * @param nameOfTxtFileWithCodes name of the txt file in trees directory containing the encoding
+     * @param escapeMissingChars true if chars without a code should be escaped
+     */
+    public Compressor(String nameOfTxtFileWithCodes, boolean escapeMissingChars) {
+        this.treeName = nameOfTxtFileWithCodes;
+        getCodesFromFile(nameOfTxtFileWithCodes);
+        if (escapeMissingChars) {
+            Map<Character, String> escaped = EscapeCodes.addEscape(codes);
+            codes.clear();
+            codes.putAll(escaped);
+        }
+    }
+
+    /**
+     * Constructor for compressor using a compiled code table (e.g. from [CodeTableRegistry]),
+     * its encoder and decoder are shared instead of being built again.
+     * @param table compiled codes of a tree
+     */
+    public Compressor(CodeTable table) {
+        this.codes.putAll(table.getCodes());
+        this.treeName = table.getName();
+        this.encoder = table.getEncoder();
+        this.decoder = table.getDecoder();
+    }
+
+    /**
+     * Constructor for compressor using already known codes (e.g. from [HuffmanContainer.readCodes])
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     */
+    public Compressor(Map<Character, String> codes) {
+        this.codes.putAll(codes);
+    }
+
     /**
      * Fetches a map containing a character and its corresponding encoding from a txt file in trees directory
      * @param nameOfTxtFileWithCodes name of the txt file in trees directory (without .txt)
@@ -29,214 +80,450 @@ public class Compressor {
     public Map<Character, String> getCodesFromFile(String nameOfTxtFileWithCodes){
         try {
             File myObj = new File("./resources/trees/" + nameOfTxtFileWithCodes + ".txt");
-            Scanner myReader = new Scanner(myObj);
+            Scanner myReader = new Scanner(myObj, StandardCharsets.UTF_8);
             while (myReader.hasNextLine()) {
                 String data = myReader.nextLine();
                 Map.Entry<Character, String> entry = getEntryFromALine(data);
-                codes.put(entry.getKey(), entry.getValue());
+                // lines that could not be parsed were already reported
+                if (entry != null) {
+                    codes.put(entry.getKey(), entry.getValue());
+                }
             }
             myReader.close();
-        } catch (FileNotFoundException e) {
+            encoder = null;
+            decoder = null;
+            canonical = null;
+        } catch (IOException e) {
             System.out.println("File with codes not found.");
         }
         return null;
     }
 
+    /**
+     * Creates a compressor for a tree in the trees directory, reporting problems with exceptions
+     * instead of printing them. The tree is compiled once and shared (see [CodeTableRegistry]).
+     * @param treeName name of the tree file in trees directory (without .txt or .huft)
+     * @return the compressor
+     * @throws TreeNotFoundException if there is no such tree
+     * @throws CorruptedDataException if the tree file is not well formatted
+     * @throws IOException if reading the tree fails
+     */
+    public static Compressor load(String treeName) throws IOException {
+        return new Compressor(CodeTableRegistry.getDefault().get(treeName));
+    }
+
+    /**
+     * Creates a compressor for a tree file anywhere, reporting problems with exceptions
+     * instead of printing them.
+     * @param treeFile txt or binary tree file (see [TreeFile])
+     * @return the compressor
+     * @throws TreeNotFoundException if there is no such file
+     * @throws CorruptedDataException if the tree file is not well formatted
+     * @throws IOException if reading the tree fails
+     */
+    public static Compressor load(Path treeFile) throws IOException {
+        return new Compressor(CodeTable.load(treeFile));
+    }
+
+    /**
+     * Parses a tree file into a new map of characters and their codes.
+     * @param treeFile txt file with codes saved by [HuffmanTree.saveTreeCodes]
+     * @return a map containing a characters as a keys and its corresponding encoding as values
+     * @throws TreeNotFoundException if there is no such file
+     * @throws CorruptedDataException if a line can not be parsed
+     * @throws IOException if reading the file fails
+     */
+    static Map<Character, String> readTreeFile(Path treeFile) throws IOException {
+        if (!Files.isRegularFile(treeFile)) {
+            throw new TreeNotFoundException(treeFile.toString());
+        }
+        Map<Character, String> codes = new HashMap<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(treeFile, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            try {
+                Map.Entry<Character, String> entry = parseLine(line);
+                codes.put(entry.getKey(), entry.getValue());
+            } catch (IllegalArgumentException e) {
+                throw new CorruptedDataException("Line " + lineNumber + " of " + treeFile + ": " + e.getMessage());
+            }
+        }
+        return codes;
+    }
+
     /**
      * Gets the information from a line of file containing encoding generated by the [HuffmanTree.java] class
      * puts the information in a form of a hash map where key is the encoded char and value is the code
      * @param line A line from file with huffman encoding
      * @return A hash map where key is the encoded char and value is the code
      */
-    private Map.Entry<Character, String> getEntryFromALine(String line){
+    private static Map.Entry<Character, String> getEntryFromALine(String line){
         try {
-            String[] parts = line.split(" : ");
-            String left = parts[0].trim().replaceAll("\"", "");
-            Character c;
-            if (left.trim().equals("")){
-                c = '\"';
-            } else if (left.trim().equals("new line")){
-                c = '\n';
-            } else if (left.trim().equals("space")){
-                c = ' ';
-            } else if (left.trim().equals("tab")){
-                c = '\t';
-            } else if (left.trim().equals("carriage return")){
-                c = '\r';
-            } else if (left.trim().equals("formfeed")){
-                c = '\f';
-            } else if (left.length() == 1){
-                c = left.charAt(0);
-            }else {
-                System.out.printf("Element %s is not a recognisable char!\n", left);
-                return null;
+            return parseLine(line);
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage().startsWith("Element")) {
+                System.out.println(e.getMessage());
+            } else {
+                System.out.println("File not well formatted, " +
+                        "compression/decompression impossible since codes could not be fetched.");
             }
-            String code = parts[1].trim().replaceAll("\"", "");
-            return new java.util.AbstractMap.SimpleEntry<Character,String>(c, code);
-
-
-        }catch (Exception e){
-            System.out.println("File not well formatted, " +
-                    "compression/decompression impossible since codes could not be fetched.");
         }
         return null;
     }
 
     /**
-     * Saves a compressed version of a given text as a .bin file after checking if it already exists.
-     * @param text text to compress using the specified map
-     * @param nameOfFile name of the file to be saved in ./resources/compressed_texts/ without the extension
+     * Parses a line of a tree file.
+     * @param line A line from file with huffman encoding
+     * @return an entry where key is the encoded char and value is the code
+     * @throws IllegalArgumentException if the line is not well formatted
      */
-    public void compressText(String text, String nameOfFile){
-        StringBuilder stringBuilder = new StringBuilder("");
-
-        // convert text to 0s and 1s
-        for (int i = 0; i < text.length(); i++) {
-            Character c = text.charAt(i);
-            if (codes.containsKey(c)){
-                stringBuilder.append(codes.get(c));
-            }
+    private static Map.Entry<Character, String> parseLine(String line) {
+        String[] parts = line.split(" : ");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("File not well formatted, \" : \" is missing.");
         }
-        String textInCode = stringBuilder.toString();
-        // get byte array
-        byte[] bytes = getBinary(textInCode);
-        boolean write = true;
-        // checks if a file like that already exists and ask if it should be overwritten
-        if (new File("./resources/compressed_texts/" + nameOfFile + ".bin").exists()){
-            boolean rightResponse = false;
-            Scanner sc = new Scanner(System.in);
-            while (!rightResponse){
-                System.out.println("A file " + nameOfFile + ".bin already exists.\n" +
-                        "Do you wish to overwrite it? (y/n)");
-                String yn = sc.next();
-                if (yn.trim().toLowerCase().equals("y")){
-                    rightResponse = true;
-                    //write stays true
-                }else if (yn.trim().toLowerCase().equals("n")){
-                    rightResponse = true;
-                    write = false;
-                    System.out.println("Not overwriting.");
-                }
-            }
+        String left = parts[0].trim().replaceAll("\"", "");
+        Character c;
+        if (left.trim().equals("")){
+            c = '\"';
+        } else if (left.trim().equals("escape")){
+            c = EscapeCodes.ESCAPE;
+        } else if (left.trim().equals("new line")){
+            c = '\n';
+        } else if (left.trim().equals("space")){
+            c = ' ';
+        } else if (left.trim().equals("tab")){
+            c = '\t';
+        } else if (left.trim().equals("carriage return")){
+            c = '\r';
+        } else if (left.trim().equals("formfeed")){
+            c = '\f';
+        } else if (left.length() == 1){
+            c = left.charAt(0);
+        }else {
+            throw new IllegalArgumentException(String.format("Element %s is not a recognisable char!", left));
         }
-        if (write){
-            // save byte array to file
-            try {
-                OutputStream outputStream = new FileOutputStream("./resources/compressed_texts/" + nameOfFile + ".bin");
-                outputStream.write(bytes);
+        String code = parts[1].trim().replaceAll("\"", "");
+        return new java.util.AbstractMap.SimpleEntry<Character,String>(c, code);
+    }
 
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    /**
+     * @return name of the tree the codes come from, null if they were given as a map
+     */
+    public String getTreeName() {
+        return treeName;
+    }
+
+    /**
+     * @return encoder using this compressor's codes
+     */
+    public PackedEncoder getEncoder() {
+        if (encoder == null) {
+            encoder = new PackedEncoder(codes);
         }
+        return encoder;
     }
 
     /**
-     * Gets a byte representation of an encoded string of 0s and 1s.
-     * @param s encoded string (only containing 0s and 1
-     * @return a byte array containing converted bytes
+     * @return decoder using this compressor's codes
      */
-    private byte[] getBinary(String s) {
-        StringBuilder sBuilder = new StringBuilder(s);
-        while (sBuilder.length() % 8 != 0) {
-            sBuilder.append('0');
+    public TableDecoder getDecoder() {
+        if (decoder == null) {
+            decoder = new TableDecoder(codes);
         }
-        s = sBuilder.toString();
+        return decoder;
+    }
 
-        byte[] data = new byte[s.length() / 8];
+    /**
+     * Compresses a stream of UTF-8 text into a streamed container (see [HuffmanOutputStream]),
+     * keeping only small buffers in memory.
+     * @param in stream with the text (is not closed)
+     * @param out stream the container is written to (is closed)
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void compress(InputStream in, OutputStream out) throws IOException {
+        try (HuffmanOutputStream huffmanOut = new HuffmanOutputStream(out, this)) {
+            in.transferTo(huffmanOut);
+        }
+    }
 
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (c == '1') {
-                data[i >> 3] |= 0x80 >> (i & 0x7);
-            }
+    /**
+     * Decompresses a streamed container (see [HuffmanInputStream]) into UTF-8 text,
+     * keeping only small buffers in memory.
+     * @param in stream with the container (is closed)
+     * @param out stream the text is written to (is not closed)
+     * @throws CorruptedDataException if the container is corrupted or truncated
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void decompress(InputStream in, OutputStream out) throws IOException {
+        try (HuffmanInputStream huffmanIn = new HuffmanInputStream(in, this)) {
+            huffmanIn.transferTo(out);
         }
-        return data;
     }
 
     /**
-     * decompresses a file from ./resources/compressed_texts + subdir and saves it in ./resources/
-     * @param subdir subdirectory of resources file where the compressed file is
-     * @param compressedFileName name of the compressed file (without .bin)
-     * @param decompressedFileName name that will be given to the decompressed file (without .txt)
-     * @return a text of the decompressed file
+     * Compresses a UTF-8 text file into another file through memory-mapped input (see [MappedFileCodec]).
+     * @param input text file
+     * @param output file the streamed container is saved in (overwritten if it exists)
+     * @return size of the compressed file in bytes
+     * @throws IOException if reading or writing fails
      */
-    public String decompressAndSaveAs(String subdir, String compressedFileName, String decompressedFileName) {
-        try {
-            byte[] allBytes = Files.readAllBytes(Paths.get("./resources/compressed_texts/"+
-                    subdir + "/" + compressedFileName + ".bin"));
-            String encoded = GetString(allBytes);
+    public long compressFile(Path input, Path output) throws IOException {
+        return MappedFileCodec.compressFile(input, output, this);
+    }
 
-            boolean charFound = false;
-            StringBuilder code = new StringBuilder();
+    /**
+     * Compresses a UTF-8 text file into another file through memory-mapped input (see [MappedFileCodec]).
+     * @param input text file
+     * @param output file the streamed container is saved in
+     * @param policy what to do if the output file exists
+     * @return size of the compressed file in bytes
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public long compressFile(Path input, Path output, OverwritePolicy policy) throws IOException {
+        return MappedFileCodec.compressFile(input, output, this, StandardCharsets.UTF_8, policy);
+    }
 
-            //reverse codes map so that codes are keys and chars are values
-            Map<String, Character> reversedCodes = new HashMap<>();
-            for(Map.Entry<Character, String> entry : codes.entrySet()){
-                reversedCodes.put(entry.getValue(), entry.getKey());
-            }
+    /**
+     * Decompresses a file into a UTF-8 text file through memory-mapped input (see [MappedFileCodec]).
+     * @param input file with a streamed container
+     * @param output file the text is saved in (overwritten if it exists)
+     * @return number of decompressed chars
+     * @throws IOException if reading or writing fails
+     */
+    public long decompressFile(Path input, Path output) throws IOException {
+        return MappedFileCodec.decompressFile(input, output, this);
+    }
 
-            StringBuilder decodedText = new StringBuilder("");
-            String[] keyset = reversedCodes.keySet().toArray(new String[reversedCodes.size()]);
-            int maxKeyLength = 0;
-            for (String key :
-                    keyset) {
-                if (key.length() > maxKeyLength){
-                    maxKeyLength = key.length();
-                }
+    /**
+     * Decompresses a file into a UTF-8 text file through memory-mapped input (see [MappedFileCodec]).
+     * @param input file with a streamed container
+     * @param output file the text is saved in
+     * @param policy what to do if the output file exists
+     * @return number of decompressed chars
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public long decompressFile(Path input, Path output, OverwritePolicy policy) throws IOException {
+        return MappedFileCodec.decompressFile(input, output, this, StandardCharsets.UTF_8, policy);
+    }
+
+    /**
+     * Compresses a text in memory into a self-describing container (see [HuffmanContainer]), which holds the
+     * number of chars and a checksum, so [decompress] gives back exactly the same text.
+     * Chars that have no code are escaped if the compressor was created with escapeMissingChars,
+     * otherwise the text is rejected.
+     * @param text text to compress
+     * @return bytes of the container
+     * @throws IllegalArgumentException if a char of the text has no code and there is no escape code
+     */
+    public byte[] compress(CharSequence text) {
+        long start = Metrics.start();
+        CodeTable table = getCanonicalTable();
+        BitWriter payload = new BitWriter();
+        long symbolCount = table.getEncoder().encode(text, payload);
+        if (symbolCount != text.length()) {
+            // only chars without a code are not counted, look for the first one
+            int i = 0;
+            while (table.getEncoder().canEncode(text.charAt(i))) {
+                i++;
             }
+            throw new IllegalArgumentException(String.format(
+                    "Char U+%04X at index %d has no code, create the compressor with escapeMissingChars to keep it.",
+                    (int) text.charAt(i), i));
+        }
+        byte[] container = HuffmanContainer.write(0, symbolCount, tableSymbols, tableLengths, payload.toByteArray());
+        Metrics.compressed(treeName, start, text.length(), container.length);
+        return container;
+    }
 
+    /**
+     * Decompresses a container written by [compress] (or any other char container) in memory.
+     * @param container bytes of the container
+     * @return decompressed text
+     * @throws CorruptedDataException if the data is not a valid container
+     * @throws IOException if the container can not be decompressed into a String
+     */
+    public String decompress(byte[] container) throws IOException {
+        return decompress(ByteBuffer.wrap(container));
+    }
 
-            for (int i = 0; i < encoded.length(); i++) {
-                char bin = encoded.charAt(i);
-                code.append(bin);
-                if (reversedCodes.containsKey(code.toString())){
-                    // match for char found
-                    decodedText.append(reversedCodes.get(code.toString()));
-                    // wipe the code, start looking for next char value
-                    code = new StringBuilder();
-                }
-                // if no decoding in given tree
-                else if (code.toString().length() > maxKeyLength){
-                    decodedText.append("?");
-                }
-            }
-            decodedText.deleteCharAt(decodedText.length()-1);
-            boolean write = true;
-            // check if a file like that exists and ask for permission for overriding
-            if (new File("./resources/" + subdir + "/" + decompressedFileName + ".txt").exists()){
-                boolean rightResponse = false;
-                Scanner sc = new Scanner(System.in);
-                while (!rightResponse){
-                    System.out.println("A file " + decompressedFileName + ".txt already exists.\n" +
-                            "Do you wish to overwrite it? (y/n)");
-                    String yn = sc.next();
-                    if (yn.trim().toLowerCase().equals("y")){
-                        rightResponse = true;
-                        //write stays true
-                    }else if (yn.trim().toLowerCase().equals("n")){
-                        rightResponse = true;
-                        write = false;
-                        System.out.println("Not overwriting.");
-                    }
+    /**
+     * Decompresses a container held between the position and the limit of a buffer, e.g. of a memory-mapped file.
+     * @param container buffer with the container, its position is not changed
+     * @return decompressed text
+     * @throws CorruptedDataException if the data is not a valid container
+     * @throws IOException if the container can not be decompressed into a String
+     */
+    public String decompress(ByteBuffer container) throws IOException {
+        ByteBuffer data = container.slice();
+        int flags = data.limit() > 5 ? data.get(5) & 0xFF : 0;
+        if (flags != 0) {
+            // streamed, interleaved, word or context containers
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            if ((flags & HuffmanContainer.FLAG_STREAMED) != 0) {
+                try (HuffmanInputStream in = new HuffmanInputStream(new ByteArrayInputStream(bytes), this)) {
+                    return in.readText();
                 }
             }
-            // if can write, save file as txt
-            try {
-                File decompressed = new File("./resources/" + decompressedFileName + ".txt");
-                decompressed.createNewFile();
-                FileWriter myWriter = new FileWriter(decompressed);
-                myWriter.write(decodedText.toString());
-                myWriter.close();
-                return decodedText.toString();
-            } catch (Exception e) {
-                System.out.println("An error occurred.");
-                e.printStackTrace();
+            return HuffmanContainer.read(bytes);
+        }
+        long start = Metrics.start();
+        HuffmanContainer.Header header = HuffmanContainer.readHeader(data, 0);
+        String text = HuffmanContainer.decodeText(data, header, getContainerDecoder(header));
+        Metrics.decompressed(treeName, start, data.limit(), text.length());
+        return text;
+    }
+
+    /**
+     * @param header header of a container with a code length table
+     * @return decoder for the container's codes, the cached one if the table is this compressor's own
+     * @throws CorruptedDataException if the code lengths do not describe a prefix code
+     */
+    TableDecoder getContainerDecoder(HuffmanContainer.Header header) throws IOException {
+        getCanonicalTable();
+        return header.hasTable(tableSymbols, tableLengths) ? canonical.getDecoder() : header.newDecoder();
+    }
+
+    /**
+     * @return header of a streamed container holding this compressor's code lengths
+     */
+    byte[] newStreamedHeader() {
+        getCanonicalTable();
+        return StreamedContainer.header(tableSymbols, tableLengths);
+    }
+
+    /**
+     * @return this compressor's code lengths with canonical codes, as containers hold them
+     */
+    CodeTable getCanonicalTable() {
+        if (canonical == null) {
+            Character[] chars = codes.keySet().toArray(new Character[0]);
+            Arrays.sort(chars);
+            int[] symbols = new int[chars.length];
+            int[] lengths = new int[chars.length];
+            for (int i = 0; i < chars.length; i++) {
+                symbols[i] = chars[i];
+                lengths[i] = codes.get(chars[i]).length();
             }
-        } catch (IOException ex) {
-            ex.printStackTrace();
+            tableSymbols = symbols;
+            tableLengths = lengths;
+            canonical = new CodeTable(treeName, symbols, CanonicalCodes.assign(symbols, lengths), lengths);
         }
-        return null;
+        return canonical;
+    }
+
+    /**
+     * Compresses a text into the legacy .bin format: the codes alone, with the last byte padded with 0s.
+     * The format does not record the length of the text, see [decompressLegacyBin];
+     * use [compress] where the exact text has to come back.
+     * @param text text to compress
+     * @return compressed bytes, the same as [compressText] saves
+     */
+    public byte[] compressLegacyBin(CharSequence text) {
+        long start = Metrics.start();
+        byte[] compressed = getEncoder().encode(text);
+        Metrics.compressed(treeName, start, text.length(), compressed.length);
+        return compressed;
+    }
+
+    /**
+     * Decompresses bytes in the legacy .bin format (see [compressLegacyBin]). The padding can not be told apart
+     * from codes, so the last decoded char is taken for the padding and dropped: if the padding holds no code,
+     * the last char of the text is lost.
+     * @param compressed compressed bytes, e.g. of a .bin file in resources/compressed_texts
+     * @return decompressed text
+     */
+    public String decompressLegacyBin(byte[] compressed) {
+        long start = Metrics.start();
+        String decoded = getDecoder().decode(compressed);
+        String text = decoded.isEmpty() ? decoded : decoded.substring(0, decoded.length() - 1);
+        Metrics.decompressed(treeName, start, compressed.length, text.length());
+        return text;
+    }
+
+    /**
+     * Compresses a text into a self-describing container (see [HuffmanContainer]),
+     * which can be decompressed without this compressor's tree. The same as [compress].
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public byte[] compressToContainer(String text) {
+        return compress(text);
+    }
+
+    /**
+     * Compresses a text into a container with [HuffmanContainer.DEFAULT_STREAMS] interleaved streams, which
+     * takes a few bytes more than [compressToContainer] but is decompressed faster by [decompressContainer].
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public byte[] compressInterleaved(String text) {
+        return compressInterleaved(text, HuffmanContainer.DEFAULT_STREAMS);
+    }
+
+    /**
+     * Compresses a text into a container whose chars are spread round-robin over several streams
+     * (see [HuffmanContainer.writeInterleaved]).
+     * @param text text to compress
+     * @param streams number of streams (1 - 255)
+     * @return bytes of the container
+     */
+    public byte[] compressInterleaved(String text, int streams) {
+        long start = Metrics.start();
+        byte[] container = HuffmanContainer.writeInterleaved(codes, text, streams);
+        Metrics.compressed(treeName, start, text.length(), container.length);
+        return container;
+    }
+
+    /**
+     * Decompresses a container saved by [compressToContainer] or [compressInterleaved], no tree file is needed.
+     * @param container bytes of the container
+     * @return decompressed text
+     * @throws IOException if the data is not a valid container
+     */
+    public static String decompressContainer(byte[] container) throws IOException {
+        return HuffmanContainer.read(container);
+    }
+
+    /**
+     * Compresses a text into independently decodable blocks of 64 Ki chars with an index
+     * (see [BlockedContainer]), so that it can be decompressed in parallel or in parts.
+     * @param text text to compress
+     * @return bytes of the blocked container
+     */
+    public byte[] compressBlocked(String text) {
+        return BlockedContainer.write(codes, text, BlockedContainer.DEFAULT_BLOCK_LENGTH);
+    }
+
+    /**
+     * Saves a compressed version of a given text as a .bin file after checking if it already exists.
+     * @param text text to compress using the specified map
+     * @param nameOfFile name of the file to be saved in ./resources/compressed_texts/ without the extension
+     * @deprecated asks on System.in before overwriting, use [compress] or [compressFile] with
+     * an [OverwritePolicy] instead, or [HuffmanCli] for the interactive behaviour
+     */
+    @Deprecated
+    public void compressText(String text, String nameOfFile){
+        new HuffmanCli().compressText(this, text, nameOfFile);
+    }
+
+    /**
+     * decompresses a file from ./resources/compressed_texts + subdir and saves it in ./resources/
+     * @param subdir subdirectory of resources file where the compressed file is
+     * @param compressedFileName name of the compressed file (without .bin)
+     * @param decompressedFileName name that will be given to the decompressed file (without .txt)
+     * @return a text of the decompressed file
+     * @deprecated asks on System.in before overwriting, use [decompress] or [decompressFile] with
+     * an [OverwritePolicy] instead, or [HuffmanCli] for the interactive behaviour
+     */
+    @Deprecated
+    public String decompressAndSaveAs(String subdir, String compressedFileName, String decompressedFileName) {
+        return new HuffmanCli().decompressAndSaveAs(this, subdir, compressedFileName, decompressedFileName);
     }
 
     /**
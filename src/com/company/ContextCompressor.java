@@ -0,0 +1,314 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A class compressing text with an order-1 context model: every char is encoded with a code table chosen by
+ * the char before it.
+ *
+ * After a 'q' a 'u' is almost certain and gets a one-bit code, while a zero-order tree has to spend the same
+ * code on it everywhere. The tables are canonical huffman codes built for the text, and are saved in the
+ * container as code length tables (see [HuffmanContainer]). A preceding char only gets a table of its own if
+ * the bits it saves pay for its table; all other chars (and the first char of the text) share a fallback
+ * table, so short or unusual texts are never much larger than with a single tree.
+ * <p>
+ * Container model: varint number of distinct chars and their delta-coded values, varint number of context
+ * tables, for each of them the varint index of its preceding char and a length table over char indexes,
+ * then the length table of the fallback table. The payload follows.
+ */
+public class ContextCompressor implements TextCodec {
+    // preceding chars that are considered for a table of their own, and a bound on the count arrays
+    private static final int MAX_CONTEXTS = 256;
+    private static final int MAX_COUNTS = 1 << 22;
+    // rough size of one length table entry (varint delta and length byte), in bits
+    private static final int TABLE_ENTRY_BITS = 2 * Byte.SIZE;
+
+    /**
+     * Compresses a text into a container.
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public byte[] compress(CharSequence text) {
+        int length = text.length();
+        // chars that occur, sorted, and the index of every char among them
+        int[] index = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(index, -1);
+        long[] counts = new long[Character.MAX_VALUE + 1];
+        for (int i = 0; i < length; i++) {
+            counts[text.charAt(i)]++;
+        }
+        int n = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (counts[c] != 0) {
+                n++;
+            }
+        }
+        if (n > Character.MAX_VALUE) {
+            // the last index would be taken for the escape by the decoder
+            throw new IllegalArgumentException("Texts using every char are not supported.");
+        }
+        char[] alphabet = new char[n];
+        long[] orderZero = new long[n];
+        for (int c = 0, i = 0; c <= Character.MAX_VALUE; c++) {
+            if (counts[c] != 0) {
+                alphabet[i] = (char) c;
+                orderZero[i] = counts[c];
+                index[c] = i++;
+            }
+        }
+
+        // the most frequent chars are the candidates for a table of their own
+        int candidates = Math.min(n, Math.min(MAX_CONTEXTS, MAX_COUNTS / Math.max(1, n)));
+        Integer[] byCount = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            byCount[i] = i;
+        }
+        Arrays.sort(byCount, (a, b) -> Long.compare(orderZero[b], orderZero[a]));
+        int[] slotOf = new int[n];
+        Arrays.fill(slotOf, -1);
+        for (int slot = 0; slot < candidates; slot++) {
+            slotOf[byCount[slot]] = slot;
+        }
+        long[] successors = new long[candidates * n];
+        long[] fallback = new long[n];
+        int previous = -1;
+        for (int i = 0; i < length; i++) {
+            int symbol = index[text.charAt(i)];
+            if (previous >= 0 && slotOf[previous] >= 0) {
+                successors[slotOf[previous] * n + symbol]++;
+            } else {
+                fallback[symbol]++;
+            }
+            previous = symbol;
+        }
+
+        // keep the tables that save more than they cost, compared to a single zero-order tree
+        int[] zeroLengths = LengthLimitedCodes.huffmanLengths(orderZero, TableDecoder.MAX_CODE_LENGTH);
+        int[] tableOf = new int[n];
+        int[] contexts = new int[candidates];
+        int[][] tableSymbols = new int[candidates + 1][];
+        int[][] tableLengths = new int[candidates + 1][];
+        int tables = 0;
+        for (int slot = 0; slot < candidates; slot++) {
+            int[] symbols = nonZero(successors, slot * n, n);
+            long[] frequencies = new long[symbols.length];
+            long zeroBits = 0;
+            for (int i = 0; i < symbols.length; i++) {
+                frequencies[i] = successors[slot * n + symbols[i]];
+                zeroBits += frequencies[i] * zeroLengths[symbols[i]];
+            }
+            int[] lengths = LengthLimitedCodes.huffmanLengths(frequencies, TableDecoder.MAX_CODE_LENGTH);
+            long ownBits = LengthLimitedCodes.encodedBits(frequencies, lengths)
+                    + (long) (symbols.length + 2) * TABLE_ENTRY_BITS;
+            int context = byCount[slot];
+            if (symbols.length > 0 && ownBits < zeroBits) {
+                contexts[tables] = context;
+                tableSymbols[tables] = symbols;
+                tableLengths[tables] = lengths;
+                tableOf[context] = tables++;
+            } else {
+                tableOf[context] = -1;
+                for (int symbol : symbols) {
+                    fallback[symbol] += successors[slot * n + symbol];
+                }
+            }
+        }
+        int[] fallbackSymbols = nonZero(fallback, 0, n);
+        long[] fallbackFrequencies = new long[fallbackSymbols.length];
+        for (int i = 0; i < fallbackSymbols.length; i++) {
+            fallbackFrequencies[i] = fallback[fallbackSymbols[i]];
+        }
+        tableSymbols[tables] = fallbackSymbols;
+        tableLengths[tables] = LengthLimitedCodes.huffmanLengths(fallbackFrequencies, TableDecoder.MAX_CODE_LENGTH);
+        for (int symbol = 0; symbol < n; symbol++) {
+            if (slotOf[symbol] < 0 || tableOf[symbol] < 0) {
+                tableOf[symbol] = tables;
+            }
+        }
+
+        // codes of every table, indexed by table * n + symbol
+        int[] codeBits = new int[(tables + 1) * n];
+        byte[] codeLengths = new byte[(tables + 1) * n];
+        for (int table = 0; table <= tables; table++) {
+            int[] codes = CanonicalCodes.assign(tableSymbols[table], tableLengths[table]);
+            for (int i = 0; i < codes.length; i++) {
+                codeBits[table * n + tableSymbols[table][i]] = codes[i];
+                codeLengths[table * n + tableSymbols[table][i]] = (byte) tableLengths[table][i];
+            }
+        }
+        BitWriter payload = new BitWriter();
+        int table = tables;
+        for (int i = 0; i < length; i++) {
+            int symbol = index[text.charAt(i)];
+            int code = table * n + symbol;
+            payload.write(codeBits[code], codeLengths[code]);
+            table = tableOf[symbol];
+        }
+
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(model);
+            HuffmanContainer.writeVarInt(out, n);
+            int previousChar = -1;
+            for (char c : alphabet) {
+                HuffmanContainer.writeVarInt(out, c - previousChar - 1);
+                previousChar = c;
+            }
+            HuffmanContainer.writeVarInt(out, tables);
+            for (int i = 0; i < tables; i++) {
+                HuffmanContainer.writeVarInt(out, contexts[i]);
+                HuffmanContainer.writeLengthTable(out, tableSymbols[i], tableLengths[i]);
+            }
+            HuffmanContainer.writeLengthTable(out, tableSymbols[tables], tableLengths[tables]);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return HuffmanContainer.writeWithModel(HuffmanContainer.FLAG_CONTEXT, length, model.toByteArray(),
+                payload.toByteArray());
+    }
+
+    /**
+     * Decompresses a container written by [compress].
+     * @param container bytes of the container
+     * @return decompressed text
+     * @throws CorruptedDataException if the data is not a valid container
+     * @throws IOException if the container holds something else
+     */
+    public String decompress(byte[] container) throws IOException {
+        HuffmanContainer.Header header = HuffmanContainer.readHeader(ByteBuffer.wrap(container),
+                HuffmanContainer.FLAG_CONTEXT);
+        if (header.symbolCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Container holds too many chars to be decompressed into a String.");
+        }
+        ByteBuffer in = ByteBuffer.wrap(container, (int) header.payloadStart,
+                (int) (header.payloadEnd - header.payloadStart));
+        char[] alphabet;
+        int[] tableOf;
+        TableDecoder[] decoders;
+        try {
+            int n = HuffmanContainer.readVarInt(in);
+            if (n < 0 || n > Character.MAX_VALUE || n > in.remaining()) {
+                throw new CorruptedDataException("Alphabet is corrupted.");
+            }
+            alphabet = new char[n];
+            int previousChar = -1;
+            for (int i = 0; i < n; i++) {
+                int c = previousChar + 1 + HuffmanContainer.readVarInt(in);
+                if (c <= previousChar || c > Character.MAX_VALUE) {
+                    throw new CorruptedDataException("Alphabet is corrupted.");
+                }
+                alphabet[i] = (char) c;
+                previousChar = c;
+            }
+            int tables = HuffmanContainer.readVarInt(in);
+            if (tables < 0 || tables > n) {
+                throw new CorruptedDataException("Context tables are corrupted.");
+            }
+            tableOf = new int[n];
+            Arrays.fill(tableOf, tables);
+            decoders = new TableDecoder[tables + 1];
+            for (int table = 0; table <= tables; table++) {
+                if (table < tables) {
+                    int context = HuffmanContainer.readVarInt(in);
+                    if (context < 0 || context >= n) {
+                        throw new CorruptedDataException("Context tables are corrupted.");
+                    }
+                    tableOf[context] = table;
+                }
+                int[][] lengthTable = HuffmanContainer.readLengthTable(in);
+                decoders[table] = newDecoder(lengthTable[0], lengthTable[1], n);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new CorruptedDataException("Context tables are corrupted.");
+        }
+
+        BitReader reader = new BitReader(container, (long) in.position() * Byte.SIZE,
+                header.payloadEnd * Byte.SIZE);
+        char[] text = new char[(int) header.symbolCount];
+        int table = decoders.length - 1;
+        for (int i = 0; i < text.length; i++) {
+            int symbol = decoders[table].decodeOne(reader);
+            if (symbol < 0) {
+                throw new CorruptedDataException("Container is truncated: " + i + " of " + text.length
+                        + " chars decoded.");
+            }
+            if (symbol >= alphabet.length) {
+                throw new CorruptedDataException("Code of an unknown char, the data is corrupted.");
+            }
+            text[i] = alphabet[symbol];
+            table = tableOf[symbol];
+        }
+        return new String(text);
+    }
+
+    /**
+     * Compresses a stream of UTF-8 text. The tables are built for the whole text, so it is read into memory
+     * before anything is written.
+     * @param in stream with the text (is not closed)
+     * @param out stream the container is written to (is closed)
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void compress(InputStream in, OutputStream out) throws IOException {
+        try (OutputStream closedOut = out) {
+            closedOut.write(compress(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Decompresses a stream with a container into UTF-8 text.
+     * @param in stream with the container (is closed)
+     * @param out stream the text is written to (is not closed)
+     * @throws IOException if the data is corrupted or reading or writing fails
+     */
+    @Override
+    public void decompress(InputStream in, OutputStream out) throws IOException {
+        byte[] container;
+        try (InputStream closedIn = in) {
+            container = closedIn.readAllBytes();
+        }
+        out.write(decompress(container).getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * @return indexes of the non-zero counts among count[from .. from + n)
+     */
+    private static int[] nonZero(long[] counts, int from, int n) {
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (counts[from + i] != 0) {
+                size++;
+            }
+        }
+        int[] symbols = new int[size];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (counts[from + i] != 0) {
+                symbols[k++] = i;
+            }
+        }
+        return symbols;
+    }
+
+    private static TableDecoder newDecoder(int[] symbols, int[] lengths, int n) throws CorruptedDataException {
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i] >= n || lengths[i] < 1 || lengths[i] > TableDecoder.MAX_CODE_LENGTH) {
+                throw new CorruptedDataException("Context tables are corrupted.");
+            }
+        }
+        try {
+            return new TableDecoder(symbols, CanonicalCodes.assign(symbols, lengths), lengths);
+        } catch (IllegalArgumentException e) {
+            throw new CorruptedDataException("Code length table is corrupted: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.company;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when compressed data or a tree file can not have been written by this library,
+ * e.g. because it is truncated, its checksum does not match or it has an unknown format.
+ */
+public class CorruptedDataException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message description of what is wrong with the data
+     */
+    public CorruptedDataException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param message description of what is wrong with the data
+     * @param cause exception that revealed the problem
+     */
+    public CorruptedDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,69 @@
+package com.company;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class adding an escape code to huffman codes, so that text with characters missing from a tree
+ * can still be compressed without losing them.
+ *
+ * The escape code is stored under the noncharacter [ESCAPE] (U+FFFF). A character without its own code
+ * is encoded as the escape code followed by the 16 bits of the character ([PackedEncoder] and [TableDecoder]
+ * switch to this mode when the codes contain the escape). U+FFFF itself is always sent as a literal.
+ */
+public class EscapeCodes {
+    /**
+     * Key of the escape code in maps of codes
+     */
+    public static final char ESCAPE = '\uFFFF';
+    /**
+     * Number of bits of a literal character following the escape code
+     */
+    public static final int LITERAL_BITS = 16;
+
+    private EscapeCodes() {
+    }
+
+    /**
+     * Adds an escape code to codes of an already built tree (e.g. a pretrained tree loaded by [Compressor]).
+     * The leaf with the longest code is split in two: its character gets the code followed by 0 and
+     * the escape gets the code followed by 1, so the codes stay prefix free and only the rarest character
+     * gets one bit longer.
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @return a new map with the escape code (a copy of the codes if they already have one)
+     */
+    public static Map<Character, String> addEscape(Map<Character, String> codes) {
+        Map<Character, String> escaped = new HashMap<>(codes);
+        if (hasEscape(codes)) {
+            return escaped;
+        }
+        if (codes.isEmpty()) {
+            escaped.put(ESCAPE, "0");
+            return escaped;
+        }
+        Character longest = null;
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            String code = entry.getValue();
+            if (longest == null || code.length() > codes.get(longest).length()
+                    || (code.length() == codes.get(longest).length() && code.compareTo(codes.get(longest)) > 0)) {
+                longest = entry.getKey();
+            }
+        }
+        String code = codes.get(longest);
+        if (code.length() >= TableDecoder.MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("The longest code has " + code.length()
+                    + " bits, an escape code would be too long.");
+        }
+        escaped.put(longest, code + "0");
+        escaped.put(ESCAPE, code + "1");
+        return escaped;
+    }
+
+    /**
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @return true if the codes contain an escape code
+     */
+    public static boolean hasEscape(Map<Character, String> codes) {
+        return codes.containsKey(ESCAPE);
+    }
+}
@@ -0,0 +1,194 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A class counting occurrences of symbols in primitive arrays, without boxing.
+ *
+ * Chars are counted in a table of 65536 counts and bytes in a table of 256 counts.
+ * The symbols that occurred can then be taken sorted from the least to the most frequent,
+ * which is the order [HuffmanTree] builds its tree in.
+ */
+public class FrequencyTable {
+    public static final int CHAR_ALPHABET = Character.MAX_VALUE + 1;
+    public static final int BYTE_ALPHABET = 256;
+    private static final int SYMBOL_BITS = 17;
+
+    private final long[] counts;
+    // filled on first use
+    private int[] sortedSymbols;
+    private long[] sortedFrequencies;
+
+    /**
+     * Creates an empty table.
+     * @param alphabetSize number of possible symbols ([CHAR_ALPHABET] or [BYTE_ALPHABET])
+     */
+    public FrequencyTable(int alphabetSize) {
+        this.counts = new long[alphabetSize];
+    }
+
+    /**
+     * Counts the chars of a text.
+     * @param text text to analyze
+     * @return table of char counts
+     */
+    public static FrequencyTable ofChars(CharSequence text) {
+        long start = Metrics.start();
+        FrequencyTable table = new FrequencyTable(CHAR_ALPHABET);
+        table.addChars(text);
+        Metrics.stage(CompressionMetrics.Stage.HISTOGRAM, null, start);
+        return table;
+    }
+
+    /**
+     * Counts the bytes of a file, reading it in chunks.
+     * @param file file to analyze
+     * @return table of byte counts
+     * @throws IOException if the file can not be read
+     */
+    public static FrequencyTable ofBytes(Path file) throws IOException {
+        long start = Metrics.start();
+        FrequencyTable table = new FrequencyTable(BYTE_ALPHABET);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // a heap buffer, so the kernels can count its array
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                table.addBytes(buffer);
+                buffer.clear();
+            }
+        }
+        Metrics.stage(CompressionMetrics.Stage.HISTOGRAM, null, start);
+        return table;
+    }
+
+    /**
+     * Adds the chars of a text to the counts.
+     * @param text text to analyze
+     */
+    public void addChars(CharSequence text) {
+        long[] counts = this.counts;
+        if (text instanceof String) {
+            // a String is counted without copying it into an array
+            SymbolKernels.get().countChars((String) text, 0, text.length(), counts);
+        } else {
+            for (int i = 0; i < text.length(); i++) {
+                counts[text.charAt(i)]++;
+            }
+        }
+        sortedSymbols = null;
+    }
+
+    /**
+     * Adds a part of an array of chars to the counts.
+     * @param chars chars to analyze
+     * @param offset index of the first char
+     * @param length number of chars
+     */
+    public void addChars(char[] chars, int offset, int length) {
+        SymbolKernels.get().countChars(chars, offset, length, counts);
+        sortedSymbols = null;
+    }
+
+    /**
+     * Adds the remaining bytes of a buffer to the counts (the buffer is consumed).
+     * @param bytes bytes to analyze
+     */
+    public void addBytes(ByteBuffer bytes) {
+        long[] counts = this.counts;
+        if (bytes.hasArray()) {
+            SymbolKernels.get().countBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(),
+                    counts);
+            bytes.position(bytes.limit());
+        } else {
+            while (bytes.hasRemaining()) {
+                counts[bytes.get() & 0xFF]++;
+            }
+        }
+        sortedSymbols = null;
+    }
+
+    /**
+     * Adds the counts of another table (e.g. counted on another part of the input).
+     * @param other table with the same alphabet
+     */
+    public void addAll(FrequencyTable other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        sortedSymbols = null;
+    }
+
+    /**
+     * @param symbol a symbol (char or byte value)
+     * @return number of its occurrences
+     */
+    public long get(int symbol) {
+        return counts[symbol];
+    }
+
+    /**
+     * @return number of possible symbols
+     */
+    public int getAlphabetSize() {
+        return counts.length;
+    }
+
+    /**
+     * @return number of counted symbols
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return symbols that occurred, sorted from the least to the most frequent (ties by symbol)
+     */
+    public int[] getSymbols() {
+        sort();
+        return sortedSymbols.clone();
+    }
+
+    /**
+     * @return numbers of occurrences in the same order as [getSymbols]
+     */
+    public long[] getFrequencies() {
+        sort();
+        return sortedFrequencies.clone();
+    }
+
+    /**
+     * Sorts the symbols that occurred by packing each count together with its symbol into a single long.
+     */
+    private void sort() {
+        if (sortedSymbols != null) {
+            return;
+        }
+        long[] packed = new long[counts.length];
+        int n = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            if (counts[symbol] != 0) {
+                if (counts[symbol] >= 1L << (Long.SIZE - 1 - SYMBOL_BITS)) {
+                    throw new IllegalStateException("Count of symbol " + symbol + " is too large to be sorted.");
+                }
+                packed[n++] = counts[symbol] << SYMBOL_BITS | symbol;
+            }
+        }
+        Arrays.sort(packed, 0, n);
+        sortedSymbols = new int[n];
+        sortedFrequencies = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedSymbols[i] = (int) (packed[i] & ((1 << SYMBOL_BITS) - 1));
+            sortedFrequencies[i] = packed[i] >>> SYMBOL_BITS;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
+
+/**
+ * A class with the interactive, console side of the compressor: it asks before overwriting files and prints
+ * problems instead of throwing them.
+ *
+ * All the work is done by the library methods of [Compressor], which never read the console
+ * and report problems with exceptions, so they can be called from many threads at once.
+ * Usage from the command line:
+ * <pre>
+ * java com.company.HuffmanCli compress|decompress tree input output [--force]
+ * </pre>
+ */
+public class HuffmanCli {
+    private final Scanner in;
+    private final PrintStream out;
+
+    /**
+     * Creates a CLI talking to the console.
+     */
+    public HuffmanCli() {
+        this(System.in, System.out);
+    }
+
+    /**
+     * Creates a CLI reading answers from and printing messages to given streams.
+     * @param in stream the answers are read from
+     * @param out stream the questions and messages are printed to
+     */
+    public HuffmanCli(InputStream in, PrintStream out) {
+        this.in = new Scanner(in);
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new HuffmanCli().run(args));
+    }
+
+    /**
+     * Runs a command.
+     * @param args compress|decompress, name of the tree, input file, output file and optionally --force
+     * @return exit code: 0 on success, 1 if the command failed, 2 if the arguments are wrong
+     */
+    public int run(String... args) {
+        if (args.length < 4 || args.length > 5 || (args.length == 5 && !args[4].equals("--force"))
+                || !(args[0].equals("compress") || args[0].equals("decompress"))) {
+            out.println("Usage: compress|decompress <tree> <input> <output> [--force]");
+            return 2;
+        }
+        boolean compress = args[0].equals("compress");
+        Path input = Paths.get(args[2]);
+        Path output = Paths.get(args[3]);
+        OverwritePolicy policy = args.length == 5 ? OverwritePolicy.OVERWRITE : OverwritePolicy.FAIL_IF_EXISTS;
+        try {
+            Compressor compressor = Compressor.load(args[1]);
+            try {
+                process(compressor, compress, input, output, policy);
+            } catch (FileAlreadyExistsException e) {
+                if (!confirmOverwrite(output.getFileName().toString())) {
+                    return 1;
+                }
+                process(compressor, compress, input, output, OverwritePolicy.OVERWRITE);
+            }
+            return 0;
+        } catch (IOException e) {
+            out.println("An error occurred: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static void process(Compressor compressor, boolean compress, Path input, Path output,
+                                OverwritePolicy policy) throws IOException {
+        if (compress) {
+            compressor.compressFile(input, output, policy);
+        } else {
+            compressor.decompressFile(input, output, policy);
+        }
+    }
+
+    /**
+     * Asks whether an existing file should be overwritten until the answer is y or n.
+     * @param fileName name of the file shown in the question
+     * @return true if the file may be overwritten
+     */
+    public boolean confirmOverwrite(String fileName) {
+        while (true) {
+            out.println("A file " + fileName + " already exists.\n" +
+                    "Do you wish to overwrite it? (y/n)");
+            if (!in.hasNext()) {
+                // nobody to answer, keep the file
+                out.println("Not overwriting.");
+                return false;
+            }
+            String yn = in.next();
+            if (yn.trim().toLowerCase().equals("y")){
+                return true;
+            }else if (yn.trim().toLowerCase().equals("n")){
+                out.println("Not overwriting.");
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Saves a compressed version of a given text as a .bin file, asking first if it already exists.
+     * @param compressor compressor whose codes are used
+     * @param text text to compress
+     * @param nameOfFile name of the file to be saved in ./resources/compressed_texts/ without the extension
+     */
+    public void compressText(Compressor compressor, String text, String nameOfFile) {
+        byte[] bytes = compressor.compressLegacyBin(text);
+        Path file = Paths.get("./resources/compressed_texts/" + nameOfFile + ".bin");
+        if (Files.exists(file) && !confirmOverwrite(nameOfFile + ".bin")) {
+            return;
+        }
+        try {
+            Files.write(file, bytes);
+        } catch (IOException e) {
+            out.println("An error occurred: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses a file from ./resources/compressed_texts + subdir and saves it in ./resources/,
+     * asking first if a file of that name exists in ./resources + subdir.
+     * @param compressor compressor whose codes were used for compressing
+     * @param subdir subdirectory of resources file where the compressed file is
+     * @param compressedFileName name of the compressed file (without .bin)
+     * @param decompressedFileName name that will be given to the decompressed file (without .txt)
+     * @return a text of the decompressed file, or null if it could not be read
+     */
+    public String decompressAndSaveAs(Compressor compressor, String subdir, String compressedFileName,
+                                      String decompressedFileName) {
+        String text;
+        try {
+            text = compressor.decompressLegacyBin(Files.readAllBytes(Paths.get("./resources/compressed_texts/" +
+                    subdir + "/" + compressedFileName + ".bin")));
+        } catch (IOException e) {
+            out.println("An error occurred: " + e.getMessage());
+            return null;
+        }
+        if (Files.exists(Paths.get("./resources/" + subdir + "/" + decompressedFileName + ".txt"))
+                && !confirmOverwrite(decompressedFileName + ".txt")) {
+            return text;
+        }
+        try {
+            Files.write(Paths.get("./resources/" + decompressedFileName + ".txt"),
+                    text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            out.println("An error occurred: " + e.getMessage());
+        }
+        return text;
+    }
+}
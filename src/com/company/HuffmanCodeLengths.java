@@ -0,0 +1,99 @@
+package com.company;
+
+import java.util.PriorityQueue;
+
+/**
+ * A class computing huffman code lengths on primitive arrays, without creating [Node] objects.
+ *
+ * Nodes are indexes: leaves are 0..n-1 and merged nodes are numbered n, n+1, ... in the order they are created,
+ * with their counts and parents kept in arrays. For frequencies sorted from the least to the most frequent
+ * the two-queue method builds the tree in linear time, other frequencies are merged with a priority queue.
+ */
+public class HuffmanCodeLengths {
+    private HuffmanCodeLengths() {
+    }
+
+    /**
+     * Computes the length of every symbol's huffman code.
+     * @param frequencies number of occurrences of each symbol
+     * @return code length of each symbol, in the same order as the frequencies (a single symbol gets 1)
+     */
+    public static int[] compute(long[] frequencies) {
+        int n = frequencies.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        if (n == 1) {
+            return new int[]{1};
+        }
+        long[] counts = new long[2 * n - 1];
+        int[] parents = new int[2 * n - 1];
+        System.arraycopy(frequencies, 0, counts, 0, n);
+        if (isSorted(frequencies)) {
+            mergeWithTwoQueues(counts, parents, n);
+        } else {
+            mergeWithPriorityQueue(counts, parents, n);
+        }
+        // merged nodes are created after their children, so depths can be set from the root down
+        int[] depths = new int[2 * n - 1];
+        for (int node = 2 * n - 3; node >= 0; node--) {
+            depths[node] = depths[parents[node]] + 1;
+        }
+        int[] lengths = new int[n];
+        System.arraycopy(depths, 0, lengths, 0, n);
+        return lengths;
+    }
+
+    /**
+     * Linear merging: the leaves are already sorted and merged nodes are created with growing counts,
+     * so the two least frequent nodes are always at the front of one of the two queues.
+     */
+    private static void mergeWithTwoQueues(long[] counts, int[] parents, int n) {
+        int nextLeaf = 0;
+        int nextMerged = n;
+        for (int created = n; created < 2 * n - 1; created++) {
+            int left;
+            if (nextLeaf < n && (nextMerged >= created || counts[nextLeaf] <= counts[nextMerged])) {
+                left = nextLeaf++;
+            } else {
+                left = nextMerged++;
+            }
+            int right;
+            if (nextLeaf < n && (nextMerged >= created || counts[nextLeaf] <= counts[nextMerged])) {
+                right = nextLeaf++;
+            } else {
+                right = nextMerged++;
+            }
+            counts[created] = counts[left] + counts[right];
+            parents[left] = created;
+            parents[right] = created;
+        }
+    }
+
+    private static void mergeWithPriorityQueue(long[] counts, int[] parents, int n) {
+        PriorityQueue<Integer> queue = new PriorityQueue<>(n, (a, b) -> {
+            int byCount = Long.compare(counts[a], counts[b]);
+            return byCount != 0 ? byCount : Integer.compare(a, b);
+        });
+        for (int i = 0; i < n; i++) {
+            queue.add(i);
+        }
+        for (int created = n; created < 2 * n - 1; created++) {
+            int left = queue.poll();
+            int right = queue.poll();
+            counts[created] = counts[left] + counts[right];
+            parents[left] = created;
+            parents[right] = created;
+            queue.add(created);
+        }
+    }
+
+    private static boolean isSorted(long[] frequencies) {
+        for (int i = 1; i < frequencies.length; i++) {
+            if (frequencies[i] < frequencies[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,232 @@
+package com.company;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An immutable codec for one tree, which any number of threads can use at the same time.
+ *
+ * All the tables are built once, when the codec is created, and only read afterwards. Everything a single
+ * call changes lives in an [Encoder] or [Decoder] context: a service can keep one context per worker thread
+ * (or per request, they are cheap) and reuse its buffers, while all of them share one codec.
+ * <p>
+ * Texts are compressed into containers naming the tree (see [HuffmanContainer]), which hold the number of chars
+ * and a checksum, so they come back exactly and data from another tree or corrupted data is recognised.
+ * The codes get an escape code (see [EscapeCodes]), so chars missing from the tree are not lost; with a tree
+ * from the trees directory the containers are the same as the ones [TreeSelector] writes for it.
+ */
+public final class HuffmanCodec implements TextCodec {
+    private final CodeTable table;
+
+    private HuffmanCodec(CodeTable table) {
+        this.table = table.withEscape();
+    }
+
+    /**
+     * Creates a codec for a built tree.
+     * @param name name of the tree, saved in the containers
+     * @param tree the tree
+     * @return the codec
+     */
+    public static HuffmanCodec of(String name, HuffmanTree tree) {
+        return new HuffmanCodec(new CodeTable(name, tree.getCodes()));
+    }
+
+    /**
+     * Creates a codec for compiled codes, e.g. from [CodeTableRegistry].
+     * @param table compiled codes of a tree
+     * @return the codec
+     */
+    public static HuffmanCodec of(CodeTable table) {
+        return new HuffmanCodec(table);
+    }
+
+    /**
+     * Creates a codec for a tree in the trees directory.
+     * @param treeName name of the tree file in trees directory (without .txt or .huft)
+     * @return the codec
+     * @throws TreeNotFoundException if there is no such tree
+     * @throws IOException if the tree can not be loaded
+     */
+    public static HuffmanCodec load(String treeName) throws IOException {
+        return new HuffmanCodec(CodeTableRegistry.getDefault().get(treeName));
+    }
+
+    /**
+     * Creates a codec for a tree file, named after the file (without .txt or .huft).
+     * @param treeFile txt or binary tree file (see [TreeFile])
+     * @return the codec
+     * @throws TreeNotFoundException if there is no such file
+     * @throws IOException if the tree can not be loaded
+     */
+    public static HuffmanCodec load(Path treeFile) throws IOException {
+        return new HuffmanCodec(CodeTable.load(treeFile));
+    }
+
+    /**
+     * @return name of the tree
+     */
+    public String getName() {
+        return table.getName();
+    }
+
+    /**
+     * @return compiled codes of the tree, with the escape code
+     */
+    public CodeTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return a new context for compressing, to be used by one thread at a time
+     */
+    public Encoder newEncoder() {
+        return new Encoder();
+    }
+
+    /**
+     * @return a new context for decompressing, to be used by one thread at a time
+     */
+    public Decoder newDecoder() {
+        return new Decoder();
+    }
+
+    /**
+     * Compresses a text with a fresh context; [Encoder.compress] reuses the buffers of a context instead.
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public byte[] compress(CharSequence text) {
+        return new Encoder().compress(text);
+    }
+
+    /**
+     * Decompresses a container with a fresh context; [Decoder.decompress] reuses the buffers of a context instead.
+     * Streamed containers written by [compress(InputStream, OutputStream)] are accepted too.
+     * @param container bytes of the container
+     * @return decompressed text
+     * @throws CorruptedDataException if the data is not a container of this codec's tree
+     */
+    public String decompress(byte[] container) throws IOException {
+        return new Decoder().decompress(container);
+    }
+
+    /**
+     * Compresses a stream of UTF-8 text into a streamed container naming the tree (see [HuffmanOutputStream]),
+     * keeping only small buffers in memory. [decompress] takes it from a stream or as bytes.
+     * @param in stream with the text (is not closed)
+     * @param out stream the container is written to (is closed)
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void compress(InputStream in, OutputStream out) throws IOException {
+        try (HuffmanOutputStream huffmanOut = new HuffmanOutputStream(out, table)) {
+            in.transferTo(huffmanOut);
+        }
+    }
+
+    /**
+     * Decompresses a streamed container written by [compress] into UTF-8 text,
+     * keeping only small buffers in memory.
+     * @param in stream with the container (is closed)
+     * @param out stream the text is written to (is not closed)
+     * @throws CorruptedDataException if the data is not a container of this codec's tree
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void decompress(InputStream in, OutputStream out) throws IOException {
+        try (HuffmanInputStream huffmanIn = new HuffmanInputStream(in, table)) {
+            huffmanIn.transferTo(out);
+        }
+    }
+
+    /**
+     * A context compressing texts with the codec's tree. It keeps its bit buffer between calls,
+     * so it should be used by one thread at a time.
+     */
+    public final class Encoder {
+        private final BitWriter bits = new BitWriter();
+
+        private Encoder() {
+        }
+
+        /**
+         * Compresses a text.
+         * @param text text to compress
+         * @return bytes of the container
+         */
+        public byte[] compress(CharSequence text) {
+            long start = Metrics.start();
+            bits.reset();
+            long symbolCount = table.getEncoder().encode(text, bits);
+            byte[] container = HuffmanContainer.writeWithTreeName(table.getName(), symbolCount, bits.toByteArray());
+            Metrics.compressed(table.getName(), start, symbolCount, container.length);
+            return container;
+        }
+    }
+
+    /**
+     * A context decompressing containers written with the codec's tree. It keeps its char buffer between
+     * calls, so it should be used by one thread at a time.
+     */
+    public final class Decoder {
+        private char[] chars = new char[1 << 12];
+
+        private Decoder() {
+        }
+
+        /**
+         * Decompresses a container.
+         * @param container bytes of the container
+         * @return decompressed text
+         * @throws CorruptedDataException if the data is not a container of this codec's tree
+         */
+        public String decompress(byte[] container) throws IOException {
+            return decompress(ByteBuffer.wrap(container));
+        }
+
+        /**
+         * Decompresses a container, also a streamed one, e.g. from a memory-mapped file.
+         * @param container buffer whose whole content (from 0 to its limit) is the container
+         * @return decompressed text
+         * @throws CorruptedDataException if the data is not a container of this codec's tree
+         */
+        public String decompress(ByteBuffer container) throws IOException {
+            if (container.limit() > 5 && (container.get(5) & HuffmanContainer.FLAG_STREAMED) != 0) {
+                byte[] bytes = new byte[container.limit()];
+                container.duplicate().position(0).get(bytes);
+                try (HuffmanInputStream in = new HuffmanInputStream(new ByteArrayInputStream(bytes), table)) {
+                    return in.readText();
+                }
+            }
+            long start = Metrics.start();
+            HuffmanContainer.Header header = HuffmanContainer.readHeader(container,
+                    HuffmanContainer.FLAG_TREE_NAME);
+            if (!table.getName().equals(header.treeName)) {
+                throw new CorruptedDataException("Container was written with tree " + header.treeName
+                        + ", not " + table.getName() + ".");
+            }
+            if (header.symbolCount > Integer.MAX_VALUE - 8) {
+                throw new IOException("Container holds too many chars to be decompressed into a String.");
+            }
+            int length = (int) header.symbolCount;
+            if (chars.length < length) {
+                chars = Arrays.copyOf(chars, Math.max(length, chars.length * 2));
+            }
+            BitReader reader = new BitReader(container, header.payloadStart * Byte.SIZE,
+                    header.payloadEnd * Byte.SIZE);
+            int decoded = table.getDecoder().decode(reader, chars, 0, length);
+            if (decoded != length) {
+                throw new CorruptedDataException("Container is truncated: " + decoded + " of " + length
+                        + " chars decoded.");
+            }
+            Metrics.decompressed(table.getName(), start, container.limit(), length);
+            return new String(chars, 0, length);
+        }
+    }
+}
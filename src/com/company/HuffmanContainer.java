@@ -0,0 +1,562 @@
+package com.company;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A class writing and reading self-describing compressed files.
+ *
+ * Unlike the raw .bin files, a container can be decompressed without knowing which tree was used. Layout:
+ * <pre>
+ * magic          4 bytes   "HUFC"
+ * version        1 byte
+ * flags          1 byte    0 for chars, [FLAG_BYTES] for bytes (see [ByteCompressor]),
+ *                          [FLAG_TREE_NAME] for chars encoded with a pretrained tree (see [TreeSelector]),
+ *                          [FLAG_INTERLEAVED] for chars encoded into several streams,
+ *                          [FLAG_STREAMED] for chars written in blocks
+ * symbol count   8 bytes   number of encoded chars (or bytes)
+ * table size     varint    number of symbols with a code
+ * table          per symbol: varint (symbol - previous symbol - 1), 1 byte code length; sorted by symbol
+ * payload        canonical codes of the symbols, last byte padded with 0s
+ * checksum       4 bytes   CRC32 of everything above
+ * </pre>
+ * With [FLAG_TREE_NAME] the table is replaced by the name of the tree (varint length and UTF-8 bytes),
+ * and the payload is encoded with that tree's own codes. With [FLAG_WORDS] or [FLAG_CONTEXT] the table and
+ * the payload are replaced by a model and codes only [WordCompressor] or [ContextCompressor] understand.
+ * With [FLAG_INTERLEAVED] the chars are spread round-robin over several streams (see [writeInterleaved]),
+ * and the payload starts with a jump table:
+ * <pre>
+ * stream count   1 byte
+ * stream sizes   4 bytes per stream but the last, in bytes
+ * streams        one after another, each padded with 0s to a whole byte
+ * </pre>
+ * With [FLAG_STREAMED] the symbol count and the payload are replaced by blocks, see [StreamedContainer].
+ * Numbers are big-endian, varints use 7 bits per byte with the highest bit set if more bytes follow.
+ */
+public class HuffmanContainer {
+    public static final int MAGIC = 0x48554643;
+    public static final int VERSION = 1;
+    /**
+     * Flag of containers whose symbols are raw bytes instead of chars
+     */
+    public static final int FLAG_BYTES = 1;
+    /**
+     * Flag of containers that name a pretrained tree instead of holding a code length table
+     */
+    public static final int FLAG_TREE_NAME = 2;
+    /**
+     * Flag of containers encoded with a word alphabet (see [WordCompressor])
+     */
+    public static final int FLAG_WORDS = 4;
+    /**
+     * Flag of containers encoded with one table per preceding char (see [ContextCompressor])
+     */
+    public static final int FLAG_CONTEXT = 8;
+    /**
+     * Flag of containers whose chars are encoded into several interleaved streams
+     */
+    public static final int FLAG_INTERLEAVED = 16;
+    /**
+     * Flag of containers written in blocks by [HuffmanOutputStream] (see [StreamedContainer])
+     */
+    public static final int FLAG_STREAMED = 32;
+    /**
+     * Number of streams [writeInterleaved] is usually given
+     */
+    public static final int DEFAULT_STREAMS = 4;
+    private static final int MAX_STREAMS = 255;
+    // containers whose codes are described by their compressor instead of a length table
+    private static final int MODEL_FLAGS = FLAG_WORDS | FLAG_CONTEXT;
+    private static final int MIN_SIZE = 18;
+
+    private HuffmanContainer() {
+    }
+
+    /**
+     * Compresses a text into a container, using canonical codes with the same lengths as the compressor's codes.
+     * Chars that have no code are skipped.
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public static byte[] write(Map<Character, String> codes, CharSequence text) {
+        int[] symbols = new int[codes.size()];
+        int[] lengths = new int[codes.size()];
+        int i = 0;
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            symbols[i] = entry.getKey();
+            lengths[i] = entry.getValue().length();
+            i++;
+        }
+        return write(symbols, lengths, text);
+    }
+
+    /**
+     * Compresses a text into a container with canonical codes of given lengths.
+     * @param symbols chars that have a code
+     * @param lengths length of each char's code
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public static byte[] write(int[] symbols, int[] lengths, CharSequence text) {
+        int[] codes = CanonicalCodes.assign(symbols, lengths);
+        BitWriter payload = new BitWriter();
+        long symbolCount = new PackedEncoder(symbols, codes, lengths).encode(text, payload);
+        return write(0, symbolCount, symbols, lengths, payload.toByteArray());
+    }
+
+    /**
+     * Compresses a text into a container whose chars are spread over several streams, the i-th char going to
+     * stream i % streams. The streams are decoded in lockstep by a single thread (see
+     * [TableDecoder.decodeInterleaved]), which is faster than decoding one stream, where every code can only be
+     * found once the previous one was. Uses canonical codes with the same lengths as the compressor's codes,
+     * chars that have no code are skipped.
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @param text text to compress
+     * @param streams number of streams (1 - 255), usually [DEFAULT_STREAMS]
+     * @return bytes of the container
+     */
+    public static byte[] writeInterleaved(Map<Character, String> codes, CharSequence text, int streams) {
+        if (streams < 1 || streams > MAX_STREAMS) {
+            throw new IllegalArgumentException("Number of streams must be between 1 and " + MAX_STREAMS
+                    + ", not " + streams + ".");
+        }
+        int[] symbols = new int[codes.size()];
+        int[] lengths = new int[codes.size()];
+        int i = 0;
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            symbols[i] = entry.getKey();
+            lengths[i] = entry.getValue().length();
+            i++;
+        }
+        BitWriter[] writers = new BitWriter[streams];
+        for (i = 0; i < streams; i++) {
+            writers[i] = new BitWriter();
+        }
+        int[] canonical = CanonicalCodes.assign(symbols, lengths);
+        long symbolCount = new PackedEncoder(symbols, canonical, lengths).encodeInterleaved(text, writers);
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payload);
+            byte[][] bytes = new byte[streams][];
+            out.writeByte(streams);
+            for (i = 0; i < streams; i++) {
+                bytes[i] = writers[i].toByteArray();
+                if (i < streams - 1) {
+                    out.writeInt(bytes[i].length);
+                }
+            }
+            for (byte[] stream : bytes) {
+                out.write(stream);
+            }
+            return write(FLAG_INTERLEAVED, symbolCount, symbols, lengths, payload.toByteArray());
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Puts an encoded payload into a container.
+     * @param flags flags of the container
+     * @param symbolCount number of encoded symbols
+     * @param symbols symbols that have a code
+     * @param lengths length of each symbol's code
+     * @param payload canonical codes of the symbols
+     * @return bytes of the container
+     */
+    static byte[] write(int flags, long symbolCount, int[] symbols, int[] lengths, byte[] payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeHeader(out, flags, symbolCount, symbols, lengths);
+            return seal(bytes, out, payload);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Puts a payload encoded with a pretrained tree into a container that names the tree.
+     * @param treeName name of the tree
+     * @param symbolCount number of encoded chars
+     * @param payload codes of the tree
+     * @return bytes of the container
+     */
+    static byte[] writeWithTreeName(String treeName, long symbolCount, byte[] payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(FLAG_TREE_NAME);
+            out.writeLong(symbolCount);
+            byte[] name = treeName.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, name.length);
+            out.write(name);
+            return seal(bytes, out, payload);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Puts a payload encoded with a model of its own (e.g. a word alphabet) into a container.
+     * @param flags flags of the container
+     * @param symbolCount number of encoded chars
+     * @param model whatever the compressor needs to decode the payload
+     * @param payload encoded text
+     * @return bytes of the container
+     */
+    static byte[] writeWithModel(int flags, long symbolCount, byte[] model, byte[] payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(model.length + payload.length + 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(flags);
+            out.writeLong(symbolCount);
+            out.write(model);
+            return seal(bytes, out, payload);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] seal(ByteArrayOutputStream bytes, DataOutputStream out, byte[] payload) throws IOException {
+        out.write(payload);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes everything that comes before the payload.
+     */
+    static void writeHeader(DataOutputStream out, int flags, long symbolCount, int[] symbols, int[] lengths)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(flags);
+        out.writeLong(symbolCount);
+        writeLengthTable(out, symbols, lengths);
+    }
+
+    /**
+     * Decompresses a container of chars, also one written by [WordCompressor], [ContextCompressor]
+     * or [HuffmanOutputStream]. A container naming a pretrained tree (written by [TreeSelector] or
+     * [HuffmanCodec]) is decoded with that tree from the trees directory.
+     * @param data bytes of the container
+     * @return decompressed text
+     * @throws IOException if the data is not a valid container or the tree it names can not be loaded
+     */
+    public static String read(byte[] data) throws IOException {
+        int flags = data.length > 5 ? data[5] & 0xFF : 0;
+        if (flags == FLAG_WORDS) {
+            return new WordCompressor().decompress(data);
+        } else if (flags == FLAG_CONTEXT) {
+            return new ContextCompressor().decompress(data);
+        } else if ((flags & FLAG_STREAMED) != 0) {
+            try (HuffmanInputStream in = new HuffmanInputStream(new ByteArrayInputStream(data))) {
+                return in.readText();
+            }
+        }
+        long start = Metrics.start();
+        boolean interleaved = flags == FLAG_INTERLEAVED;
+        boolean named = flags == FLAG_TREE_NAME;
+        Header header = readHeader(ByteBuffer.wrap(data), interleaved || named ? flags : 0);
+        TableDecoder decoder = named ? StreamedContainer.decoderFor(header, null, null) : header.newDecoder();
+        String text = interleaved ? decodeInterleaved(data, header, decoder) : decodeText(data, header, decoder);
+        Metrics.decompressed(header.treeName, start, data.length, text.length());
+        return text;
+    }
+
+    /**
+     * Decodes the chars of a container whose header was already read.
+     * @param data bytes of the container
+     * @param header the header
+     * @param decoder decoder for the codes the payload was encoded with
+     * @return decompressed text
+     * @throws IOException if the payload is truncated
+     */
+    static String decodeText(byte[] data, Header header, TableDecoder decoder) throws IOException {
+        return decodeText(ByteBuffer.wrap(data), header, decoder);
+    }
+
+    /**
+     * Decodes the chars of a container whose header was already read.
+     * @param data buffer whose whole content (from 0 to its limit) is the container
+     * @param header the header
+     * @param decoder decoder for the codes the payload was encoded with
+     * @return decompressed text
+     * @throws IOException if the payload is truncated
+     */
+    static String decodeText(ByteBuffer data, Header header, TableDecoder decoder) throws IOException {
+        if (header.symbolCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Container holds too many chars to be decompressed into a String.");
+        }
+        BitReader reader;
+        if (data.hasArray()) {
+            // reading the array directly is faster
+            long offset = data.arrayOffset();
+            reader = new BitReader(data.array(), (offset + header.payloadStart) * Byte.SIZE,
+                    (offset + header.payloadEnd) * Byte.SIZE);
+        } else {
+            reader = new BitReader(data, header.payloadStart * Byte.SIZE, header.payloadEnd * Byte.SIZE);
+        }
+        char[] text = new char[(int) header.symbolCount];
+        int decoded = decoder.decode(reader, text, 0, text.length);
+        if (decoded != header.symbolCount) {
+            throw new CorruptedDataException("Container is truncated: " + decoded + " of " + header.symbolCount
+                    + " chars decoded.");
+        }
+        return new String(text);
+    }
+
+    /**
+     * Decodes the chars of an interleaved container whose header was already read.
+     * @param data bytes of the container
+     * @param header the header
+     * @param decoder decoder for the codes the streams were encoded with
+     * @return decompressed text
+     * @throws IOException if the jump table is corrupted or a stream is truncated
+     */
+    static String decodeInterleaved(byte[] data, Header header, TableDecoder decoder) throws IOException {
+        if (header.symbolCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Container holds too many chars to be decompressed into a String.");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, (int) header.payloadStart,
+                (int) (header.payloadEnd - header.payloadStart));
+        long[] bitOffsets;
+        long[] bitLimits;
+        try {
+            int count = in.get() & 0xFF;
+            if (count == 0) {
+                throw new CorruptedDataException("Container has no streams.");
+            }
+            bitOffsets = new long[count];
+            bitLimits = new long[count];
+            long start = header.payloadStart + 1 + 4L * (count - 1);
+            for (int i = 0; i < count; i++) {
+                long end = i < count - 1 ? start + (in.getInt() & 0xFFFFFFFFL) : header.payloadEnd;
+                if (start > end || end > header.payloadEnd) {
+                    throw new CorruptedDataException("Jump table of the container is corrupted.");
+                }
+                bitOffsets[i] = start * Byte.SIZE;
+                bitLimits[i] = end * Byte.SIZE;
+                start = end;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new CorruptedDataException("Jump table of the container is truncated.");
+        }
+        char[] text = new char[(int) header.symbolCount];
+        int decoded = decoder.decodeInterleaved(data, bitOffsets, bitLimits, text, 0, text.length);
+        if (decoded != header.symbolCount) {
+            throw new CorruptedDataException("Container is truncated: " + decoded + " of " + header.symbolCount
+                    + " chars decoded.");
+        }
+        return new String(text);
+    }
+
+    /**
+     * Reads the codes saved in a container, so that a [Compressor] can be created without a tree file.
+     * @param data bytes of the container
+     * @return map containing characters as keys and their canonical codes as values
+     * @throws IOException if the data is not a valid container
+     */
+    public static Map<Character, String> readCodes(byte[] data) throws IOException {
+        int flags = data.length > 5 ? data[5] & 0xFF : 0;
+        Header header = readHeader(ByteBuffer.wrap(data), flags == FLAG_INTERLEAVED ? FLAG_INTERLEAVED : 0);
+        try {
+            return CanonicalCodes.toCodeMap(header.symbols, header.lengths);
+        } catch (IllegalArgumentException e) {
+            throw new CorruptedDataException("Code length table is corrupted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param data some bytes
+     * @return true if the bytes start with the container's magic number
+     */
+    public static boolean isContainer(byte[] data) {
+        return data.length >= 4 && ByteBuffer.wrap(data).getInt() == MAGIC;
+    }
+
+    /**
+     * Checks the magic number, version, flags and checksum of a container and reads everything before the payload.
+     * @param data buffer whose whole content (from 0 to its limit) is the container
+     * @param expectedFlags flags the container has to have
+     * @return the header
+     * @throws IOException if the data is not a valid container
+     */
+    static Header readHeader(ByteBuffer data, int expectedFlags) throws IOException {
+        int size = data.limit();
+        if (size < MIN_SIZE || data.getInt(0) != MAGIC) {
+            throw new CorruptedDataException("Not a huffman container.");
+        }
+        int version = data.get(4) & 0xFF;
+        if (version != VERSION) {
+            throw new CorruptedDataException("Unsupported container version " + version + ".");
+        }
+        int flags = data.get(5) & 0xFF;
+        if (flags != expectedFlags) {
+            if ((flags & FLAG_STREAMED) != 0) {
+                throw new IOException("Container is streamed, use HuffmanInputStream to decompress it.");
+            } else if ((flags & FLAG_BYTES) != 0) {
+                throw new IOException("Container holds bytes, use ByteCompressor to decompress it.");
+            } else if ((flags & FLAG_TREE_NAME) != 0) {
+                throw new IOException("Container names a pretrained tree, use HuffmanContainer.read, HuffmanCodec "
+                        + "or TreeSelector to decompress it.");
+            } else if ((flags & FLAG_WORDS) != 0) {
+                throw new IOException("Container holds words, use WordCompressor to decompress it.");
+            } else if ((flags & FLAG_CONTEXT) != 0) {
+                throw new IOException("Container holds contexts, use ContextCompressor to decompress it.");
+            }
+            throw new IOException("Container holds chars, use Compressor to decompress it.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate().position(0).limit(size - 4));
+        if ((int) crc.getValue() != data.getInt(size - 4)) {
+            throw new CorruptedDataException("Container checksum does not match, the data is corrupted.");
+        }
+        ByteBuffer in = data.duplicate().position(6).limit(size - 4);
+        Header header = new Header();
+        try {
+            header.symbolCount = in.getLong();
+        } catch (BufferUnderflowException e) {
+            throw new CorruptedDataException("Container is truncated.");
+        }
+        if ((flags & FLAG_TREE_NAME) != 0) {
+            header.treeName = readTreeName(in);
+        } else if ((flags & MODEL_FLAGS) != 0) {
+            // the compressor reads its model from the beginning of the payload
+            header.symbols = new int[0];
+            header.lengths = new int[0];
+        } else {
+            int[][] table = readLengthTable(in);
+            header.symbols = table[0];
+            header.lengths = table[1];
+        }
+        header.payloadStart = in.position();
+        header.payloadEnd = size - 4;
+        return header;
+    }
+
+    /**
+     * Everything that comes before the payload of a container.
+     */
+    static class Header {
+        long symbolCount;
+        // either the name of a pretrained tree or a table of code lengths
+        String treeName;
+        int[] symbols;
+        int[] lengths;
+        // byte indexes of the payload in the container
+        long payloadStart;
+        long payloadEnd;
+
+        /**
+         * @param symbols symbols sorted as in the table
+         * @param lengths code length of each symbol
+         * @return true if the container's table holds exactly these code lengths
+         */
+        boolean hasTable(int[] symbols, int[] lengths) {
+            return Arrays.equals(this.symbols, symbols) && Arrays.equals(this.lengths, lengths);
+        }
+
+        /**
+         * @return decoder for the canonical codes of the table
+         * @throws IOException if the code lengths do not describe a prefix code
+         */
+        TableDecoder newDecoder() throws IOException {
+            try {
+                return new TableDecoder(symbols, CanonicalCodes.assign(symbols, lengths), lengths);
+            } catch (IllegalArgumentException e) {
+                throw new CorruptedDataException("Code length table is corrupted: " + e.getMessage());
+            }
+        }
+    }
+
+    static String readTreeName(ByteBuffer in) throws IOException {
+        try {
+            int length = readVarInt(in);
+            if (length < 0 || length > in.remaining()) {
+                throw new IOException("Tree name is corrupted.");
+            }
+            byte[] name = new byte[length];
+            in.get(name);
+            return new String(name, StandardCharsets.UTF_8);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Tree name is corrupted.");
+        }
+    }
+
+    static void writeLengthTable(DataOutputStream out, int[] symbols, int[] lengths) throws IOException {
+        Integer[] order = new Integer[symbols.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(symbols[a], symbols[b]));
+        writeVarInt(out, symbols.length);
+        int previous = -1;
+        for (int i : order) {
+            writeVarInt(out, symbols[i] - previous - 1);
+            out.writeByte(lengths[i]);
+            previous = symbols[i];
+        }
+    }
+
+    /**
+     * @return two arrays: symbols and their code lengths
+     */
+    static int[][] readLengthTable(ByteBuffer in) throws IOException {
+        try {
+            int size = readVarInt(in);
+            if (size > in.remaining() / 2) {
+                throw new CorruptedDataException("Code length table is corrupted.");
+            }
+            int[] symbols = new int[size];
+            int[] lengths = new int[size];
+            int previous = -1;
+            for (int i = 0; i < size; i++) {
+                symbols[i] = previous + 1 + readVarInt(in);
+                lengths[i] = in.get() & 0xFF;
+                previous = symbols[i];
+            }
+            return new int[][]{symbols, lengths};
+        } catch (BufferUnderflowException e) {
+            throw new CorruptedDataException("Code length table is corrupted.");
+        }
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
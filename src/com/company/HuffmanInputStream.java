@@ -0,0 +1,263 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An input stream decompressing a streamed container written by [HuffmanOutputStream].
+ *
+ * The container is read from a stream or a channel block by block (see [StreamedContainer]), decoded with
+ * a [TableDecoder] and returned as text bytes (UTF-8 by default), so the memory used does not depend on
+ * the length of the text. Every block is checked before its chars are passed on, and a container that ends
+ * before its end marker is reported with a [CorruptedDataException].
+ */
+public class HuffmanInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final InputStream in;
+    private final ReadableByteChannel channel;
+    // where the decoder comes from, both null if the container has to describe its codes itself
+    private final Compressor compressor;
+    private final CodeTable table;
+    // chosen once the header is read
+    private TableDecoder decoder;
+    private final CharsetEncoder charsetEncoder;
+
+    // the header or the current block
+    private byte[] block = new byte[BUFFER_SIZE];
+    private final BitReader reader = new BitReader(block, 0, 0);
+
+    // one more for a high surrogate waiting for its pair from the next block
+    private final char[] chars = new char[StreamedContainer.MAX_BLOCK_CHARS + 1];
+    // decoded chars that were not passed on yet
+    private CharBuffer pending = CharBuffer.wrap(chars, 0, 0);
+    private final ByteBuffer textBytes;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates a stream returning UTF-8 text.
+     * @param in stream with the container
+     * @param compressor compressor the container was written with
+     */
+    public HuffmanInputStream(InputStream in, Compressor compressor) {
+        this(in, null, compressor, null, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a stream returning UTF-8 text.
+     * @param channel channel with the container
+     * @param compressor compressor the container was written with
+     */
+    public HuffmanInputStream(ReadableByteChannel channel, Compressor compressor) {
+        this(null, channel, compressor, null, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a stream returning text in a given charset.
+     * @param in stream with the container
+     * @param compressor compressor the container was written with
+     * @param charset charset of the returned text
+     */
+    public HuffmanInputStream(InputStream in, Compressor compressor, Charset charset) {
+        this(in, null, compressor, null, charset);
+    }
+
+    /**
+     * Creates a stream returning UTF-8 text decoded with a shared compiled tree (see [HuffmanCodec]).
+     * @param in stream with the container
+     * @param table compiled codes of the tree the container was written with
+     */
+    public HuffmanInputStream(InputStream in, CodeTable table) {
+        this(in, null, null, table, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a stream returning UTF-8 text, decoded with the code length table saved in the container
+     * or with the tree the container names (see [CodeTableRegistry]).
+     * @param in stream with the container
+     */
+    public HuffmanInputStream(InputStream in) {
+        this(in, null, null, null, StandardCharsets.UTF_8);
+    }
+
+    private HuffmanInputStream(InputStream in, ReadableByteChannel channel, Compressor compressor,
+                               CodeTable table, Charset charset) {
+        this.in = in;
+        this.channel = channel;
+        this.compressor = compressor;
+        this.table = table;
+        this.charsetEncoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.textBytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * charsetEncoder.maxBytesPerChar()));
+        textBytes.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        ensureOpen();
+        if (!textBytes.hasRemaining() && !decodeMore()) {
+            return -1;
+        }
+        return textBytes.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        }
+        if (!textBytes.hasRemaining() && !decodeMore()) {
+            return -1;
+        }
+        int n = Math.min(len, textBytes.remaining());
+        textBytes.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return textBytes.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (in != null) {
+            in.close();
+        } else {
+            channel.close();
+        }
+    }
+
+    /**
+     * Decompresses the whole container into a String, without going through the charset.
+     * Only for streams nothing was read from yet.
+     * @return the text
+     * @throws CorruptedDataException if the container is corrupted or truncated
+     * @throws IOException if reading fails
+     */
+    String readText() throws IOException {
+        ensureOpen();
+        if (decoder == null) {
+            readHeader();
+        }
+        StringBuilder text = new StringBuilder();
+        for (int decoded = readBlock(0); decoded > 0; decoded = readBlock(0)) {
+            text.append(chars, 0, decoded);
+        }
+        finished = true;
+        return text.toString();
+    }
+
+    /**
+     * Turns the next decoded chars into text bytes, decoding another block if all were passed on.
+     * @return false if there is nothing more to decode
+     */
+    private boolean decodeMore() throws IOException {
+        if (finished) {
+            return false;
+        }
+        textBytes.clear();
+        while (true) {
+            if (pending.hasRemaining()) {
+                charsetEncoder.encode(pending, textBytes, false);
+                if (textBytes.position() > 0) {
+                    textBytes.flip();
+                    return true;
+                }
+            }
+            // a high surrogate waiting for its pair stays in front of the next block
+            int held = pending.remaining();
+            System.arraycopy(chars, pending.position(), chars, 0, held);
+            if (decoder == null) {
+                readHeader();
+            }
+            int decoded = readBlock(held);
+            pending = CharBuffer.wrap(chars, 0, held + decoded);
+            if (decoded == 0) {
+                charsetEncoder.encode(pending, textBytes, true);
+                charsetEncoder.flush(textBytes);
+                finished = true;
+                textBytes.flip();
+                return textBytes.hasRemaining();
+            }
+        }
+    }
+
+    /**
+     * Reads and checks the header and chooses the decoder for the container's codes.
+     */
+    private void readHeader() throws IOException {
+        readFully(0, StreamedContainer.PRELUDE_SIZE);
+        int descriptionSize = StreamedContainer.readDescriptionSize(ByteBuffer.wrap(block));
+        int size = StreamedContainer.PRELUDE_SIZE + descriptionSize + StreamedContainer.CHECKSUM_SIZE;
+        readFully(StreamedContainer.PRELUDE_SIZE, size - StreamedContainer.PRELUDE_SIZE);
+        HuffmanContainer.Header header = StreamedContainer.readDescription(ByteBuffer.wrap(block, 0, size));
+        decoder = StreamedContainer.decoderFor(header, compressor, table);
+    }
+
+    /**
+     * Reads, checks and decodes the next block.
+     * @param offset index in the chars array the block is decoded to
+     * @return number of decoded chars, 0 after the end marker
+     */
+    private int readBlock(int offset) throws IOException {
+        readFully(0, Integer.BYTES);
+        ByteBuffer header = ByteBuffer.wrap(block);
+        int blockChars = header.getInt(0);
+        if (blockChars == 0) {
+            return 0;
+        }
+        readFully(Integer.BYTES, Integer.BYTES);
+        int payloadSize = header.getInt(Integer.BYTES);
+        StreamedContainer.checkBlock(blockChars, payloadSize);
+        int size = StreamedContainer.BLOCK_HEADER_SIZE + payloadSize + StreamedContainer.CHECKSUM_SIZE;
+        readFully(StreamedContainer.BLOCK_HEADER_SIZE, size - StreamedContainer.BLOCK_HEADER_SIZE);
+        StreamedContainer.checkBlockChecksum(ByteBuffer.wrap(block, 0, size), payloadSize);
+        reader.reset(block, StreamedContainer.BLOCK_HEADER_SIZE * (long) Byte.SIZE,
+                (StreamedContainer.BLOCK_HEADER_SIZE + (long) payloadSize) * Byte.SIZE);
+        int decoded = decoder.decode(reader, chars, offset, blockChars);
+        StreamedContainer.checkDecoded(decoded, blockChars, reader);
+        return decoded;
+    }
+
+    /**
+     * Reads bytes of the container into the block buffer, growing it if needed.
+     * @throws CorruptedDataException if the container ends before them
+     */
+    private void readFully(int offset, int length) throws IOException {
+        if (offset + length > block.length) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, offset + length));
+        }
+        while (length > 0) {
+            int n;
+            if (in != null) {
+                n = in.read(block, offset, length);
+            } else {
+                n = channel.read(ByteBuffer.wrap(block, offset, length));
+            }
+            if (n < 0) {
+                throw new CorruptedDataException("Container is truncated, its end marker is missing.");
+            }
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
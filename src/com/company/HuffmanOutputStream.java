@@ -0,0 +1,170 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An output stream compressing the text written to it with the codes of a [Compressor].
+ *
+ * The bytes written are decoded into chars (UTF-8 by default) and encoded chunk by chunk into the blocks of
+ * a streamed container (see [StreamedContainer]), so the memory used does not depend on the length of the text
+ * and [HuffmanInputStream] gives back exactly the same text. A [Compressor]'s codes are saved in the container
+ * as a code length table, a [CodeTable]'s are referred to by the name of its tree.
+ */
+public class HuffmanOutputStream extends OutputStream {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final OutputStream out;
+    private final StreamedContainer.BlockWriter blocks;
+    private final CharsetDecoder charsetDecoder;
+    private final ByteBuffer textBytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private boolean closed;
+
+    /**
+     * Creates a stream compressing UTF-8 text.
+     * @param out stream the compressed bits are written to
+     * @param compressor compressor whose codes are used
+     */
+    public HuffmanOutputStream(OutputStream out, Compressor compressor) {
+        this(out, compressor, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a stream compressing UTF-8 text into a channel.
+     * @param out channel the compressed bits are written to
+     * @param compressor compressor whose codes are used
+     */
+    public HuffmanOutputStream(WritableByteChannel out, Compressor compressor) {
+        this(Channels.newOutputStream(out), compressor, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a stream compressing text in a given charset.
+     * @param out stream the compressed bits are written to
+     * @param compressor compressor whose codes are used
+     * @param charset charset of the text written to this stream
+     */
+    public HuffmanOutputStream(OutputStream out, Compressor compressor, Charset charset) {
+        this(out, compressor.getCanonicalTable().getEncoder(), compressor.newStreamedHeader(), charset);
+    }
+
+    /**
+     * Creates a stream compressing UTF-8 text with a shared compiled tree (see [HuffmanCodec]).
+     * The container only names the tree, so it has to be decompressed with the same tree. As in [HuffmanCodec],
+     * the tree's codes get an escape code (see [CodeTable.withEscape]), whether the table has one or not.
+     * @param out stream the compressed bits are written to
+     * @param table compiled codes of the tree
+     * @throws IllegalArgumentException if the table does not come from a named tree
+     */
+    public HuffmanOutputStream(OutputStream out, CodeTable table) {
+        this(out, table.withEscape().getEncoder(), StreamedContainer.header(requireName(table)),
+                StandardCharsets.UTF_8);
+    }
+
+    private HuffmanOutputStream(OutputStream out, PackedEncoder encoder, byte[] header, Charset charset) {
+        this.out = out;
+        this.blocks = new StreamedContainer.BlockWriter(out, encoder, header);
+        this.charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static String requireName(CodeTable table) {
+        if (table.getName() == null) {
+            throw new IllegalArgumentException("Code table has no tree name to be saved in the container.");
+        }
+        return table.getName();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        textBytes.put((byte) b);
+        if (!textBytes.hasRemaining()) {
+            encodeBuffered(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int chunk = Math.min(len, textBytes.remaining());
+            textBytes.put(b, off, chunk);
+            off += chunk;
+            len -= chunk;
+            if (!textBytes.hasRemaining()) {
+                encodeBuffered(false);
+            }
+        }
+    }
+
+    /**
+     * Encodes the buffered text, writes it as a complete block and flushes the underlying stream,
+     * so everything written so far can be decompressed. Only the bytes of a char that is not complete yet
+     * stay buffered. Each block takes 12 bytes more, so flushing after every few chars makes the output larger.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        encodeBuffered(false);
+        blocks.writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Encodes the rest of the text, writes the last block and the end marker and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            encodeBuffered(true);
+            charsetDecoder.flush(chars);
+            encodeChars();
+            blocks.finish();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Decodes the buffered bytes into chars and encodes them.
+     * @param endOfInput true if no more bytes will be written
+     */
+    private void encodeBuffered(boolean endOfInput) throws IOException {
+        textBytes.flip();
+        CoderResult result;
+        do {
+            result = charsetDecoder.decode(textBytes, chars, endOfInput);
+            encodeChars();
+        } while (result.isOverflow());
+        // an incomplete multi-byte char stays in the buffer
+        textBytes.compact();
+    }
+
+    private void encodeChars() throws IOException {
+        chars.flip();
+        blocks.encode(chars.array(), 0, chars.limit());
+        chars.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.company;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -12,6 +16,14 @@ public class HuffmanTree {
     private Node root;
     private List<Node> nodes = new ArrayList<>();
     private Map<Character, String> codes = new HashMap<>();
+    // characters and the lengths and bits of their codes, set in canonical mode
+    private int[] symbols;
+    private int[] codeLengths;
+    private int[] codeBits;
+    // sizes of the text encoded with this tree's codes and with unlimited codes, set if the length is limited
+    private long encodedBits;
+    private long unrestrictedEncodedBits;
+    private int maxCodeLength;
 
     /**
      * Creates a huffman tree based on a map of characters and their frequencies.
@@ -19,9 +31,24 @@ public class HuffmanTree {
      * @param frequencyMap map of characters and their frequencies sorted from the least to the most frequent
      */
     public HuffmanTree(Map<Character, Integer> frequencyMap) {
-        if (frequencyMap.keySet().size() < 3) {
+        this(frequencyMap, false);
+    }
+
+    /**
+     * Creates a huffman tree based on a map of characters and their frequencies.
+     * <p>
+     * In canonical mode only the depth of every leaf is taken from the tree. The codes are then assigned
+     * in order of (code length, character) (see [CanonicalCodes]), so they do not depend on the order
+     * of characters with equal frequencies and the tree can be saved as a list of code lengths.
+     *
+     * @param frequencyMap map of characters and their frequencies sorted from the least to the most frequent
+     * @param canonical    true if canonical codes should be assigned
+     */
+    public HuffmanTree(Map<Character, Integer> frequencyMap, boolean canonical) {
+        if (frequencyMap.isEmpty()) {
             return;
         }
+        long start = Metrics.start();
         // available to connect, start off with leaf nodes
         List<Node> topsOfSubtrees = new ArrayList<>();
         // create all leaf nodes
@@ -30,21 +57,137 @@ public class HuffmanTree {
             nodes.add(temp);
             topsOfSubtrees.add(temp);
         }
-        // so we now have a sorted list of tops of subtrees
-        Node leastFrequentLeft = topsOfSubtrees.get(0);
-        Node leastFrequentRight = topsOfSubtrees.get(1);
+        if (topsOfSubtrees.size() == 1) {
+            // a single character is the whole tree, it gets the code "0"
+            this.root = topsOfSubtrees.get(0);
+        } else {
+            // so we now have a sorted list of tops of subtrees
+            Node leastFrequentLeft = topsOfSubtrees.get(0);
+            Node leastFrequentRight = topsOfSubtrees.get(1);
+
+            while (topsOfSubtrees.size() > 2) {
+                Node newTop = new Node(leastFrequentLeft, leastFrequentRight);
+                topsOfSubtrees.remove(leastFrequentRight);
+                topsOfSubtrees.remove(leastFrequentLeft);
+                insertIntoSortedList(topsOfSubtrees, newTop);
+                leastFrequentLeft = topsOfSubtrees.get(0);
+                leastFrequentRight = topsOfSubtrees.get(1);
+            }
+            this.root = new Node(leastFrequentLeft, leastFrequentRight);
+        }
+        if (canonical) {
+            setCanonicalCodes();
+        } else {
+            setCodes(root, root instanceof LeafNode ? "0" : "");
+        }
+        Metrics.stage(CompressionMetrics.Stage.TREE_BUILD, null, start);
+    }
+
+    /**
+     * Creates a huffman tree that also has an escape code (see [EscapeCodes]), so that texts with characters
+     * the tree was not built for can be compressed with it without losing them.
+     * <p>
+     * The escape is added as the least frequent leaf, with a single occurrence.
+     *
+     * @param frequencyMap map of characters and their frequencies sorted from the least to the most frequent
+     * @return the tree with the escape code
+     */
+    public static HuffmanTree withEscape(Map<Character, Integer> frequencyMap) {
+        Map<Character, Integer> withEscape = new LinkedHashMap<>();
+        withEscape.put(EscapeCodes.ESCAPE, 1);
+        for (Map.Entry<Character, Integer> entry : frequencyMap.entrySet()) {
+            if (entry.getKey() != EscapeCodes.ESCAPE) {
+                withEscape.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new HuffmanTree(withEscape);
+    }
+
+    /**
+     * Creates a huffman tree with canonical codes from a table of counted symbols, without boxing.
+     *
+     * @param frequencies counts of the symbols (see [FrequencyTable])
+     */
+    public HuffmanTree(FrequencyTable frequencies) {
+        this(frequencies.getSymbols(), frequencies.getFrequencies());
+    }
+
+    /**
+     * Creates a huffman tree with canonical codes straight from arrays of characters and their frequencies.
+     * <p>
+     * No [Node] objects are created: the code lengths are computed on primitive arrays by [HuffmanCodeLengths]
+     * (in linear time if the frequencies are sorted from the least to the most frequent),
+     * which scales to alphabets of tens of thousands of symbols.
+     *
+     * @param symbols     characters (or other symbols) to be encoded
+     * @param frequencies number of occurrences of each symbol
+     */
+    public HuffmanTree(int[] symbols, long[] frequencies) {
+        long start = Metrics.start();
+        this.symbols = symbols.clone();
+        this.codeLengths = HuffmanCodeLengths.compute(frequencies);
+        this.codeBits = CanonicalCodes.assign(this.symbols, codeLengths);
+        Metrics.stage(CompressionMetrics.Stage.TREE_BUILD, null, start);
+    }
+
+    /**
+     * Creates a huffman tree with canonical codes no longer than a given number of bits.
+     * <p>
+     * If the plain huffman codes are too long, the code lengths are recomputed with [LengthLimitedCodes].
+     * That costs a little compression ratio (see [describeLengthLimit]) but bounds the size of the encoder
+     * and decoder tables.
+     *
+     * @param frequencyMap  map of characters and their frequencies sorted from the least to the most frequent
+     * @param maxCodeLength maximal length of a code in bits, e.g. 12 or 15
+     */
+    public HuffmanTree(Map<Character, Integer> frequencyMap, int maxCodeLength) {
+        this(frequencyMap, true);
+        this.maxCodeLength = maxCodeLength;
+        fillCodeLengths();
+        long[] frequencies = new long[symbols.length];
+        int longest = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            frequencies[i] = frequencyMap.get((char) symbols[i]);
+            longest = Math.max(longest, codeLengths[i]);
+        }
+        unrestrictedEncodedBits = LengthLimitedCodes.encodedBits(frequencies, codeLengths);
+        if (longest > maxCodeLength) {
+            codeLengths = LengthLimitedCodes.computeLengths(frequencies, maxCodeLength);
+            codeBits = CanonicalCodes.assign(symbols, codeLengths);
+            codes.clear();
+        }
+        encodedBits = LengthLimitedCodes.encodedBits(frequencies, codeLengths);
+    }
 
-        while (topsOfSubtrees.size() > 2) {
-            Node newTop = new Node(leastFrequentLeft, leastFrequentRight);
-            topsOfSubtrees.remove(leastFrequentRight);
-            topsOfSubtrees.remove(leastFrequentLeft);
-            insertIntoSortedList(topsOfSubtrees, newTop);
-            leastFrequentLeft = topsOfSubtrees.get(0);
-            leastFrequentRight = topsOfSubtrees.get(1);
+    /**
+     * Returns how much compression ratio was lost by limiting the code length, compared to the plain huffman tree.
+     *
+     * @return bits needed with limited and unlimited codes, e.g. "15 bits max: 3190000 bits vs 3182500 (+0.24%)"
+     */
+    public String describeLengthLimit() {
+        if (maxCodeLength == 0) {
+            return "code length is not limited";
         }
-        this.root = new Node(leastFrequentLeft, leastFrequentRight);
-        setCodes(root, "");
+        double loss = unrestrictedEncodedBits == 0 ? 0
+                : 100.0 * (encodedBits - unrestrictedEncodedBits) / unrestrictedEncodedBits;
+        return String.format("%d bits max: %d bits vs %d (+%.2f%%)",
+                maxCodeLength, encodedBits, unrestrictedEncodedBits, loss);
+    }
+
+    /**
+     * @return number of bits the text the tree was built for takes with this tree's codes
+     * (only known for trees with a limited code length)
+     */
+    public long getEncodedBits() {
+        return encodedBits;
+    }
 
+    /**
+     * @return number of bits the text the tree was built for would take with plain huffman codes
+     * (only known for trees with a limited code length)
+     */
+    public long getUnrestrictedEncodedBits() {
+        return unrestrictedEncodedBits;
     }
 
     /**
@@ -92,6 +235,90 @@ public class HuffmanTree {
         setCodes(currentRoot.getRightChild(), code + 1);
     }
 
+    /**
+     * Assigns canonical codes based on the depth of every leaf, without building a String for each of them.
+     */
+    private void setCanonicalCodes() {
+        int leaves = 0;
+        for (Node node : nodes) {
+            if (node instanceof LeafNode) {
+                leaves++;
+            }
+        }
+        symbols = new int[leaves];
+        codeLengths = new int[leaves];
+        collectCodeLengths(root, root instanceof LeafNode ? 1 : 0, 0);
+        codeBits = CanonicalCodes.assign(symbols, codeLengths);
+    }
+
+    /**
+     * Recursively saves every leaf's character and depth.
+     *
+     * @param currentRoot root of the subtree
+     * @param depth       depth of the subtree's root
+     * @param index       first free index in the symbols array
+     * @return first free index after the subtree
+     */
+    private int collectCodeLengths(Node currentRoot, int depth, int index) {
+        if (currentRoot instanceof LeafNode) {
+            symbols[index] = ((LeafNode) currentRoot).getCharacter();
+            codeLengths[index] = depth;
+            return index + 1;
+        }
+        index = collectCodeLengths(currentRoot.getLeftChild(), depth + 1, index);
+        return collectCodeLengths(currentRoot.getRightChild(), depth + 1, index);
+    }
+
+    /**
+     * @return map containing characters as keys and codes (0s and 1s) as values
+     */
+    public Map<Character, String> getCodes() {
+        if (codes.isEmpty() && symbols != null) {
+            for (int i = 0; i < symbols.length; i++) {
+                codes.put((char) symbols[i], CanonicalCodes.toBinaryString(codeBits[i], codeLengths[i]));
+            }
+        }
+        return Collections.unmodifiableMap(codes);
+    }
+
+    /**
+     * Returns the characters of the tree, in the same order as [getCodeLengths].
+     *
+     * @return characters that have a code
+     */
+    public int[] getSymbols() {
+        fillCodeLengths();
+        return symbols.clone();
+    }
+
+    /**
+     * Returns the length of every character's code. Together with [getSymbols] it is all that has to be saved
+     * to recreate canonical codes (see [HuffmanContainer]).
+     *
+     * @return code lengths, in the same order as [getSymbols]
+     */
+    public int[] getCodeLengths() {
+        fillCodeLengths();
+        return codeLengths.clone();
+    }
+
+    /**
+     * Fills the symbols and lengths arrays from the codes map if the tree is not canonical.
+     */
+    private void fillCodeLengths() {
+        if (symbols != null) {
+            return;
+        }
+        symbols = new int[codes.size()];
+        codeLengths = new int[codes.size()];
+        int i = 0;
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            symbols[i] = entry.getKey();
+            codeLengths[i] = entry.getValue().length();
+            i++;
+        }
+    }
+
     /**
      * Saves a .txt file containing a map of characters and corresponding codes in a JSON-like form.
      * The file is saved in resouces/trees directory.
@@ -99,42 +326,80 @@ public class HuffmanTree {
      * @param fileName name of file that codes will be saved in (without '.txt')
      */
     public void saveTreeCodes(String fileName) {
-        // convert a map containing characters and corresponding codes to JSON
-        String json = "";
+        Path tree = CodeTableRegistry.TREES_DIRECTORY.resolve(fileName + ".txt");
+        boolean existed = Files.exists(tree);
+        try {
+            writeTreeCodes(tree, OverwritePolicy.OVERWRITE);
+            if (!existed) {
+                System.out.println("tree saved: " + tree.getFileName());
+            } else {
+                System.out.println("Tree already exists.");
+                System.out.println("Tree updated.");
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred: " + e.getMessage());
+            System.out.println(toTreeFileText());
+        }
+    }
+
+    /**
+     * Writes the codes to a tree file that can be loaded by [Compressor.load] or [CodeTable.load].
+     * @param treeFile file the codes are saved in
+     * @param policy what to do if the file exists
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists and may not be overwritten
+     * @throws IOException if writing fails
+     */
+    public void writeTreeCodes(Path treeFile, OverwritePolicy policy) throws IOException {
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(treeFile, policy.openOptions()),
+                StandardCharsets.UTF_8)) {
+            writer.write(toTreeFileText());
+        }
+    }
+
+    /**
+     * Writes the codes to a binary tree file (see [TreeFile]), which is loaded faster than a txt tree file
+     * and can hold any char.
+     * @param treeFile file the codes are saved in, named with [TreeFile.EXTENSION] to be found by [CodeTableRegistry]
+     * @param policy what to do if the file exists
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists and may not be overwritten
+     * @throws IOException if writing fails
+     */
+    public void writeBinaryTreeFile(Path treeFile, OverwritePolicy policy) throws IOException {
+        TreeFile.write(treeFile, getCodes(), policy);
+    }
+
+    /**
+     * @return the codes in the format of a tree file, one '"char" : "code"' line per character
+     */
+    public String toTreeFileText() {
+        StringBuilder json = new StringBuilder();
+        Map<Character, String> codes = getCodes();
         for (Character key :
                 codes.keySet()) {
-            if (!Character.isWhitespace(key)) {
-                json += String.format("\"%s\" : \"%s\"\n", key, codes.get(key));
+            String name;
+            if (key == EscapeCodes.ESCAPE) {
+                name = "escape";
+            } else if (!Character.isWhitespace(key)) {
+                name = String.valueOf(key);
             }
             // handling whitespace chars
             else if(key == '\n'){
                 // \n prints as "new line" instead of enter
-                json += String.format("\"%s\" : \"%s\"\n", "new line", codes.get(key));
+                name = "new line";
             } else if (key == ' '){
-                json += String.format("\"%s\" : \"%s\"\n", "space", codes.get(key));
+                name = "space";
             }else if (key == '\t'){
-                json += String.format("\"%s\" : \"%s\"\n", "tab", codes.get(key));
+                name = "tab";
             }else if (key == '\r'){
-                json += String.format("\"%s\" : \"%s\"\n", "carriage return", codes.get(key));
+                name = "carriage return";
             }else if (key == '\f'){
-                json += String.format("\"%s\" : \"%s\"\n", "formfeed", codes.get(key));
-            }
-        }
-        try {
-            File tree = new File(".resources/trees/" + fileName + ".txt");
-            if (tree.createNewFile()) {
-                System.out.println("tree saved: " + tree.getName());
+                name = "formfeed";
             } else {
-                System.out.println("Tree already exists.");
-                System.out.println("Tree updated.");
+                // other whitespace has no name in the tree file format
+                continue;
             }
-            FileWriter myWriter = new FileWriter(tree);
-            myWriter.write(json);
-            myWriter.close();
-        } catch (Exception e) {
-            System.out.println("An error occurred.");
-            e.printStackTrace();
-            System.out.println(json);
+            json.append('"').append(name).append("\" : \"").append(codes.get(key)).append("\"\n");
         }
+        return json.toString();
     }
 }
@@ -0,0 +1,123 @@
+package com.company;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A class computing optimal code lengths that do not exceed a given maximum, with the package-merge algorithm.
+ *
+ * Every symbol is a coin worth 2^-level at each level 1..maxLength. Starting at the deepest level,
+ * the cheapest items are paired into packages, which are merged with the symbols of the level above.
+ * The 2n - 2 cheapest items of level 1 are then taken, and a symbol's code length is the number of
+ * levels at which it was taken (directly or inside a package).
+ */
+public class LengthLimitedCodes {
+    private LengthLimitedCodes() {
+    }
+
+    /**
+     * Computes plain huffman code lengths (see [HuffmanCodeLengths]), falling back to [computeLengths]
+     * only if some code would be longer than maxLength.
+     * @param frequencies number of occurrences of each symbol
+     * @param maxLength maximal code length
+     * @return code length of each symbol, in the same order as the frequencies
+     */
+    public static int[] huffmanLengths(long[] frequencies, int maxLength) {
+        int[] lengths = HuffmanCodeLengths.compute(frequencies);
+        for (int length : lengths) {
+            if (length > maxLength) {
+                return computeLengths(frequencies, maxLength);
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Computes code lengths minimizing the encoded size, with no code longer than maxLength.
+     * @param frequencies number of occurrences of each symbol
+     * @param maxLength maximal code length
+     * @return code length of each symbol, in the same order as the frequencies
+     */
+    public static int[] computeLengths(long[] frequencies, int maxLength) {
+        int n = frequencies.length;
+        int[] lengths = new int[n];
+        if (n == 0) {
+            return lengths;
+        }
+        if (n == 1) {
+            lengths[0] = 1;
+            return lengths;
+        }
+        if (maxLength < 1 || maxLength < 64 - Long.numberOfLeadingZeros(n - 1)) {
+            throw new IllegalArgumentException(n + " symbols do not fit in codes of at most " + maxLength + " bits.");
+        }
+
+        // symbols sorted from the least to the most frequent
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> frequencies[i]));
+        long[] sortedWeights = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedWeights[i] = frequencies[order[i]];
+        }
+
+        // items of every level: weight, and the symbol (>= 0) or -1 for a package
+        long[][] weights = new long[maxLength + 1][];
+        int[][] items = new int[maxLength + 1][];
+        weights[maxLength] = sortedWeights.clone();
+        items[maxLength] = new int[n];
+        for (int i = 0; i < n; i++) {
+            items[maxLength][i] = i;
+        }
+        for (int level = maxLength - 1; level >= 1; level--) {
+            long[] deeper = weights[level + 1];
+            int packages = deeper.length / 2;
+            weights[level] = new long[n + packages];
+            items[level] = new int[n + packages];
+            int leaf = 0;
+            int pack = 0;
+            for (int k = 0; k < n + packages; k++) {
+                long packageWeight = pack < packages ? deeper[2 * pack] + deeper[2 * pack + 1] : Long.MAX_VALUE;
+                // on ties take the symbol first
+                if (leaf < n && sortedWeights[leaf] <= packageWeight) {
+                    weights[level][k] = sortedWeights[leaf];
+                    items[level][k] = leaf++;
+                } else {
+                    weights[level][k] = packageWeight;
+                    items[level][k] = -1;
+                    pack++;
+                }
+            }
+        }
+
+        // take the cheapest items, level by level
+        int selected = 2 * n - 2;
+        for (int level = 1; level <= maxLength && selected > 0; level++) {
+            int packages = 0;
+            for (int k = 0; k < selected; k++) {
+                if (items[level][k] >= 0) {
+                    lengths[order[items[level][k]]]++;
+                } else {
+                    packages++;
+                }
+            }
+            selected = 2 * packages;
+        }
+        return lengths;
+    }
+
+    /**
+     * @param frequencies number of occurrences of each symbol
+     * @param lengths code length of each symbol
+     * @return number of bits needed to encode all the occurrences
+     */
+    public static long encodedBits(long[] frequencies, int[] lengths) {
+        long bits = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            bits += frequencies[i] * lengths[i];
+        }
+        return bits;
+    }
+}
@@ -5,6 +5,8 @@ public class Main {
     public static void main(String[] args) {
         // create an instance of BookReader to fetch the texts to be compressed
         BookReader bookReader = new BookReader();
+        // asks on the console before overwriting files, the compressors themselves never do
+        HuffmanCli cli = new HuffmanCli();
 
         //decompress compressed books and put them in resources/books directory
 
@@ -18,15 +20,15 @@ public class Main {
         Compressor cPseudoReal = new Compressor("pseudo_real");
         Compressor cReal = new Compressor("real");
 
-        String eng1 = cEng1.decompressAndSaveAs("pride_and_prejudice", "pride_and_prejudice_eng", "books/pride_and_prejudice_eng_decompressed");
-        String eng2 = cEng2.decompressAndSaveAs("dorian_gray", "the_picture_of_dorian_gray_eng", "books/the_picture_of_dorian_gray_eng_decompressed");
-        String prt1 = cPrt1.decompressAndSaveAs("grecia", "historia_da_grecia_prt", "books/historia_da_grecia_prt_decompressed");
-        String prt2 = cPrt2.decompressAndSaveAs("lupe", "lupe_prt", "books/lupe_prt_decompressed");
-        String fr1 = cFr1.decompressAndSaveAs("leclaireur", "Leclaireur_fr", "books/leclaireur_fr_decompressed");
-        String fr2 = cFr2.decompressAndSaveAs("tolla", "tolla_fr", "books/tolla_fr_decompressed");
-        String artificial = cArtificial.decompressAndSaveAs("artificial", "artificial", "pseudo/pseudo_decompressed");
-        String pseudoReal = cPseudoReal.decompressAndSaveAs("pseudo_real", "pseudo_real", "pseudo/pseudo_real_decompressed");
-        String real = cReal.decompressAndSaveAs("real", "real", "pseudo/real_decompressed");
+        String eng1 = cli.decompressAndSaveAs(cEng1, "pride_and_prejudice", "pride_and_prejudice_eng", "books/pride_and_prejudice_eng_decompressed");
+        String eng2 = cli.decompressAndSaveAs(cEng2, "dorian_gray", "the_picture_of_dorian_gray_eng", "books/the_picture_of_dorian_gray_eng_decompressed");
+        String prt1 = cli.decompressAndSaveAs(cPrt1, "grecia", "historia_da_grecia_prt", "books/historia_da_grecia_prt_decompressed");
+        String prt2 = cli.decompressAndSaveAs(cPrt2, "lupe", "lupe_prt", "books/lupe_prt_decompressed");
+        String fr1 = cli.decompressAndSaveAs(cFr1, "leclaireur", "Leclaireur_fr", "books/leclaireur_fr_decompressed");
+        String fr2 = cli.decompressAndSaveAs(cFr2, "tolla", "tolla_fr", "books/tolla_fr_decompressed");
+        String artificial = cli.decompressAndSaveAs(cArtificial, "artificial", "artificial", "pseudo/pseudo_decompressed");
+        String pseudoReal = cli.decompressAndSaveAs(cPseudoReal, "pseudo_real", "pseudo_real", "pseudo/pseudo_real_decompressed");
+        String real = cli.decompressAndSaveAs(cReal, "real", "real", "pseudo/real_decompressed");
 
         String[] texts = {eng1, eng2, prt1, prt2, fr1, fr2, artificial, pseudoReal, real};
         String[] textsTitles = {"pride_and_prejudice_eng",
@@ -53,7 +55,54 @@ public class Main {
 //        compressEveryBookUsingCompressor(cPseudoReal, texts, textsTitles, "pseudo_real");
 
         // compress a single book using any compressor (example) (saves in recources/compressed_texts)
-        cEng1.compressText(eng2, "eng2");
+        cli.compressText(cEng1, eng2, "eng2");
+
+        // compress a book into a self-describing container that can be decompressed without the tree (example)
+//        byte[] container = cEng1.compressToContainer(eng2);
+//        String eng2Again = Compressor.decompressContainer(container);
+//        byte[] interleaved = cEng1.compressInterleaved(eng2); // 4 streams, decoded faster
+//        String eng2FromStreams = Compressor.decompressContainer(interleaved);
+
+        // compress and decompress without any console interaction, problems are thrown as exceptions (example)
+//        Compressor cEng1Library = Compressor.load("pride_and_prejudice_eng");
+//        cEng1Library.compressFile(Paths.get("./resources/books/eg.txt"), Paths.get("./resources/eg.huf"),
+//                OverwritePolicy.FAIL_IF_EXISTS);
+//        byte[] eng2Container = cEng1Library.compress(eng2); // a container, gives back exactly eng2
+//        String eng2FromBytes = cEng1Library.decompress(eng2Container);
+
+        // load every tree once at startup and share the compiled tables between compressors (example)
+//        CodeTableRegistry registry = CodeTableRegistry.getDefault();
+//        registry.warmUp("pride_and_prejudice_eng", "lupe_prt", "Leclaireur_fr");
+//        Compressor cEng1Cached = registry.compressor("pride_and_prejudice_eng");
+
+        // share one immutable codec between threads, each thread reusing its own encoder and decoder (example)
+//        HuffmanCodec codec = HuffmanCodec.load("pride_and_prejudice_eng");
+//        HuffmanCodec.Encoder encoder = codec.newEncoder();
+//        HuffmanCodec.Decoder decoder = codec.newDecoder();
+//        String eng2FromCodec = decoder.decompress(encoder.compress(eng2));
+
+        // compress a whole directory of small files with one tree built from a sample of them (example)
+//        List<Path> files = BatchCompressor.listFiles(Paths.get("./resources/books"));
+//        HuffmanTree batchTree = BatchCompressor.sampleTree(files, 100);
+//        batchTree.writeTreeCodes(Paths.get("./resources/trees/books_batch.txt"), OverwritePolicy.FAIL_IF_EXISTS);
+//        BatchCompressor batch = new BatchCompressor(HuffmanCodec.of("books_batch", batchTree));
+//        System.out.println(batch.compressDirectory(Paths.get("./resources/books"),
+//                Paths.get("./resources/compressed_texts/batch"), OverwritePolicy.OVERWRITE));
+
+        // compress a book with whichever tree is expected to compress it best (example)
+//        TreeSelector selector = TreeSelector.ofAvailableTrees();
+//        byte[] best = selector.compress(eng2);
+//        String eng2FromBest = selector.decompress(best);
+
+        // compress a book in a single pass without a tree built beforehand (example)
+//        AdaptiveCompressor adaptive = new AdaptiveCompressor();
+//        byte[] adaptivelyCompressed = adaptive.compress(eng2);
+//        String eng2FromAdaptive = adaptive.decompress(adaptivelyCompressed);
+
+        // compress a book with a dictionary of its words or with codes depending on the previous char (example)
+//        byte[] byWords = new WordCompressor().compress(eng2);
+//        byte[] byContext = new ContextCompressor().compress(eng2);
+//        String eng2FromWords = HuffmanContainer.read(byWords);
     }
 
     /**
@@ -66,7 +115,7 @@ public class Main {
      */
     private static void compressEveryBookUsingCompressor(Compressor c, String[] books, String[] bookTitles, String nameOfSubdir) {
         for (int i = 0; i < books.length; i++) {
-            c.compressText(books[i], "/" + nameOfSubdir + "/" + bookTitles[i]);
+            new HuffmanCli().compressText(c, books[i], "/" + nameOfSubdir + "/" + bookTitles[i]);
         }
     }
 }
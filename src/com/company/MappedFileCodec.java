@@ -0,0 +1,293 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class compressing and decompressing files straight from memory-mapped input.
+ *
+ * The input file is mapped in windows of up to 1 GiB and read without copying it into the heap.
+ * Chars are decoded into a small reused buffer, and the output is collected in a direct buffer that is written
+ * to the file channel whenever it is full, so no String holding the whole text is ever created.
+ * Compressed files are streamed containers (see [StreamedContainer]), the same as [HuffmanOutputStream] writes,
+ * and their blocks are checked and decoded straight from the mapped windows.
+ */
+public class MappedFileCodec {
+    private static final long MAX_WINDOW = 1L << 30;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private MappedFileCodec() {
+    }
+
+    /**
+     * Compresses a UTF-8 text file.
+     * @param input text file
+     * @param output file the container is saved in (overwritten if it exists)
+     * @param compressor compressor whose codes are used
+     * @return size of the compressed file in bytes
+     * @throws IOException if reading or writing fails
+     */
+    public static long compressFile(Path input, Path output, Compressor compressor) throws IOException {
+        return compressFile(input, output, compressor, StandardCharsets.UTF_8, OverwritePolicy.OVERWRITE);
+    }
+
+    /**
+     * Compresses a text file.
+     * @param input text file
+     * @param output file the container is saved in (overwritten if it exists)
+     * @param compressor compressor whose codes are used
+     * @param charset charset of the text file
+     * @param policy what to do if the output file exists
+     * @return size of the compressed file in bytes
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public static long compressFile(Path input, Path output, Compressor compressor, Charset charset,
+                                    OverwritePolicy policy) throws IOException {
+        long start = Metrics.start();
+        CharsetDecoder charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, policy.openOptions())) {
+            ChannelOutput buffered = new ChannelOutput(out);
+            StreamedContainer.BlockWriter blocks = new StreamedContainer.BlockWriter(buffered,
+                    compressor.getCanonicalTable().getEncoder(), compressor.newStreamedHeader());
+            long size = in.size();
+            long position = 0;
+            long encoded = 0;
+            boolean lastWindow = false;
+            while (!lastWindow) {
+                long windowSize = Math.min(MAX_WINDOW, size - position);
+                lastWindow = position + windowSize == size;
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                CoderResult result;
+                do {
+                    result = charsetDecoder.decode(window, chars, lastWindow);
+                    encoded += encode(blocks, chars);
+                } while (result.isOverflow());
+                // bytes of a char cut off by the end of the window are mapped again with the next window
+                position += window.position();
+            }
+            charsetDecoder.flush(chars);
+            encoded += encode(blocks, chars);
+            blocks.finish();
+            buffered.drain();
+            recordFile(compressor, start, encoded, out.size(), true);
+            return out.size();
+        }
+    }
+
+    /**
+     * Decompresses a file into UTF-8 text.
+     * @param input file with a streamed container
+     * @param output file the text is saved in (overwritten if it exists)
+     * @param compressor compressor whose codes were used for compressing
+     * @return number of decompressed chars
+     * @throws IOException if reading or writing fails
+     */
+    public static long decompressFile(Path input, Path output, Compressor compressor) throws IOException {
+        return decompressFile(input, output, compressor, StandardCharsets.UTF_8, OverwritePolicy.OVERWRITE);
+    }
+
+    /**
+     * Decompresses a file into text.
+     * @param input file with a streamed container
+     * @param output file the text is saved in (overwritten if it exists)
+     * @param compressor compressor whose codes were used for compressing
+     * @param charset charset of the saved text
+     * @param policy what to do if the output file exists
+     * @return number of decompressed chars
+     * @throws java.nio.file.FileAlreadyExistsException if the output exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public static long decompressFile(Path input, Path output, Compressor compressor, Charset charset,
+                                      OverwritePolicy policy) throws IOException {
+        long start = Metrics.start();
+        CharsetEncoder charsetEncoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // one more for a high surrogate waiting for its pair from the next block
+        char[] chars = new char[StreamedContainer.MAX_BLOCK_CHARS + 1];
+        ByteBuffer textBytes = ByteBuffer.allocateDirect((int) Math.ceil(BUFFER_SIZE * charsetEncoder.maxBytesPerChar()));
+        long written = 0;
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, policy.openOptions())) {
+            MappedInput container = new MappedInput(in);
+            ByteBuffer header = container.map(0, StreamedContainer.PRELUDE_SIZE);
+            int headerSize = StreamedContainer.PRELUDE_SIZE + StreamedContainer.readDescriptionSize(header)
+                    + StreamedContainer.CHECKSUM_SIZE;
+            TableDecoder decoder = StreamedContainer.decoderFor(
+                    StreamedContainer.readDescription(container.map(0, headerSize)), compressor, null);
+            BitReader reader = new BitReader(new byte[0], 0, 0);
+            long position = headerSize;
+            // chars at the beginning of the chars array that were decoded but not written yet
+            int heldChars = 0;
+            while (true) {
+                int blockChars = container.map(position, Integer.BYTES).getInt();
+                if (blockChars == 0) {
+                    break;
+                }
+                ByteBuffer blockHeader = container.map(position, StreamedContainer.BLOCK_HEADER_SIZE);
+                blockHeader.getInt();
+                int payloadSize = blockHeader.getInt();
+                StreamedContainer.checkBlock(blockChars, payloadSize);
+                int blockSize = StreamedContainer.BLOCK_HEADER_SIZE + payloadSize + StreamedContainer.CHECKSUM_SIZE;
+                ByteBuffer block = container.map(position, blockSize);
+                StreamedContainer.checkBlockChecksum(block, payloadSize);
+                long payloadStart = block.position() + StreamedContainer.BLOCK_HEADER_SIZE;
+                reader.reset(block, payloadStart * Byte.SIZE, (payloadStart + payloadSize) * Byte.SIZE);
+                int decoded = decoder.decode(reader, chars, heldChars, blockChars);
+                StreamedContainer.checkDecoded(decoded, blockChars, reader);
+                CharBuffer ready = CharBuffer.wrap(chars, 0, heldChars + decoded);
+                written += write(ready, charsetEncoder, textBytes, false, out);
+                // a high surrogate waiting for its pair stays in front of the next block
+                heldChars = ready.remaining();
+                System.arraycopy(chars, ready.position(), chars, 0, heldChars);
+                position += blockSize;
+            }
+            written += write(CharBuffer.wrap(chars, 0, heldChars), charsetEncoder, textBytes, true, out);
+            recordFile(compressor, start, written, in.size(), false);
+            return written;
+        }
+    }
+
+    /**
+     * Reports a compressed or decompressed file to [Metrics]; reading, coding and writing are mixed up
+     * in a mapped file, so all the time goes to the IO stage.
+     */
+    private static void recordFile(Compressor compressor, long start, long chars, long bytes, boolean compressed) {
+        if (start != 0) {
+            String tree = compressor.getTreeName() == null ? CompressionMetrics.NO_TREE : compressor.getTreeName();
+            Metrics.stage(CompressionMetrics.Stage.IO, tree, start);
+            if (compressed) {
+                Metrics.get().recordCompression(tree, chars, bytes);
+            } else {
+                Metrics.get().recordDecompression(tree, bytes, chars);
+            }
+        }
+    }
+
+    /**
+     * Encodes chars into text bytes and writes them to a channel.
+     * @return number of chars that were written
+     */
+    private static int write(CharBuffer chars, CharsetEncoder charsetEncoder, ByteBuffer textBytes,
+                             boolean endOfInput, FileChannel out) throws IOException {
+        int start = chars.position();
+        CoderResult result;
+        do {
+            textBytes.clear();
+            result = charsetEncoder.encode(chars, textBytes, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                charsetEncoder.flush(textBytes);
+            }
+            textBytes.flip();
+            while (textBytes.hasRemaining()) {
+                out.write(textBytes);
+            }
+        } while (result.isOverflow());
+        return chars.position() - start;
+    }
+
+    /**
+     * Encodes the chars collected in a buffer and empties it.
+     * @return number of encoded chars
+     */
+    private static long encode(StreamedContainer.BlockWriter blocks, CharBuffer chars) throws IOException {
+        chars.flip();
+        long encoded = blocks.encode(chars.array(), 0, chars.limit());
+        chars.clear();
+        return encoded;
+    }
+
+    /**
+     * An output stream collecting bytes in a direct buffer and writing them to a channel whenever it is full.
+     */
+    private static class ChannelOutput extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(len, buffer.remaining());
+                buffer.put(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        /**
+         * Writes everything collected so far to the channel.
+         */
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * A container file mapped in windows of up to [MAX_WINDOW] bytes, a window is mapped again
+     * only when a part of the file outside of it is needed.
+     */
+    private static class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        /**
+         * @param position index of the first byte in the file
+         * @param length number of bytes needed
+         * @return the current window, positioned at the first byte, with at least length bytes remaining
+         * @throws CorruptedDataException if the file ends before those bytes
+         */
+        ByteBuffer map(long position, int length) throws IOException {
+            if (position + length > size) {
+                throw new CorruptedDataException("Container is truncated, its end marker is missing.");
+            }
+            if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_WINDOW, size - position));
+            }
+            return window.duplicate().position((int) (position - windowStart));
+        }
+    }
+}
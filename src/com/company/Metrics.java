@@ -0,0 +1,81 @@
+package com.company;
+
+/**
+ * A class holding the [CompressionMetrics] sink the whole library reports to.
+ *
+ * While the installed sink is disabled (the default), measuring costs a read of a volatile field
+ * and a branch, the clock is not read.
+ */
+public final class Metrics {
+    private static volatile CompressionMetrics current = CompressionMetrics.NOOP;
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the installed sink
+     */
+    public static CompressionMetrics get() {
+        return current;
+    }
+
+    /**
+     * Installs a sink; measurements from then on are reported to it.
+     * @param metrics the sink, or null to stop recording
+     */
+    public static void install(CompressionMetrics metrics) {
+        current = metrics == null ? CompressionMetrics.NOOP : metrics;
+    }
+
+    /**
+     * Starts measuring a stage.
+     * @return current time in nanoseconds, or 0 if metrics are disabled
+     */
+    static long start() {
+        return current.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since [start] if metrics were enabled then.
+     * @param stage measured stage
+     * @param tree name of the tree, null for [CompressionMetrics.NO_TREE]
+     * @param start value returned by [start]
+     */
+    static void stage(CompressionMetrics.Stage stage, String tree, long start) {
+        if (start != 0) {
+            current.recordStage(stage, tree == null ? CompressionMetrics.NO_TREE : tree, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the time since [start] of an encoding, and the sizes of the text and the result.
+     * @param tree name of the tree, null for [CompressionMetrics.NO_TREE]
+     * @param start value returned by [start]
+     * @param chars number of chars of the text
+     * @param bytes number of compressed bytes
+     */
+    static void compressed(String tree, long start, long chars, long bytes) {
+        if (start != 0) {
+            String name = tree == null ? CompressionMetrics.NO_TREE : tree;
+            CompressionMetrics metrics = current;
+            metrics.recordStage(CompressionMetrics.Stage.ENCODE, name, System.nanoTime() - start);
+            metrics.recordCompression(name, chars, bytes);
+        }
+    }
+
+    /**
+     * Records the time since [start] of a decoding, and the sizes of the data and the text.
+     * @param tree name of the tree, null for [CompressionMetrics.NO_TREE]
+     * @param start value returned by [start]
+     * @param bytes number of compressed bytes
+     * @param chars number of chars of the text
+     */
+    static void decompressed(String tree, long start, long bytes, long chars) {
+        if (start != 0) {
+            String name = tree == null ? CompressionMetrics.NO_TREE : tree;
+            CompressionMetrics metrics = current;
+            metrics.recordStage(CompressionMetrics.Stage.DECODE, name, System.nanoTime() - start);
+            metrics.recordDecompression(name, bytes, chars);
+        }
+    }
+}
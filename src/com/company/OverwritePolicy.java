@@ -0,0 +1,32 @@
+package com.company;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * What the library does when a file it should write already exists.
+ */
+public enum OverwritePolicy {
+    /**
+     * The existing file is replaced
+     */
+    OVERWRITE,
+    /**
+     * A [FileAlreadyExistsException] is thrown and the existing file is left untouched
+     */
+    FAIL_IF_EXISTS;
+
+    /**
+     * @return options for opening a file for writing under this policy; with [FAIL_IF_EXISTS] the check
+     * and the creation are a single atomic step
+     */
+    public OpenOption[] openOptions() {
+        if (this == FAIL_IF_EXISTS) {
+            return new OpenOption[]{StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE};
+        }
+        return new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE};
+    }
+}
@@ -0,0 +1,165 @@
+package com.company;
+
+import java.util.Map;
+
+/**
+ * A class encoding text with codes precomputed for every char.
+ *
+ * Each code is kept as an int holding its bits and a byte holding its length, in arrays indexed by the char,
+ * so encoding a char is two array reads and a shift into a [BitWriter].
+ * If the codes contain an escape code (see [EscapeCodes]), chars without a code are written as the escape
+ * code and a 16-bit literal instead of being skipped.
+ */
+public class PackedEncoder {
+    private final int[] codeBits = new int[Character.MAX_VALUE + 1];
+    // 0 for chars without a code
+    private final byte[] codeLengths = new byte[Character.MAX_VALUE + 1];
+    // 0 if there is no escape code
+    private int escapeBits;
+    private int escapeLength;
+
+    /**
+     * Creates an encoder for a map of characters and their codes (as loaded by [Compressor]).
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     */
+    public PackedEncoder(Map<Character, String> codes) {
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            String code = entry.getValue();
+            if (code.isEmpty() || code.length() > TableDecoder.MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code of " + entry.getKey() + " has unsupported length "
+                        + code.length());
+            }
+            setCode(entry.getKey(), Integer.parseUnsignedInt(code, 2), code.length());
+        }
+    }
+
+    /**
+     * Creates an encoder for codes given as parallel arrays.
+     * @param symbols chars that are encoded
+     * @param codes code of each char stored in the lowest bits
+     * @param lengths length of each code in bits
+     */
+    public PackedEncoder(int[] symbols, int[] codes, int[] lengths) {
+        for (int i = 0; i < symbols.length; i++) {
+            if (lengths[i] < 1 || lengths[i] > TableDecoder.MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code of " + symbols[i] + " has unsupported length " + lengths[i]);
+            }
+            setCode(symbols[i], codes[i], lengths[i]);
+        }
+    }
+
+    private void setCode(int symbol, int code, int length) {
+        if (symbol == EscapeCodes.ESCAPE) {
+            // U+FFFF itself is sent as a literal after the escape code
+            escapeBits = code;
+            escapeLength = length;
+        } else {
+            codeBits[symbol] = code;
+            codeLengths[symbol] = (byte) length;
+        }
+    }
+
+    /**
+     * Encodes a text. Chars that have no code are escaped, or skipped if there is no escape code.
+     * @param text text to encode
+     * @param out writer the codes are written to
+     * @return number of chars that were encoded
+     */
+    public long encode(CharSequence text, BitWriter out) {
+        long encoded = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (codeLengths[c] != 0) {
+                out.write(codeBits[c], codeLengths[c]);
+                encoded++;
+            } else if (escapeLength != 0) {
+                writeEscaped(c, out);
+                encoded++;
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Encodes a part of an array of chars. Chars that have no code are escaped, or skipped if there is
+     * no escape code.
+     * @param chars chars to encode
+     * @param offset index of the first char
+     * @param length number of chars
+     * @param out writer the codes are written to
+     * @return number of chars that were encoded
+     */
+    public int encode(char[] chars, int offset, int length, BitWriter out) {
+        int encoded = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (codeLengths[c] != 0) {
+                out.write(codeBits[c], codeLengths[c]);
+                encoded++;
+            } else if (escapeLength != 0) {
+                writeEscaped(c, out);
+                encoded++;
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Encodes a text into several independent streams, the i-th encoded char going to stream i % streams.length,
+     * so that they can be decoded in lockstep (see [TableDecoder.decodeInterleaved]).
+     * Chars that have no code are escaped, or skipped if there is no escape code.
+     * @param text text to encode
+     * @param streams writers of the streams
+     * @return number of chars that were encoded
+     */
+    public long encodeInterleaved(CharSequence text, BitWriter[] streams) {
+        long encoded = 0;
+        int stream = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (codeLengths[c] != 0) {
+                streams[stream].write(codeBits[c], codeLengths[c]);
+            } else if (escapeLength != 0) {
+                writeEscaped(c, streams[stream]);
+            } else {
+                continue;
+            }
+            encoded++;
+            if (++stream == streams.length) {
+                stream = 0;
+            }
+        }
+        return encoded;
+    }
+
+    private void writeEscaped(char c, BitWriter out) {
+        out.write(escapeBits, escapeLength);
+        out.write(c, EscapeCodes.LITERAL_BITS);
+    }
+
+    /**
+     * Encodes a text into bytes, with the last byte padded with 0s.
+     * @param text text to encode
+     * @return encoded bytes
+     */
+    public byte[] encode(CharSequence text) {
+        BitWriter out = new BitWriter();
+        encode(text, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character has a code or can be escaped
+     */
+    public boolean canEncode(char c) {
+        return codeLengths[c] != 0 || escapeLength != 0;
+    }
+
+    /**
+     * @return true if chars without a code are escaped instead of skipped
+     */
+    public boolean hasEscape() {
+        return escapeLength != 0;
+    }
+}
@@ -0,0 +1,177 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A class running the counting and encoding stages on many cores.
+ *
+ * The text is split into chunks. Chunk histograms are counted with fork/join and merged,
+ * then every chunk is encoded into its own [BitWriter]. Once the sizes of all chunks are known, their bit offsets
+ * are summed up and every chunk shifts its own bytes into place in the output, again in parallel,
+ * so the result is exactly the same as encoding the text on one thread.
+ */
+public class ParallelCompressor {
+    // chunks shorter than that are not worth a separate task
+    private static final int MIN_CHUNK_LENGTH = 1 << 18;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a compressor using the common fork/join pool.
+     */
+    public ParallelCompressor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a compressor using a given pool.
+     * @param pool pool the chunks are processed in
+     */
+    public ParallelCompressor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the chars of a text in parallel.
+     * @param text text to analyze
+     * @return table of char counts
+     */
+    public FrequencyTable countFrequencies(CharSequence text) {
+        return pool.invoke(new CountTask(text, 0, text.length()));
+    }
+
+    /**
+     * Builds a canonical huffman tree for a text, counting its chars in parallel.
+     * @param text text to analyze
+     * @return tree for the text
+     */
+    public HuffmanTree buildTree(CharSequence text) {
+        return new HuffmanTree(countFrequencies(text));
+    }
+
+    /**
+     * Encodes a text in parallel chunks. Chars that have no code are skipped.
+     * @param text text to encode
+     * @param encoder encoder with the codes
+     * @return encoded bytes, the same as [PackedEncoder.encode] would return
+     */
+    public byte[] compress(CharSequence text, PackedEncoder encoder) {
+        int chunks = chunkCount(text.length());
+        List<ForkJoinTask<BitWriter>> encoding = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int start = (int) ((long) text.length() * i / chunks);
+            int end = (int) ((long) text.length() * (i + 1) / chunks);
+            encoding.add(pool.submit(() -> {
+                BitWriter chunk = new BitWriter();
+                encoder.encode(text.subSequence(start, end), chunk);
+                return chunk;
+            }));
+        }
+        // bit offset of every chunk, and the end of the last one
+        long[] offsets = new long[chunks + 1];
+        byte[][] chunkBytes = new byte[chunks][];
+        for (int i = 0; i < chunks; i++) {
+            BitWriter chunk = encoding.get(i).join();
+            offsets[i + 1] = offsets[i] + chunk.getBitCount();
+            chunkBytes[i] = chunk.toByteArray();
+        }
+        long size = (offsets[chunks] + 7) >>> 3;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Text is too long to be encoded into an array.");
+        }
+        byte[] out = new byte[(int) size];
+        // the first byte of a chunk starting in the middle of a byte is shared with the chunk before,
+        // so the chunk only returns it and it is merged once all the chunks are placed
+        int[] firstBytes = new int[chunks];
+        List<ForkJoinTask<?>> placing = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            placing.add(pool.submit(() -> {
+                firstBytes[chunk] = place(chunkBytes[chunk], offsets[chunk], offsets[chunk + 1], out);
+            }));
+        }
+        for (int i = 0; i < chunks; i++) {
+            placing.get(i).join();
+            if (offsets[i] < offsets[i + 1]) {
+                out[(int) (offsets[i] >>> 3)] |= (byte) firstBytes[i];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Copies the bits of a chunk into the output, shifted to the chunk's bit offset.
+     * @param bytes bits of the chunk, last byte padded with 0s
+     * @param from bit offset of the chunk in the output
+     * @param to bit offset of the chunk's end
+     * @param out the output
+     * @return first byte of the chunk if it starts in the middle of a byte (it is not written), otherwise 0
+     */
+    private static int place(byte[] bytes, long from, long to, byte[] out) {
+        if (from == to) {
+            return 0;
+        }
+        int base = (int) (from >>> 3);
+        int shift = (int) (from & 7);
+        if (shift == 0) {
+            System.arraycopy(bytes, 0, out, base, bytes.length);
+            return 0;
+        }
+        int end = (int) ((to + 7) >>> 3);
+        for (int i = 1; base + i < end; i++) {
+            int high = (bytes[i - 1] & 0xFF) << (Byte.SIZE - shift);
+            int low = i < bytes.length ? (bytes[i] & 0xFF) >>> shift : 0;
+            out[base + i] = (byte) (high | low);
+        }
+        return (bytes[0] & 0xFF) >>> shift;
+    }
+
+    /**
+     * Encodes a text in parallel chunks with a compressor's codes.
+     * @param text text to encode
+     * @param compressor compressor with the codes
+     * @return encoded bytes, the same as [Compressor.compressText] would save
+     */
+    public byte[] compress(CharSequence text, Compressor compressor) {
+        return compress(text, compressor.getEncoder());
+    }
+
+    private int chunkCount(int length) {
+        return Math.max(1, Math.min(pool.getParallelism() * 4, length / MIN_CHUNK_LENGTH));
+    }
+
+    /**
+     * Counts a range of the text, splitting it in halves until it is short enough.
+     */
+    private static class CountTask extends RecursiveTask<FrequencyTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int start;
+        private final int end;
+
+        CountTask(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected FrequencyTable compute() {
+            if (end - start <= MIN_CHUNK_LENGTH) {
+                return FrequencyTable.ofChars(text.subSequence(start, end));
+            }
+            int middle = (start + end) >>> 1;
+            CountTask left = new CountTask(text, start, middle);
+            left.fork();
+            FrequencyTable right = new CountTask(text, middle, end).compute();
+            FrequencyTable counts = left.join();
+            counts.addAll(right);
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.company;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A class keeping measurements in memory: counters of chars and bytes and a latency histogram for every stage,
+ * all per tree name, and the hit rate of the tree cache.
+ *
+ * Counters are [LongAdder]s and histograms have a bucket per power of two nanoseconds, so recording from many
+ * threads does not contend on a lock. The numbers can be read with the getters, printed with [toString]
+ * or watched with a JMX client after [register]:
+ * <pre>
+ * RecordingMetrics metrics = new RecordingMetrics();
+ * metrics.register();
+ * Metrics.install(metrics);
+ * </pre>
+ */
+public class RecordingMetrics implements CompressionMetrics, CompressionMetricsMXBean {
+    /**
+     * Name the metrics are registered under by [register]
+     */
+    public static final String OBJECT_NAME = "com.company:type=CompressionMetrics";
+
+    private final Map<String, TreeStats> trees = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @Override
+    public void recordStage(Stage stage, String tree, long nanos) {
+        statsOf(tree).histograms.get(stage).record(nanos);
+    }
+
+    @Override
+    public void recordCompression(String tree, long chars, long bytes) {
+        TreeStats stats = statsOf(tree);
+        stats.charsCompressed.add(chars);
+        stats.bytesCompressed.add(bytes);
+    }
+
+    @Override
+    public void recordDecompression(String tree, long bytes, long chars) {
+        TreeStats stats = statsOf(tree);
+        stats.bytesDecompressed.add(bytes);
+        stats.charsDecompressed.add(chars);
+    }
+
+    @Override
+    public void recordCacheLookup(String tree, boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    private TreeStats statsOf(String tree) {
+        TreeStats stats = trees.get(tree);
+        return stats != null ? stats : trees.computeIfAbsent(tree, name -> new TreeStats());
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under [OBJECT_NAME].
+     * @return the name they were registered under
+     * @throws IllegalStateException if other metrics are already registered under that name
+     */
+    public ObjectName register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            return name;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Metrics are already registered as " + OBJECT_NAME + ".", e);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param tree name of a tree
+     * @param stage a stage
+     * @return histogram of the stage's durations with the tree, empty if nothing was recorded
+     */
+    public Histogram getHistogram(String tree, Stage stage) {
+        TreeStats stats = trees.get(tree);
+        return stats == null ? new Histogram() : stats.histograms.get(stage);
+    }
+
+    @Override
+    public Map<String, Long> getCharsCompressed() {
+        return perTree(stats -> stats.charsCompressed.sum());
+    }
+
+    @Override
+    public Map<String, Long> getBytesCompressed() {
+        return perTree(stats -> stats.bytesCompressed.sum());
+    }
+
+    @Override
+    public Map<String, Long> getBytesDecompressed() {
+        return perTree(stats -> stats.bytesDecompressed.sum());
+    }
+
+    @Override
+    public Map<String, Long> getCharsDecompressed() {
+        return perTree(stats -> stats.charsDecompressed.sum());
+    }
+
+    @Override
+    public Map<String, Double> getBitsPerChar() {
+        Map<String, Double> bitsPerChar = new TreeMap<>();
+        trees.forEach((tree, stats) -> {
+            long chars = stats.charsCompressed.sum();
+            if (chars > 0) {
+                bitsPerChar.put(tree, (double) stats.bytesCompressed.sum() * Byte.SIZE / chars);
+            }
+        });
+        return bitsPerChar;
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        perStage(Histogram::getCount).forEach((key, count) -> counts.put(key, count.longValue()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getStageTotalMillis() {
+        return perStage(histogram -> histogram.getTotalNanos() / 1e6);
+    }
+
+    @Override
+    public Map<String, Double> getStageP99Micros() {
+        return perStage(histogram -> histogram.getPercentileNanos(0.99) / 1e3);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public void reset() {
+        trees.clear();
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    private Map<String, Long> perTree(ToLongFunction<TreeStats> value) {
+        Map<String, Long> values = new TreeMap<>();
+        trees.forEach((tree, stats) -> values.put(tree, value.applyAsLong(stats)));
+        return values;
+    }
+
+    private Map<String, Double> perStage(ToDoubleFunction<Histogram> value) {
+        Map<String, Double> values = new TreeMap<>();
+        trees.forEach((tree, stats) -> stats.histograms.forEach((stage, histogram) -> {
+            if (histogram.getCount() > 0) {
+                values.put(stage + " " + tree, value.applyAsDouble(histogram));
+            }
+        }));
+        return values;
+    }
+
+    /**
+     * @return a table of the recorded numbers, a line per tree and a line per stage
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("tree cache: %d hits, %d misses%n", getCacheHits(), getCacheMisses()));
+        for (Map.Entry<String, TreeStats> entry : new TreeMap<>(trees).entrySet()) {
+            TreeStats stats = entry.getValue();
+            sb.append(String.format("%s: %d chars -> %d bytes, %d bytes -> %d chars%n", entry.getKey(),
+                    stats.charsCompressed.sum(), stats.bytesCompressed.sum(),
+                    stats.bytesDecompressed.sum(), stats.charsDecompressed.sum()));
+            stats.histograms.forEach((stage, histogram) -> {
+                if (histogram.getCount() > 0) {
+                    sb.append(String.format("  %-10s %s%n", stage, histogram));
+                }
+            });
+        }
+        return sb.toString();
+    }
+
+    private static class TreeStats {
+        final LongAdder charsCompressed = new LongAdder();
+        final LongAdder bytesCompressed = new LongAdder();
+        final LongAdder bytesDecompressed = new LongAdder();
+        final LongAdder charsDecompressed = new LongAdder();
+        final Map<Stage, Histogram> histograms;
+
+        TreeStats() {
+            Map<Stage, Histogram> histograms = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                histograms.put(stage, new Histogram());
+            }
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+    }
+
+    /**
+     * A histogram of durations with a bucket per power of two nanoseconds,
+     * so percentiles are known within a factor of two.
+     */
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Histogram() {
+        }
+
+        private void record(long nanos) {
+            long positive = Math.max(nanos, 0);
+            buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(positive | 1));
+            count.increment();
+            totalNanos.add(positive);
+        }
+
+        /**
+         * @return number of recorded durations
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return sum of the recorded durations in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @param percentile share of the durations, e.g. 0.5 or 0.99
+         * @return upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return i == Long.SIZE - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return count, mean and percentiles, e.g. "12 x, mean 35.2 us, p50 < 32.8 us, p99 < 65.5 us"
+         */
+        @Override
+        public String toString() {
+            long n = getCount();
+            return String.format("%d x, mean %.1f us, p50 < %.1f us, p99 < %.1f us", n,
+                    n == 0 ? 0 : getTotalNanos() / 1e3 / n,
+                    getPercentileNanos(0.5) / 1e3, getPercentileNanos(0.99) / 1e3);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * A class writing and checking the parts of a streamed container, a [HuffmanContainer] written in blocks
+ * so that neither the writer nor the reader has to know the whole text (see [HuffmanOutputStream]). Layout:
+ * <pre>
+ * magic          4 bytes   "HUFC"
+ * version        1 byte
+ * flags          1 byte    [HuffmanContainer.FLAG_STREAMED], with [HuffmanContainer.FLAG_TREE_NAME] if the
+ *                          codes are a pretrained tree's own
+ * description    4 bytes size, then the tree name (varint length and UTF-8 bytes) or a code length table
+ *                          as in [HuffmanContainer] for canonical codes
+ * checksum       4 bytes   CRC32 of everything above
+ * blocks         per block: 4 bytes number of chars (1 - [MAX_BLOCK_CHARS]), 4 bytes payload size,
+ *                          payload (codes, last byte padded with 0s), 4 bytes CRC32 of the block
+ * end            4 bytes   0
+ * </pre>
+ * Every block is checked before its chars are passed on, and a container that ends before the end marker
+ * is reported as truncated.
+ */
+final class StreamedContainer {
+    static final int MAX_BLOCK_CHARS = 1 << 16;
+    // magic, version, flags and description size
+    static final int PRELUDE_SIZE = 10;
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int CHECKSUM_SIZE = 4;
+    private static final int MAX_DESCRIPTION_SIZE = 1 << 20;
+    // longest code and an escaped literal after it
+    private static final int MAX_BITS_PER_CHAR = TableDecoder.MAX_CODE_LENGTH + EscapeCodes.LITERAL_BITS;
+
+    private StreamedContainer() {
+    }
+
+    /**
+     * @param symbols chars with a code, sorted
+     * @param lengths length of each code, the codes are canonical (see [CanonicalCodes])
+     * @return everything that comes before the first block
+     */
+    static byte[] header(int[] symbols, int[] lengths) {
+        try {
+            ByteArrayOutputStream description = new ByteArrayOutputStream();
+            HuffmanContainer.writeLengthTable(new DataOutputStream(description), symbols, lengths);
+            return header(HuffmanContainer.FLAG_STREAMED, description.toByteArray());
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param treeName name of the pretrained tree whose own codes are used
+     * @return everything that comes before the first block
+     */
+    static byte[] header(String treeName) {
+        try {
+            ByteArrayOutputStream description = new ByteArrayOutputStream();
+            byte[] name = treeName.getBytes(StandardCharsets.UTF_8);
+            HuffmanContainer.writeVarInt(new DataOutputStream(description), name.length);
+            description.write(name);
+            return header(HuffmanContainer.FLAG_STREAMED | HuffmanContainer.FLAG_TREE_NAME,
+                    description.toByteArray());
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] header(int flags, byte[] description) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(PRELUDE_SIZE + description.length + CHECKSUM_SIZE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(HuffmanContainer.MAGIC);
+        out.writeByte(HuffmanContainer.VERSION);
+        out.writeByte(flags);
+        out.writeInt(description.length);
+        out.write(description);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a block.
+     * @param out stream the block is written to
+     * @param chars number of chars encoded in the payload (1 - [MAX_BLOCK_CHARS])
+     * @param payload the codes, last byte padded with 0s
+     */
+    static void writeBlock(OutputStream out, int chars, byte[] payload) throws IOException {
+        byte[] header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(chars).putInt(payload.length).array();
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(payload);
+        out.write(header);
+        out.write(payload);
+        out.write(ByteBuffer.allocate(CHECKSUM_SIZE).putInt((int) crc.getValue()).array());
+    }
+
+    /**
+     * Writes the end marker.
+     * @param out stream the marker is written to
+     */
+    static void writeEnd(OutputStream out) throws IOException {
+        out.write(new byte[4]);
+    }
+
+    /**
+     * Checks the magic number, version and flags of a streamed container.
+     * @param prelude buffer holding the first [PRELUDE_SIZE] bytes of the container from its position
+     * @return size of the description that follows
+     * @throws IOException if the data is not a streamed container
+     */
+    static int readDescriptionSize(ByteBuffer prelude) throws IOException {
+        ByteBuffer in = prelude.duplicate();
+        if (in.remaining() < PRELUDE_SIZE || in.getInt() != HuffmanContainer.MAGIC) {
+            throw new CorruptedDataException("Not a huffman container.");
+        }
+        int version = in.get() & 0xFF;
+        if (version != HuffmanContainer.VERSION) {
+            throw new CorruptedDataException("Unsupported container version " + version + ".");
+        }
+        int flags = in.get() & 0xFF;
+        if ((flags & ~HuffmanContainer.FLAG_TREE_NAME) != HuffmanContainer.FLAG_STREAMED) {
+            throw new IOException("Container is not streamed, use Compressor.decompress to decompress it.");
+        }
+        int size = in.getInt();
+        if (size < 1 || size > MAX_DESCRIPTION_SIZE) {
+            throw new CorruptedDataException("Container description is corrupted.");
+        }
+        return size;
+    }
+
+    /**
+     * Checks the checksum of the header and reads the description.
+     * @param header buffer holding the whole header from its position, checksum included
+     * @return the tree name or the code length table of the container (no symbol count or payload)
+     * @throws IOException if the header is corrupted
+     */
+    static HuffmanContainer.Header readDescription(ByteBuffer header) throws IOException {
+        int descriptionSize = readDescriptionSize(header);
+        ByteBuffer in = header.duplicate();
+        int start = in.position();
+        int end = start + PRELUDE_SIZE + descriptionSize;
+        if (in.remaining() < PRELUDE_SIZE + descriptionSize + CHECKSUM_SIZE) {
+            throw new CorruptedDataException("Container is truncated.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().limit(end));
+        if ((int) crc.getValue() != in.getInt(end)) {
+            throw new CorruptedDataException("Container checksum does not match, the data is corrupted.");
+        }
+        boolean named = (in.get(start + 5) & HuffmanContainer.FLAG_TREE_NAME) != 0;
+        ByteBuffer description = in.position(start + PRELUDE_SIZE).limit(end).slice();
+        HuffmanContainer.Header result = new HuffmanContainer.Header();
+        result.symbolCount = -1;
+        try {
+            if (named) {
+                result.treeName = HuffmanContainer.readTreeName(description);
+            } else {
+                int[][] table = HuffmanContainer.readLengthTable(description);
+                result.symbols = table[0];
+                result.lengths = table[1];
+            }
+        } catch (BufferUnderflowException e) {
+            throw new CorruptedDataException("Container description is corrupted.");
+        }
+        if (description.hasRemaining()) {
+            throw new CorruptedDataException("Container description is corrupted.");
+        }
+        return result;
+    }
+
+    /**
+     * Chooses the decoder for the codes a container describes.
+     * @param header description of the container (see [readDescription])
+     * @param compressor compressor the container is expected to be written with, or null
+     * @param table tree the container is expected to name, or null
+     * @return decoder of the container's codes; a named tree gets an escape code, as in [HuffmanCodec]
+     * @throws CorruptedDataException if the code lengths do not describe a prefix code or the container
+     * names another tree than the expected one
+     * @throws IOException if the named tree can not be loaded
+     */
+    static TableDecoder decoderFor(HuffmanContainer.Header header, Compressor compressor, CodeTable table)
+            throws IOException {
+        if (header.treeName == null) {
+            return compressor != null ? compressor.getContainerDecoder(header) : header.newDecoder();
+        } else if (table == null) {
+            return HuffmanCodec.load(header.treeName).getTable().getDecoder();
+        } else if (header.treeName.equals(table.getName())) {
+            return table.withEscape().getDecoder();
+        }
+        throw new CorruptedDataException("Container was written with tree " + header.treeName + ", not "
+                + table.getName() + ".");
+    }
+
+    /**
+     * Checks the sizes in a block header.
+     * @param chars number of chars of the block, 0 for the end marker
+     * @param payloadSize size of the payload in bytes
+     * @throws CorruptedDataException if the sizes are impossible
+     */
+    static void checkBlock(int chars, int payloadSize) throws CorruptedDataException {
+        if (chars < 1 || chars > MAX_BLOCK_CHARS || payloadSize < 1 || payloadSize > maxPayloadSize(chars)) {
+            throw new CorruptedDataException("Block header of the container is corrupted.");
+        }
+    }
+
+    /**
+     * @param chars number of chars of a block
+     * @return largest payload those chars can be encoded into
+     */
+    static int maxPayloadSize(int chars) {
+        return (int) (((long) chars * MAX_BITS_PER_CHAR + 7) / 8);
+    }
+
+    /**
+     * Checks the checksum of a block.
+     * @param block buffer holding the whole block from its position, checksum included
+     * @param payloadSize size of the payload in bytes
+     * @throws CorruptedDataException if the block is corrupted
+     */
+    static void checkBlockChecksum(ByteBuffer block, int payloadSize) throws CorruptedDataException {
+        int end = block.position() + BLOCK_HEADER_SIZE + payloadSize;
+        CRC32 crc = new CRC32();
+        crc.update(block.duplicate().limit(end));
+        if ((int) crc.getValue() != block.getInt(end)) {
+            throw new CorruptedDataException("Block checksum does not match, the data is corrupted.");
+        }
+    }
+
+    /**
+     * Checks that a block was decoded completely.
+     * @param decoded number of chars decoded from the payload
+     * @param chars number of chars of the block
+     * @param payload reader of the payload after decoding
+     * @throws CorruptedDataException if chars are missing or the payload holds more than the padding
+     */
+    static void checkDecoded(int decoded, int chars, BitReader payload) throws CorruptedDataException {
+        if (decoded != chars || payload.remaining() >= Byte.SIZE) {
+            throw new CorruptedDataException("Block of the container is corrupted: " + decoded + " of " + chars
+                    + " chars decoded.");
+        }
+    }
+
+    /**
+     * A writer encoding chars into the blocks of a streamed container.
+     */
+    static final class BlockWriter {
+        private final OutputStream out;
+        private final PackedEncoder encoder;
+        // written before the first block
+        private final byte[] header;
+        private boolean headerWritten;
+        // codes of the current block
+        private final BitWriter bits = new BitWriter();
+        private int blockChars;
+
+        /**
+         * @param out stream the container is written to
+         * @param encoder encoder of the codes the header describes
+         * @param header header of the container (see [header])
+         */
+        BlockWriter(OutputStream out, PackedEncoder encoder, byte[] header) {
+            this.out = out;
+            this.encoder = encoder;
+            this.header = header;
+        }
+
+        /**
+         * Encodes chars, writing a block whenever it is full. Chars that have no code are escaped or skipped.
+         * @return number of chars that were encoded
+         */
+        long encode(char[] chars, int offset, int length) throws IOException {
+            long encoded = 0;
+            for (int end = offset + length; offset < end; ) {
+                // skipped chars are not counted, so a block never gets more chars than it is given
+                int piece = Math.min(end - offset, MAX_BLOCK_CHARS - blockChars);
+                int coded = encoder.encode(chars, offset, piece, bits);
+                blockChars += coded;
+                encoded += coded;
+                offset += piece;
+                if (blockChars == MAX_BLOCK_CHARS) {
+                    writeBlock();
+                }
+            }
+            return encoded;
+        }
+
+        /**
+         * Writes the header if it was not written yet, and the current block if it has any chars.
+         */
+        void writeBlock() throws IOException {
+            if (!headerWritten) {
+                out.write(header);
+                headerWritten = true;
+            }
+            if (blockChars > 0) {
+                StreamedContainer.writeBlock(out, blockChars, bits.toByteArray());
+                bits.reset();
+                blockChars = 0;
+            }
+        }
+
+        /**
+         * Writes the last block and the end marker, the stream is not closed.
+         */
+        void finish() throws IOException {
+            writeBlock();
+            writeEnd(out);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.company;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A class with the innermost loops of counting chars and bytes, which take most of the time of building a tree.
+ *
+ * This class is the scalar implementation, which works on any JVM. Counting can keep four separate counters
+ * for every byte or char below 256: consecutive equal symbols then increment different counters, instead of
+ * each increment waiting for the previous one to be stored. Bytes are always counted that way. Chars only if
+ * many of them repeat the previous one (e.g. 0s and 1s or DNA, a quarter of the chars), as in prose (2-6 %)
+ * the lanes cost more than they save. The counts are always the same as the ones of a plain loop.
+ * <p>
+ * Other implementations can be plugged in at runtime: with the system property [PROPERTY] set to "vector",
+ * the kernels of the compression2-vector module (built on JDK 17 or newer) are used if they are on the class path
+ * and the JVM was started with {@code --add-modules jdk.incubator.vector}. Before they are used they must count
+ * a sample exactly like this class; otherwise, or if they can not be loaded, the scalar kernels are used.
+ */
+public class SymbolKernels {
+    /**
+     * System property choosing the kernels: "scalar" (default) or "vector"
+     */
+    public static final String PROPERTY = "com.company.kernels";
+    private static final String VECTOR_KERNELS = "com.company.vector.VectorKernels";
+    private static final int LANES = 4;
+    // chars below this are counted in lanes, the lanes of all of them fit in the L1 cache
+    private static final int LANE_ALPHABET = 256;
+    // below this length the lanes are not worth adding up
+    private static final int MIN_LANE_LENGTH = 1 << 10;
+    // chars sampled to decide whether chars are counted in lanes
+    private static final int RUN_SAMPLE = 1 << 10;
+
+    private static final SymbolKernels SCALAR = new SymbolKernels();
+    private static final SymbolKernels SELECTED = select(System.getProperty(PROPERTY, "scalar"));
+
+    protected SymbolKernels() {
+    }
+
+    /**
+     * @return kernels chosen when the class was loaded (see [PROPERTY])
+     */
+    public static SymbolKernels get() {
+        return SELECTED;
+    }
+
+    /**
+     * @return the scalar kernels, e.g. to check other kernels against
+     */
+    public static SymbolKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @param name name of the kernels, "scalar" or "vector"
+     * @return the kernels of that name if they can be loaded and count like the scalar kernels, the scalar ones
+     * otherwise
+     */
+    static SymbolKernels select(String name) {
+        if (!"vector".equals(name)) {
+            return SCALAR;
+        }
+        try {
+            SymbolKernels kernels = (SymbolKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor()
+                    .newInstance();
+            return countsLikeScalar(kernels) ? kernels : SCALAR;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            // not on the class path, or jdk.incubator.vector is not in the module graph
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Counts random samples, with runs and with chars above the lanes, at odd offsets with both kernels.
+     * @param kernels kernels to check
+     * @return true if every count is the same
+     */
+    static boolean countsLikeScalar(SymbolKernels kernels) {
+        Random random = new Random(1);
+        byte[] bytes = new byte[5003];
+        char[] chars = new char[5003];
+        for (int i = 0; i < bytes.length; i++) {
+            // runs of equal symbols, and every byte value and some chars above 255 in between
+            boolean repeat = i > 0 && random.nextInt(3) != 0;
+            bytes[i] = repeat ? bytes[i - 1] : (byte) random.nextInt();
+            chars[i] = repeat ? chars[i - 1] : (char) random.nextInt(i % 100 == 99 ? 1000 : 256);
+        }
+        String text = new String(chars);
+        for (int offset = 0; offset < 4; offset++) {
+            int length = bytes.length - offset - random.nextInt(4);
+            long[] expected = new long[FrequencyTable.CHAR_ALPHABET];
+            long[] actual = new long[FrequencyTable.CHAR_ALPHABET];
+            SCALAR.countBytes(bytes, offset, length, expected);
+            kernels.countBytes(bytes, offset, length, actual);
+            SCALAR.countChars(chars, offset, length, expected);
+            kernels.countChars(chars, offset, length, actual);
+            SCALAR.countChars(text, offset, length, expected);
+            kernels.countChars(text, offset, length, actual);
+            if (!Arrays.equals(expected, actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return name of the kernels, e.g. "scalar"
+     */
+    public String getName() {
+        return "scalar";
+    }
+
+    /**
+     * Adds the chars of a part of a text to counts.
+     * @param text text to analyze
+     * @param offset index of the first char
+     * @param length number of chars
+     * @param counts counts indexed by char, at least [FrequencyTable.CHAR_ALPHABET] long
+     */
+    public void countChars(String text, int offset, int length, long[] counts) {
+        int end = offset + length;
+        int i = offset;
+        if (length >= MIN_LANE_LENGTH && hasManyRepeats(text, offset)) {
+            int[] lanes = new int[LANES * LANE_ALPHABET];
+            for (int laneEnd = end - LANES + 1; i < laneEnd; i += LANES) {
+                char c0 = text.charAt(i);
+                char c1 = text.charAt(i + 1);
+                char c2 = text.charAt(i + 2);
+                char c3 = text.charAt(i + 3);
+                if ((c0 | c1 | c2 | c3) < LANE_ALPHABET) {
+                    lanes[c0]++;
+                    lanes[LANE_ALPHABET | c1]++;
+                    lanes[2 * LANE_ALPHABET | c2]++;
+                    lanes[3 * LANE_ALPHABET | c3]++;
+                } else {
+                    counts[c0]++;
+                    counts[c1]++;
+                    counts[c2]++;
+                    counts[c3]++;
+                }
+            }
+            addLanes(lanes, counts);
+        }
+        for (; i < end; i++) {
+            counts[text.charAt(i)]++;
+        }
+    }
+
+    /**
+     * Adds a part of an array of chars to counts.
+     * @param chars chars to analyze
+     * @param offset index of the first char
+     * @param length number of chars
+     * @param counts counts indexed by char, at least [FrequencyTable.CHAR_ALPHABET] long
+     */
+    public void countChars(char[] chars, int offset, int length, long[] counts) {
+        int end = offset + length;
+        int i = offset;
+        if (length >= MIN_LANE_LENGTH && hasManyRepeats(CharBuffer.wrap(chars), offset)) {
+            int[] lanes = new int[LANES * LANE_ALPHABET];
+            for (int laneEnd = end - LANES + 1; i < laneEnd; i += LANES) {
+                char c0 = chars[i];
+                char c1 = chars[i + 1];
+                char c2 = chars[i + 2];
+                char c3 = chars[i + 3];
+                if ((c0 | c1 | c2 | c3) < LANE_ALPHABET) {
+                    lanes[c0]++;
+                    lanes[LANE_ALPHABET | c1]++;
+                    lanes[2 * LANE_ALPHABET | c2]++;
+                    lanes[3 * LANE_ALPHABET | c3]++;
+                } else {
+                    counts[c0]++;
+                    counts[c1]++;
+                    counts[c2]++;
+                    counts[c3]++;
+                }
+            }
+            addLanes(lanes, counts);
+        }
+        for (; i < end; i++) {
+            counts[chars[i]]++;
+        }
+    }
+
+    /**
+     * Adds a part of an array of bytes to counts.
+     * @param bytes bytes to analyze
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @param counts counts indexed by the unsigned value of a byte, at least [FrequencyTable.BYTE_ALPHABET] long
+     */
+    public void countBytes(byte[] bytes, int offset, int length, long[] counts) {
+        int end = offset + length;
+        int i = offset;
+        if (length >= MIN_LANE_LENGTH) {
+            int[] lanes = new int[LANES * LANE_ALPHABET];
+            for (int laneEnd = end - LANES + 1; i < laneEnd; i += LANES) {
+                lanes[bytes[i] & 0xFF]++;
+                lanes[LANE_ALPHABET | bytes[i + 1] & 0xFF]++;
+                lanes[2 * LANE_ALPHABET | bytes[i + 2] & 0xFF]++;
+                lanes[3 * LANE_ALPHABET | bytes[i + 3] & 0xFF]++;
+            }
+            addLanes(lanes, counts);
+        }
+        for (; i < end; i++) {
+            counts[bytes[i] & 0xFF]++;
+        }
+    }
+
+    /**
+     * @return true if more than 1/8 of the sampled chars from offset on are the same as the previous char
+     */
+    private static boolean hasManyRepeats(CharSequence text, int offset) {
+        int end = Math.min(text.length(), offset + RUN_SAMPLE);
+        int repeats = 0;
+        for (int i = offset + 1; i < end; i++) {
+            if (text.charAt(i) == text.charAt(i - 1)) {
+                repeats++;
+            }
+        }
+        return repeats * 8 > end - offset;
+    }
+
+    private static void addLanes(int[] lanes, long[] counts) {
+        for (int c = 0; c < LANE_ALPHABET; c++) {
+            counts[c] += (long) lanes[c] + lanes[LANE_ALPHABET | c] + lanes[2 * LANE_ALPHABET | c]
+                    + lanes[3 * LANE_ALPHABET | c];
+        }
+    }
+}
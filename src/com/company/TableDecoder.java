@@ -0,0 +1,535 @@
+package com.company;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A class decoding huffman codes with precomputed lookup tables instead of matching the codes bit by bit.
+ *
+ * The primary table is indexed by the next [primaryBits] bits of the input. Its entry holds up to two
+ * characters whose codes fit in those bits, so short codes are decoded a couple at a time.
+ * Codes longer than [primaryBits] are resolved with a second-level table indexed by the bits that follow.
+ * If one of the symbols is the escape of [EscapeCodes], the 16 bits after its code are decoded as a literal char.
+ */
+public class TableDecoder {
+    /**
+     * Codes longer than that can not be decoded
+     */
+    public static final int MAX_CODE_LENGTH = 32;
+    private static final int MAX_PRIMARY_BITS = 11;
+
+    // layout of a primary entry
+    private static final int SYMBOL_BITS = 17;
+    private static final long SYMBOL_MASK = (1L << SYMBOL_BITS) - 1;
+    private static final int FIRST_LENGTH_SHIFT = 2 * SYMBOL_BITS;
+    private static final int TOTAL_LENGTH_SHIFT = FIRST_LENGTH_SHIFT + 6;
+    private static final int COUNT_SHIFT = TOTAL_LENGTH_SHIFT + 6;
+    // count of symbols in an entry pointing to a second-level table
+    private static final int LINK = 0;
+    // count of symbols in an entry of a bit sequence that is not a prefix of any code
+    private static final int INVALID = 3;
+
+    private final int primaryBits;
+    private final int maxCodeLength;
+    private final int minCodeLength;
+    private final long[] primary;
+    // entries of all the second-level tables: symbol | code length << SYMBOL_BITS (0 if invalid)
+    private final int[] secondary;
+    // true if the escape symbol is followed by a literal
+    private final boolean escape;
+
+    // the code trie used while building tables: child >= 1 - internal node, child < 0 - leaf, 0 - none
+    private int[] trie;
+    private int trieSize;
+
+    /**
+     * Creates a decoder for a map of characters and their codes (as loaded by [Compressor]).
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     */
+    public TableDecoder(Map<Character, String> codes) {
+        this(symbolsOf(codes), bitsOf(codes), lengthsOf(codes));
+    }
+
+    /**
+     * Creates a decoder for codes given as parallel arrays.
+     * @param symbols symbols (chars) that are encoded
+     * @param codes code of each symbol stored in the lowest bits
+     * @param lengths length of each code in bits
+     */
+    public TableDecoder(int[] symbols, int[] codes, int[] lengths) {
+        int max = 0;
+        int min = Integer.MAX_VALUE;
+        boolean hasEscape = false;
+        trie = new int[64];
+        trieSize = 1;
+        for (int i = 0; i < symbols.length; i++) {
+            if (lengths[i] < 1 || lengths[i] > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code of " + symbols[i] + " has unsupported length " + lengths[i]);
+            }
+            addToTrie(symbols[i], codes[i], lengths[i]);
+            max = Math.max(max, lengths[i]);
+            min = Math.min(min, lengths[i]);
+            hasEscape |= symbols[i] == EscapeCodes.ESCAPE;
+        }
+        this.escape = hasEscape;
+        this.maxCodeLength = max;
+        this.minCodeLength = symbols.length == 0 ? 1 : min;
+        this.primaryBits = Math.max(1, Math.min(MAX_PRIMARY_BITS, max));
+        this.primary = new long[1 << primaryBits];
+
+        // first pass - primary entries and the size of all second-level tables
+        int[] subtableBits = new int[primary.length];
+        int secondarySize = 0;
+        for (int i = 0; i < primary.length; i++) {
+            int node = fillPrimary(i);
+            if (node > 0) {
+                subtableBits[i] = depthOf(node);
+                primary[i] = (long) secondarySize | (long) subtableBits[i] << FIRST_LENGTH_SHIFT;
+                secondarySize += 1 << subtableBits[i];
+            }
+        }
+        // second pass - second-level tables
+        this.secondary = new int[secondarySize];
+        for (int i = 0; i < primary.length; i++) {
+            if (subtableBits[i] > 0) {
+                int node = walk(0, i, primaryBits);
+                int offset = (int) (primary[i] & ((1L << FIRST_LENGTH_SHIFT) - 1));
+                for (int j = 0; j < 1 << subtableBits[i]; j++) {
+                    secondary[offset + j] = secondaryEntry(node, j, subtableBits[i]);
+                }
+            }
+        }
+        trie = null;
+    }
+
+    /**
+     * @return length of the longest code
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Decodes all the characters whose codes are complete in an array of bytes.
+     * Bits left over at the end (not making up a whole code) are ignored.
+     * @param data encoded bytes
+     * @return decoded text
+     */
+    public String decode(byte[] data) {
+        return decodeAll(new BitReader(data));
+    }
+
+    /**
+     * Decodes all the characters whose codes are complete between the position and the limit of a buffer.
+     * Bits left over at the end (not making up a whole code) are ignored. The buffer's position is not changed.
+     * @param data encoded bytes
+     * @return decoded text
+     */
+    public String decode(ByteBuffer data) {
+        return decodeAll(new BitReader(data, (long) data.position() * Byte.SIZE, (long) data.limit() * Byte.SIZE));
+    }
+
+    private String decodeAll(BitReader in) {
+        char[] out = new char[(int) Math.min(Integer.MAX_VALUE - 8, in.remaining() / minCodeLength + 1)];
+        int n = decode(in, out, 0, out.length);
+        return new String(out, 0, n);
+    }
+
+    /**
+     * Decodes characters until the output is full or there are not enough bits left for the next code.
+     * The reader is left at the first bit that was not decoded.
+     * @param in reader of the encoded bits
+     * @param out array the characters are saved in
+     * @param offset index of the first character to be saved
+     * @param length maximal number of characters to be saved
+     * @return number of decoded characters
+     */
+    public int decode(BitReader in, char[] out, int offset, int length) {
+        int n = offset;
+        int end = offset + length;
+        while (n < end) {
+            long remaining = in.remaining();
+            if (remaining <= 0) {
+                break;
+            }
+            long entry = primary[(int) in.peek(primaryBits)];
+            int count = (int) (entry >>> COUNT_SHIFT);
+            if (count == LINK) {
+                int subBits = (int) (entry >>> FIRST_LENGTH_SHIFT) & 0x3F;
+                int index = (int) (in.peek(primaryBits + subBits) & ((1 << subBits) - 1));
+                int sub = secondary[(int) (entry & ((1L << FIRST_LENGTH_SHIFT) - 1)) + index];
+                int codeLength = sub >>> SYMBOL_BITS;
+                if (codeLength == 0) {
+                    // no code starts with these bits
+                    codeLength = primaryBits + subBits;
+                    sub = '?';
+                }
+                if (codeLength > remaining) {
+                    break;
+                }
+                char symbol = (char) (sub & SYMBOL_MASK);
+                if (escape && symbol == EscapeCodes.ESCAPE) {
+                    if (codeLength + EscapeCodes.LITERAL_BITS > remaining) {
+                        break;
+                    }
+                    in.skip(codeLength);
+                    out[n++] = (char) in.read(EscapeCodes.LITERAL_BITS);
+                    continue;
+                }
+                out[n++] = symbol;
+                in.skip(codeLength);
+            } else if (count == INVALID) {
+                int invalidLength = (int) (entry >>> FIRST_LENGTH_SHIFT) & 0x3F;
+                if (invalidLength > remaining) {
+                    break;
+                }
+                out[n++] = '?';
+                in.skip(invalidLength);
+            } else {
+                int firstLength = (int) (entry >>> FIRST_LENGTH_SHIFT) & 0x3F;
+                int totalLength = (int) (entry >>> TOTAL_LENGTH_SHIFT) & 0x3F;
+                if (firstLength > remaining) {
+                    break;
+                }
+                char first = (char) (entry & SYMBOL_MASK);
+                if (escape && first == EscapeCodes.ESCAPE) {
+                    // entries starting with the escape hold nothing else, the literal follows it
+                    if (firstLength + EscapeCodes.LITERAL_BITS > remaining) {
+                        break;
+                    }
+                    in.skip(firstLength);
+                    out[n++] = (char) in.read(EscapeCodes.LITERAL_BITS);
+                    continue;
+                }
+                out[n++] = first;
+                // take the second character as well if it is complete and there is space for it
+                if (count == 2 && totalLength <= remaining && n < end) {
+                    out[n++] = (char) ((entry >>> SYMBOL_BITS) & SYMBOL_MASK);
+                    in.skip(totalLength);
+                } else {
+                    in.skip(firstLength);
+                }
+            }
+        }
+        return n - offset;
+    }
+
+    /**
+     * Decodes a single character, e.g. when every character is decoded with a different table.
+     * The reader is left after its code, or where it was if the code is not complete.
+     * @param in reader of the encoded bits
+     * @return the character, or -1 if there are not enough bits left for its code
+     */
+    public int decodeOne(BitReader in) {
+        long remaining = in.remaining();
+        if (remaining <= 0) {
+            return -1;
+        }
+        int entry = lookup(in);
+        int codeLength = entry >>> SYMBOL_BITS;
+        int symbol = entry & (int) SYMBOL_MASK;
+        if (codeLength > remaining) {
+            return -1;
+        }
+        if (escape && symbol == EscapeCodes.ESCAPE) {
+            if (codeLength + EscapeCodes.LITERAL_BITS > remaining) {
+                return -1;
+            }
+            in.skip(codeLength);
+            return (int) in.read(EscapeCodes.LITERAL_BITS);
+        }
+        in.skip(codeLength);
+        return symbol;
+    }
+
+    /**
+     * Decodes characters written round-robin into several streams (see [PackedEncoder.encodeInterleaved]):
+     * the i-th character comes from stream i % number of streams.
+     *
+     * Every stream is read through a 64-bit window of its own, reloaded with a single read once per round.
+     * A round takes as many characters from each stream in turn as surely fit in the window, without checking
+     * for the end. The streams do not depend on each other, so the CPU looks up the next code of one stream
+     * while it is still shifting the window of another, instead of waiting for every code to be decoded
+     * before the next one can be found.
+     * @param data bytes holding all the streams
+     * @param bitOffsets index of the first bit of every stream
+     * @param bitLimits index of the bit after the last one of every stream
+     * @param out array the characters are saved in
+     * @param offset index of the first character to be saved
+     * @param length maximal number of characters to be saved
+     * @return number of decoded characters, less than length only if a stream ends early
+     */
+    public int decodeInterleaved(byte[] data, long[] bitOffsets, long[] bitLimits, char[] out, int offset,
+                                 int length) {
+        int count = bitOffsets.length;
+        long[] positions = bitOffsets.clone();
+        long[] windows = new long[count];
+        ByteBuffer bytes = ByteBuffer.wrap(data);
+        int n = offset;
+        int end = offset + length;
+        // at most 48 bits, codes of up to 32 bits and a literal
+        int maxBits = Math.max(1, maxCodeLength + (escape ? EscapeCodes.LITERAL_BITS : 0));
+        // codes per stream that fit in the 57 bits a window surely holds
+        int perRound = (Long.SIZE - 7) / maxBits;
+        int roundLength = perRound * count;
+        while (end - n >= roundLength && canLoad(positions, bitLimits, data.length, perRound * maxBits)) {
+            for (int s = 0; s < count; s++) {
+                windows[s] = bytes.getLong((int) (positions[s] >>> 3)) << (positions[s] & 7);
+            }
+            if (count == 4 && !escape) {
+                n = decodeRound(windows, positions, perRound, out, n);
+                continue;
+            }
+            for (int k = 0; k < perRound; k++) {
+                for (int s = 0; s < count; s++) {
+                    long window = windows[s];
+                    int entry = lookup(window);
+                    int codeLength = entry >>> SYMBOL_BITS;
+                    char symbol = (char) (entry & SYMBOL_MASK);
+                    if (escape && symbol == EscapeCodes.ESCAPE) {
+                        symbol = (char) (window << codeLength >>> (Long.SIZE - EscapeCodes.LITERAL_BITS));
+                        codeLength += EscapeCodes.LITERAL_BITS;
+                    }
+                    out[n++] = symbol;
+                    windows[s] = window << codeLength;
+                    positions[s] += codeLength;
+                }
+            }
+        }
+        // the last characters of each stream, checking for its end
+        BitReader[] streams = new BitReader[count];
+        for (int s = 0; s < count; s++) {
+            streams[s] = new BitReader(data, positions[s], bitLimits[s]);
+        }
+        for (; n < end; n++) {
+            int c = decodeOne(streams[(n - offset) % count]);
+            if (c < 0) {
+                break;
+            }
+            out[n] = (char) c;
+        }
+        return n - offset;
+    }
+
+    /**
+     * A round of [decodeInterleaved] for the usual four streams without an escape code,
+     * with the windows in local variables so that nothing but the output goes through memory.
+     * @return index after the last decoded character
+     */
+    private int decodeRound(long[] windows, long[] positions, int perRound, char[] out, int n) {
+        long w0 = windows[0];
+        long w1 = windows[1];
+        long w2 = windows[2];
+        long w3 = windows[3];
+        int bits0 = 0;
+        int bits1 = 0;
+        int bits2 = 0;
+        int bits3 = 0;
+        for (int k = 0; k < perRound; k++, n += 4) {
+            int e0 = lookup(w0);
+            int e1 = lookup(w1);
+            int e2 = lookup(w2);
+            int e3 = lookup(w3);
+            out[n] = (char) e0;
+            out[n + 1] = (char) e1;
+            out[n + 2] = (char) e2;
+            out[n + 3] = (char) e3;
+            w0 <<= e0 >>> SYMBOL_BITS;
+            w1 <<= e1 >>> SYMBOL_BITS;
+            w2 <<= e2 >>> SYMBOL_BITS;
+            w3 <<= e3 >>> SYMBOL_BITS;
+            bits0 += e0 >>> SYMBOL_BITS;
+            bits1 += e1 >>> SYMBOL_BITS;
+            bits2 += e2 >>> SYMBOL_BITS;
+            bits3 += e3 >>> SYMBOL_BITS;
+        }
+        positions[0] += bits0;
+        positions[1] += bits1;
+        positions[2] += bits2;
+        positions[3] += bits3;
+        return n;
+    }
+
+    /**
+     * @return true if every stream has the bits for a round and a whole long can be read at its position
+     */
+    private static boolean canLoad(long[] positions, long[] bitLimits, int dataLength, int roundBits) {
+        for (int s = 0; s < positions.length; s++) {
+            if (positions[s] + roundBits > bitLimits[s] || (positions[s] >>> 3) + Long.BYTES > dataLength) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the code at the reader's position without consuming it.
+     * @return symbol | code length << SYMBOL_BITS, the symbol is '?' if no code starts with the bits
+     */
+    private int lookup(BitReader in) {
+        return lookup(in.peek(MAX_CODE_LENGTH) << (Long.SIZE - MAX_CODE_LENGTH));
+    }
+
+    /**
+     * Finds the code at the beginning of the bits.
+     * @param window bits aligned to the left, at least as many as the longest code
+     * @return symbol | code length << SYMBOL_BITS, the symbol is '?' if no code starts with the bits
+     */
+    private int lookup(long window) {
+        long entry = primary[(int) (window >>> (Long.SIZE - primaryBits))];
+        int count = (int) (entry >>> COUNT_SHIFT);
+        if (count == LINK) {
+            int subBits = (int) (entry >>> FIRST_LENGTH_SHIFT) & 0x3F;
+            int index = (int) (window >>> (Long.SIZE - primaryBits - subBits)) & ((1 << subBits) - 1);
+            int sub = secondary[(int) (entry & ((1L << FIRST_LENGTH_SHIFT) - 1)) + index];
+            // no code starts with these bits
+            return sub >>> SYMBOL_BITS == 0 ? '?' | (primaryBits + subBits) << SYMBOL_BITS : sub;
+        } else if (count == INVALID) {
+            return '?' | ((int) (entry >>> FIRST_LENGTH_SHIFT) & 0x3F) << SYMBOL_BITS;
+        }
+        return (int) (entry & SYMBOL_MASK) | ((int) (entry >>> FIRST_LENGTH_SHIFT) & 0x3F) << SYMBOL_BITS;
+    }
+
+    /**
+     * Decodes up to two characters from the bits of a primary index and saves the entry.
+     * @param index index in the primary table
+     * @return trie node reached after all the bits if no code was complete, 0 otherwise
+     */
+    private int fillPrimary(int index) {
+        int node = 0;
+        int count = 0;
+        long entry = 0;
+        int totalLength = 0;
+        for (int bit = 0; bit < primaryBits && count < 2; bit++) {
+            int child = trie[node * 2 + ((index >>> (primaryBits - 1 - bit)) & 1)];
+            if (child == 0) {
+                if (count == 0) {
+                    primary[index] = (long) INVALID << COUNT_SHIFT | (long) (bit + 1) << FIRST_LENGTH_SHIFT;
+                    return 0;
+                }
+                break;
+            } else if (child < 0) {
+                long symbol = -child - 1;
+                boolean isEscape = escape && symbol == EscapeCodes.ESCAPE;
+                if (count == 0) {
+                    entry = symbol | (long) (bit + 1) << FIRST_LENGTH_SHIFT;
+                } else if (isEscape) {
+                    // the bits after an escape are a literal, it is decoded on its own
+                    break;
+                } else {
+                    entry |= symbol << SYMBOL_BITS;
+                }
+                totalLength = bit + 1;
+                count++;
+                node = 0;
+                if (isEscape) {
+                    break;
+                }
+            } else {
+                node = child;
+            }
+        }
+        if (count == 0) {
+            return node;
+        }
+        primary[index] = entry | (long) totalLength << TOTAL_LENGTH_SHIFT | (long) count << COUNT_SHIFT;
+        return 0;
+    }
+
+    /**
+     * Decodes a single character from a trie node and the bits of a second-level index.
+     * @return an entry of a second-level table
+     */
+    private int secondaryEntry(int node, int index, int bits) {
+        for (int bit = 0; bit < bits; bit++) {
+            int child = trie[node * 2 + ((index >>> (bits - 1 - bit)) & 1)];
+            if (child == 0) {
+                return 0;
+            } else if (child < 0) {
+                return (-child - 1) | (primaryBits + bit + 1) << SYMBOL_BITS;
+            }
+            node = child;
+        }
+        return 0;
+    }
+
+    /**
+     * Follows bits of a value down the trie.
+     * @return the node reached
+     */
+    private int walk(int node, int value, int bits) {
+        for (int bit = 0; bit < bits; bit++) {
+            node = trie[node * 2 + ((value >>> (bits - 1 - bit)) & 1)];
+        }
+        return node;
+    }
+
+    /**
+     * @return depth of the deepest leaf below a trie node
+     */
+    private int depthOf(int node) {
+        int depth = 0;
+        for (int side = 0; side < 2; side++) {
+            int child = trie[node * 2 + side];
+            if (child < 0) {
+                depth = Math.max(depth, 1);
+            } else if (child > 0) {
+                depth = Math.max(depth, 1 + depthOf(child));
+            }
+        }
+        return depth;
+    }
+
+    private void addToTrie(int symbol, int code, int length) {
+        int node = 0;
+        for (int bit = length - 1; bit >= 0; bit--) {
+            int slot = node * 2 + ((code >>> bit) & 1);
+            if (bit == 0) {
+                if (trie[slot] != 0) {
+                    throw new IllegalArgumentException("Codes are not prefix free (symbol " + symbol + ").");
+                }
+                trie[slot] = -symbol - 1;
+            } else {
+                if (trie[slot] < 0) {
+                    throw new IllegalArgumentException("Codes are not prefix free (symbol " + symbol + ").");
+                }
+                if (trie[slot] == 0) {
+                    if ((trieSize + 1) * 2 > trie.length) {
+                        trie = Arrays.copyOf(trie, trie.length * 2);
+                    }
+                    trie[slot] = trieSize++;
+                }
+                node = trie[slot];
+            }
+        }
+    }
+
+    private static int[] symbolsOf(Map<Character, String> codes) {
+        int[] symbols = new int[codes.size()];
+        int i = 0;
+        for (Character c : codes.keySet()) {
+            symbols[i++] = c;
+        }
+        return symbols;
+    }
+
+    private static int[] bitsOf(Map<Character, String> codes) {
+        int[] bits = new int[codes.size()];
+        int i = 0;
+        for (String code : codes.values()) {
+            // parse as unsigned so 32-bit codes fit in an int
+            bits[i++] = code.isEmpty() ? 0 : Integer.parseUnsignedInt(code, 2);
+        }
+        return bits;
+    }
+
+    private static int[] lengthsOf(Map<Character, String> codes) {
+        int[] lengths = new int[codes.size()];
+        int i = 0;
+        for (String code : codes.values()) {
+            lengths[i++] = code.length();
+        }
+        return lengths;
+    }
+}
@@ -0,0 +1,27 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An interface of classes compressing UTF-8 text streams, e.g. [Compressor] with a tree built beforehand
+ * or [AdaptiveCompressor] building its tree while compressing.
+ */
+public interface TextCodec {
+    /**
+     * Compresses a stream of UTF-8 text into another stream.
+     * @param in stream with the text (is not closed)
+     * @param out stream the compressed bits are written to (is closed)
+     * @throws IOException if reading or writing fails
+     */
+    void compress(InputStream in, OutputStream out) throws IOException;
+
+    /**
+     * Decompresses a stream compressed by the same kind of codec into UTF-8 text.
+     * @param in stream with the compressed bits (is closed)
+     * @param out stream the text is written to (is not closed)
+     * @throws IOException if reading or writing fails
+     */
+    void decompress(InputStream in, OutputStream out) throws IOException;
+}
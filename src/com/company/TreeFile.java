@@ -0,0 +1,269 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A class reading and writing trees in a compact binary file, an alternative to the txt tree files
+ * which is loaded with a single read and no parsing of text.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int   magic "HUFT"
+ * byte  version (1)
+ * byte  flags (1 - explicit codes)
+ * int   number of symbols
+ * per symbol: char symbol, byte code length
+ * explicit codes only: the codes one after another, padded with 0s to a whole byte
+ * int   CRC32 of everything before
+ * </pre>
+ * Canonical trees (see [CanonicalCodes]) are saved as symbols and code lengths only. Any other codes, e.g. the ones
+ * of the existing txt trees, are saved with their bits, so texts compressed with a txt tree can be decompressed
+ * with its converted binary file. Any char can be saved, including '"', ':' and whitespace.
+ * <p>
+ * [CodeTableRegistry] loads the binary file of a tree in place of the txt file if both exist;
+ * run this class to convert the txt trees:
+ * <pre>
+ * java com.company.TreeFile [trees directory] [--force]
+ * </pre>
+ */
+public final class TreeFile {
+    public static final String EXTENSION = ".huft";
+    public static final String TEXT_EXTENSION = ".txt";
+    private static final int MAGIC = 0x48554654;
+    private static final int VERSION = 1;
+    private static final int FLAG_EXPLICIT_CODES = 1;
+    // magic, version, flags and number of symbols
+    private static final int HEADER_SIZE = 10;
+    private static final int ENTRY_SIZE = 3;
+
+    private TreeFile() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 && !args[0].equals("--force") ? Paths.get(args[0])
+                : CodeTableRegistry.TREES_DIRECTORY;
+        OverwritePolicy policy = Arrays.asList(args).contains("--force") ? OverwritePolicy.OVERWRITE
+                : OverwritePolicy.FAIL_IF_EXISTS;
+        for (Path converted : convertDirectory(directory, policy)) {
+            System.out.println("tree converted: " + converted.getFileName());
+        }
+    }
+
+    /**
+     * Saves codes in a binary tree file.
+     * @param treeFile file the tree is saved in
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @param policy what to do if the file exists
+     * @throws IllegalArgumentException if there are no codes, or a code is empty, longer than
+     * [TableDecoder.MAX_CODE_LENGTH] bits or not made of 0s and 1s, or the codes are not prefix free
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists and may not be overwritten
+     * @throws IOException if writing fails
+     */
+    public static void write(Path treeFile, Map<Character, String> codes, OverwritePolicy policy)
+            throws IOException {
+        byte[] bytes = toBytes(codes);
+        try (OutputStream out = Files.newOutputStream(treeFile, policy.openOptions())) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param codes map containing characters as keys and codes (0s and 1s) as values
+     * @return bytes of a binary tree file with the codes
+     * @throws IllegalArgumentException if there are no codes, or a code is empty, longer than
+     * [TableDecoder.MAX_CODE_LENGTH] bits or not made of 0s and 1s, or the codes are not prefix free
+     */
+    public static byte[] toBytes(Map<Character, String> codes) {
+        if (codes.isEmpty()) {
+            throw new IllegalArgumentException("A tree without codes can not be saved.");
+        }
+        int n = codes.size();
+        int[] symbols = new int[n];
+        int[] bits = new int[n];
+        int[] lengths = new int[n];
+        int i = 0;
+        for (Map.Entry<Character, String> entry : codes.entrySet()) {
+            String code = entry.getValue();
+            if (code.isEmpty() || code.length() > TableDecoder.MAX_CODE_LENGTH || !code.matches("[01]+")) {
+                throw new IllegalArgumentException("Code of " + entry.getKey() + " is not valid: " + code);
+            }
+            symbols[i] = entry.getKey();
+            bits[i] = Integer.parseUnsignedInt(code, 2);
+            lengths[i] = code.length();
+            i++;
+        }
+        // compiled like [read] does, so a tree that could not be loaded is never saved
+        new TableDecoder(symbols, bits, lengths);
+        boolean explicit = !Arrays.equals(bits, CanonicalCodes.assign(symbols, lengths));
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + n * (ENTRY_SIZE + 4) + 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(explicit ? FLAG_EXPLICIT_CODES : 0);
+            out.writeInt(n);
+            for (i = 0; i < n; i++) {
+                out.writeChar(symbols[i]);
+                out.writeByte(lengths[i]);
+            }
+            if (explicit) {
+                BitWriter codeBits = new BitWriter();
+                for (i = 0; i < n; i++) {
+                    codeBits.write(bits[i], lengths[i]);
+                }
+                out.write(codeBits.toByteArray());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Loads and compiles a binary tree file.
+     * @param treeName name given to the tree
+     * @param treeFile binary tree file
+     * @return compiled codes of the tree
+     * @throws TreeNotFoundException if the file does not exist
+     * @throws CorruptedDataException if the file is not a valid binary tree file
+     * @throws IOException if reading the file fails
+     */
+    public static CodeTable load(String treeName, Path treeFile) throws IOException {
+        if (!Files.isRegularFile(treeFile)) {
+            throw new TreeNotFoundException(treeFile.toString());
+        }
+        return read(treeName, ByteBuffer.wrap(Files.readAllBytes(treeFile)));
+    }
+
+    /**
+     * Compiles the codes of a binary tree file.
+     * @param treeName name given to the tree
+     * @param data the whole content of the file, from the position to the limit
+     * @return compiled codes of the tree
+     * @throws CorruptedDataException if the data is not a valid binary tree file
+     */
+    public static CodeTable read(String treeName, ByteBuffer data) throws CorruptedDataException {
+        ByteBuffer in = data.slice();
+        if (in.remaining() < HEADER_SIZE + 4 || in.getInt(0) != MAGIC) {
+            throw new CorruptedDataException("Tree " + treeName + " is not a binary tree file.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().limit(in.limit() - 4));
+        if ((int) crc.getValue() != in.getInt(in.limit() - 4)) {
+            throw new CorruptedDataException("Checksum of tree " + treeName
+                    + " does not match, the file is corrupted.");
+        }
+        in.limit(in.limit() - 4);
+        in.position(4);
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new CorruptedDataException("Tree " + treeName + " has unsupported version " + version + ".");
+        }
+        boolean explicit = (in.get() & FLAG_EXPLICIT_CODES) != 0;
+        int n = in.getInt();
+        if (n < 1 || n > FrequencyTable.CHAR_ALPHABET || (long) n * ENTRY_SIZE > in.remaining()) {
+            throw new CorruptedDataException("Tree " + treeName + " has a corrupted number of symbols.");
+        }
+        int[] symbols = new int[n];
+        int[] lengths = new int[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                symbols[i] = in.getChar();
+                lengths[i] = in.get() & 0xFF;
+                if (lengths[i] < 1 || lengths[i] > TableDecoder.MAX_CODE_LENGTH) {
+                    throw new CorruptedDataException("Tree " + treeName + " has a code of unsupported length "
+                            + lengths[i] + ".");
+                }
+            }
+            int[] codes;
+            if (explicit) {
+                codes = new int[n];
+                BitReader reader = new BitReader(in, (long) in.position() * Byte.SIZE, (long) in.limit() * Byte.SIZE);
+                for (int i = 0; i < n; i++) {
+                    codes[i] = (int) reader.read(lengths[i]);
+                }
+                if (reader.remaining() < 0) {
+                    throw new CorruptedDataException("Codes of tree " + treeName + " are truncated.");
+                }
+            } else {
+                codes = CanonicalCodes.assign(symbols, lengths);
+            }
+            return new CodeTable(treeName, symbols, codes, lengths);
+        } catch (BufferUnderflowException e) {
+            throw new CorruptedDataException("Tree " + treeName + " is truncated.");
+        } catch (IllegalArgumentException e) {
+            throw new CorruptedDataException("Tree " + treeName + " has invalid codes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Converts a txt tree file into a binary tree file next to it, with the same name and [EXTENSION].
+     * @param textTreeFile txt file with codes saved by [HuffmanTree.saveTreeCodes]
+     * @param policy what to do if the binary file exists
+     * @return the binary file
+     * @throws TreeNotFoundException if the txt file does not exist
+     * @throws CorruptedDataException if the txt file is not well formatted or its codes are not valid
+     * @throws java.nio.file.FileAlreadyExistsException if the binary file exists and may not be overwritten
+     * @throws IOException if reading or writing fails
+     */
+    public static Path convert(Path textTreeFile, OverwritePolicy policy) throws IOException {
+        String fileName = String.valueOf(textTreeFile.getFileName());
+        String treeName = fileName.endsWith(TEXT_EXTENSION)
+                ? fileName.substring(0, fileName.length() - TEXT_EXTENSION.length()) : fileName;
+        Map<Character, String> codes = Compressor.readTreeFile(textTreeFile);
+        Path binaryFile = textTreeFile.resolveSibling(treeName + EXTENSION);
+        try {
+            write(binaryFile, codes, policy);
+        } catch (IllegalArgumentException e) {
+            throw new CorruptedDataException("Tree " + treeName + " has invalid codes: " + e.getMessage(), e);
+        }
+        return binaryFile;
+    }
+
+    /**
+     * Converts all the txt tree files of a directory (see [convert]).
+     * @param treesDirectory directory with txt tree files
+     * @param policy what to do if a binary file exists
+     * @return the binary files, sorted
+     * @throws IOException if a tree can not be converted
+     */
+    public static List<Path> convertDirectory(Path treesDirectory, OverwritePolicy policy) throws IOException {
+        List<Path> converted = new ArrayList<>();
+        String[] files = treesDirectory.toFile().list((dir, name) -> name.endsWith(TEXT_EXTENSION));
+        if (files == null) {
+            throw new TreeNotFoundException(treesDirectory.toString());
+        }
+        Arrays.sort(files);
+        for (String file : files) {
+            converted.add(convert(treesDirectory.resolve(file), policy));
+        }
+        return converted;
+    }
+
+    /**
+     * @param treesDirectory directory with tree files
+     * @param treeName name of a tree
+     * @return the binary file of the tree if it exists, its txt file otherwise
+     */
+    static Path resolve(Path treesDirectory, String treeName) {
+        Path binaryFile = treesDirectory.resolve(treeName + EXTENSION);
+        return Files.isRegularFile(binaryFile) ? binaryFile : treesDirectory.resolve(treeName + TEXT_EXTENSION);
+    }
+}
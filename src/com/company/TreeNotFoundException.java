@@ -0,0 +1,27 @@
+package com.company;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when a tree file that should be loaded does not exist.
+ */
+public class TreeNotFoundException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String tree;
+
+    /**
+     * @param tree name or path of the missing tree
+     */
+    public TreeNotFoundException(String tree) {
+        super("Tree " + tree + " not found.");
+        this.tree = tree;
+    }
+
+    /**
+     * @return name or path of the missing tree
+     */
+    public String getTree() {
+        return tree;
+    }
+}
@@ -0,0 +1,272 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A class choosing the tree that compresses a given text best, out of pretrained trees and a tree built
+ * for the text itself.
+ *
+ * The choice is made from a histogram of a sample of the text: the expected size under every tree is the sum
+ * of (count * code length) over the sampled chars, scaled up to the whole text, so nothing is encoded
+ * to make it. A tree built for the text also has to pay for its code length table. Pretrained trees get
+ * an escape code (see [EscapeCodes]), so chars missing from them are not lost, and the output is
+ * a [HuffmanContainer] naming the chosen tree instead of holding its table.
+ */
+public class TreeSelector {
+    /**
+     * Key of the tree built for the text in [Choice.getEstimates]
+     */
+    public static final String CUSTOM_TREE = "*custom*";
+    private static final int SAMPLE_BLOCKS = 16;
+    private static final int SAMPLE_BLOCK_LENGTH = 1 << 12;
+
+    private final CodeTableRegistry registry;
+    // pretrained trees with an escape code, by name
+    private final Map<String, CodeTable> trees = new LinkedHashMap<>();
+
+    /**
+     * Creates a selector choosing from given pretrained trees.
+     * @param registry registry the trees are loaded from
+     * @param treeNames names of the txt files in trees directory (without .txt)
+     * @throws IOException if a tree can not be loaded
+     */
+    public TreeSelector(CodeTableRegistry registry, String... treeNames) throws IOException {
+        this.registry = registry;
+        for (String treeName : treeNames) {
+            trees.put(treeName, registry.get(treeName).withEscape());
+        }
+    }
+
+    /**
+     * Creates a selector choosing from every tree in the trees directory.
+     * @return the selector
+     * @throws IOException if a tree can not be loaded
+     */
+    public static TreeSelector ofAvailableTrees() throws IOException {
+        return new TreeSelector(CodeTableRegistry.getDefault(), availableTrees());
+    }
+
+    /**
+     * Creates a selector choosing from every tree in the directory of a registry.
+     * @param registry registry the trees are loaded from
+     * @return the selector
+     * @throws IOException if a tree can not be loaded
+     */
+    public static TreeSelector ofAvailableTrees(CodeTableRegistry registry) throws IOException {
+        return new TreeSelector(registry, availableTrees(registry.getTreesDirectory()));
+    }
+
+    /**
+     * @return names of all the trees in the trees directory, sorted
+     */
+    public static String[] availableTrees() {
+        return availableTrees(CodeTableRegistry.TREES_DIRECTORY);
+    }
+
+    /**
+     * @param treesDirectory directory with txt or binary files of trees
+     * @return names of all the trees in the directory, sorted
+     */
+    public static String[] availableTrees(Path treesDirectory) {
+        String[] files = treesDirectory.toFile().list();
+        if (files == null) {
+            return new String[0];
+        }
+        // a tree converted to a binary file has both files
+        Set<String> names = new TreeSet<>();
+        for (String file : files) {
+            if (file.endsWith(TreeFile.TEXT_EXTENSION)) {
+                names.add(file.substring(0, file.length() - TreeFile.TEXT_EXTENSION.length()));
+            } else if (file.endsWith(TreeFile.EXTENSION)) {
+                names.add(file.substring(0, file.length() - TreeFile.EXTENSION.length()));
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Estimates the compressed size of a text under every tree and picks the smallest.
+     * @param text text to compress
+     * @return the chosen tree with all the estimates
+     */
+    public Choice select(CharSequence text) {
+        FrequencyTable sample = sample(text);
+        double scale = sample.getTotal() == 0 ? 0 : (double) text.length() / sample.getTotal();
+        int[] symbols = sample.getSymbols();
+        long[] counts = sample.getFrequencies();
+
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        String best = CUSTOM_TREE;
+        long bestSize = estimateCustom(symbols, counts, scale);
+        estimates.put(CUSTOM_TREE, bestSize);
+        for (CodeTable tree : trees.values()) {
+            Map<Character, String> codes = tree.getCodes();
+            int escapeLength = codes.get(EscapeCodes.ESCAPE).length() + EscapeCodes.LITERAL_BITS;
+            long bits = 0;
+            for (int i = 0; i < symbols.length; i++) {
+                String code = symbols[i] == EscapeCodes.ESCAPE ? null : codes.get((char) symbols[i]);
+                bits += counts[i] * (code == null ? escapeLength : code.length());
+            }
+            long size = bytesOf(bits, scale) + namedHeaderSize(tree.getName());
+            estimates.put(tree.getName(), size);
+            if (size < bestSize) {
+                best = tree.getName();
+                bestSize = size;
+            }
+        }
+        return new Choice(best, bestSize, estimates);
+    }
+
+    /**
+     * Compresses a text with the tree that is expected to compress it best.
+     * @param text text to compress
+     * @return bytes of the container, naming the chosen pretrained tree or holding the custom tree's table
+     */
+    public byte[] compress(String text) {
+        Choice choice = select(text);
+        if (choice.isCustomTree()) {
+            FrequencyTable counts = FrequencyTable.ofChars(text);
+            int[] lengths = HuffmanCodeLengths.compute(counts.getFrequencies());
+            for (int length : lengths) {
+                if (length > TableDecoder.MAX_CODE_LENGTH) {
+                    lengths = LengthLimitedCodes.computeLengths(counts.getFrequencies(), TableDecoder.MAX_CODE_LENGTH);
+                    break;
+                }
+            }
+            return HuffmanContainer.write(counts.getSymbols(), lengths, text);
+        }
+        CodeTable tree = trees.get(choice.getTreeName());
+        BitWriter payload = new BitWriter();
+        long symbolCount = tree.getEncoder().encode(text, payload);
+        return HuffmanContainer.writeWithTreeName(tree.getName(), symbolCount, payload.toByteArray());
+    }
+
+    /**
+     * Decompresses a container written by [compress] (or any char container).
+     * @param container bytes of the container
+     * @return decompressed text
+     * @throws IOException if the data is not a valid container or its tree can not be loaded
+     */
+    public String decompress(byte[] container) throws IOException {
+        int flags = container.length > 5 ? container[5] & 0xFF : 0;
+        if (flags != HuffmanContainer.FLAG_TREE_NAME) {
+            return HuffmanContainer.read(container);
+        }
+        HuffmanContainer.Header header = HuffmanContainer.readHeader(ByteBuffer.wrap(container), flags);
+        CodeTable tree = trees.get(header.treeName);
+        if (tree == null) {
+            tree = registry.get(header.treeName).withEscape();
+        }
+        return HuffmanContainer.decodeText(container, header, tree.getDecoder());
+    }
+
+    /**
+     * @return names of the pretrained trees the selector chooses from
+     */
+    public List<String> getTreeNames() {
+        return Collections.unmodifiableList(new ArrayList<>(trees.keySet()));
+    }
+
+    /**
+     * Counts the chars of evenly spaced blocks of the text (or of the whole text if it is short).
+     */
+    private static FrequencyTable sample(CharSequence text) {
+        FrequencyTable sample = new FrequencyTable(FrequencyTable.CHAR_ALPHABET);
+        int length = text.length();
+        if (length <= SAMPLE_BLOCKS * SAMPLE_BLOCK_LENGTH) {
+            sample.addChars(text);
+            return sample;
+        }
+        for (int block = 0; block < SAMPLE_BLOCKS; block++) {
+            int start = (int) ((long) block * (length - SAMPLE_BLOCK_LENGTH) / (SAMPLE_BLOCKS - 1));
+            sample.addChars(text.subSequence(start, start + SAMPLE_BLOCK_LENGTH));
+        }
+        return sample;
+    }
+
+    /**
+     * Expected size of a container with a tree built for the text: the huffman codes of the sample
+     * and the code length table.
+     */
+    private static long estimateCustom(int[] symbols, long[] counts, double scale) {
+        if (symbols.length == 0) {
+            // header with an empty table
+            return 18 + 1;
+        }
+        int[] lengths = HuffmanCodeLengths.compute(counts);
+        long bits = LengthLimitedCodes.encodedBits(counts, lengths);
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        try {
+            HuffmanContainer.writeLengthTable(new DataOutputStream(table), symbols, lengths);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        // magic, version, flags, symbol count, checksum
+        return bytesOf(bits, scale) + 18 + table.size();
+    }
+
+    private static long namedHeaderSize(String treeName) {
+        // magic, version, flags, symbol count, checksum, name length and name
+        return 18 + 1 + treeName.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static long bytesOf(long sampleBits, double scale) {
+        return (long) Math.ceil(sampleBits * scale / Byte.SIZE);
+    }
+
+    /**
+     * A tree chosen for a text.
+     */
+    public static class Choice {
+        private final String treeName;
+        private final long expectedSize;
+        private final Map<String, Long> estimates;
+
+        private Choice(String treeName, long expectedSize, Map<String, Long> estimates) {
+            this.treeName = treeName;
+            this.expectedSize = expectedSize;
+            this.estimates = Collections.unmodifiableMap(estimates);
+        }
+
+        /**
+         * @return name of the chosen pretrained tree, or [CUSTOM_TREE]
+         */
+        public String getTreeName() {
+            return treeName;
+        }
+
+        /**
+         * @return true if a tree built for the text was chosen
+         */
+        public boolean isCustomTree() {
+            return CUSTOM_TREE.equals(treeName);
+        }
+
+        /**
+         * @return expected size of the container in bytes
+         */
+        public long getExpectedSize() {
+            return expectedSize;
+        }
+
+        /**
+         * @return expected size of the container under every tree, by tree name
+         */
+        public Map<String, Long> getEstimates() {
+            return estimates;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class compressing text with a word alphabet: every word (a run of letters and digits) and every other char
+ * is one symbol with its own huffman code.
+ *
+ * A frequent word like "the " costs two codes instead of four, and the codes of whole words reflect how
+ * likely a word is rather than how likely each of its letters is, so natural language compresses much better
+ * than with a tree of single chars. Words that occur only once are not worth a place in the dictionary:
+ * they are sent as an escape symbol, their length and their chars coded with a char-level table.
+ * The dictionary is saved in the container, spelled with the same char-level table.
+ * <p>
+ * Container model: the char-level length table (see [HuffmanContainer]), then bits: the number of words,
+ * for every word its code length (6 bits), its length and its chars, and the code length of the escape.
+ * The payload continues in the same bits. Lengths are saved as Elias gamma codes.
+ */
+public class WordCompressor implements TextCodec {
+    // the escape is the last symbol and has to stay below U+FFFF, which the table decoder reserves
+    private static final int MAX_WORDS = Character.MAX_VALUE - 1;
+    private static final int CODE_LENGTH_BITS = 6;
+
+    /**
+     * Compresses a text into a container.
+     * @param text text to compress
+     * @return bytes of the container
+     */
+    public byte[] compress(CharSequence text) {
+        String string = text.toString();
+        Map<String, long[]> tokenCounts = new HashMap<>();
+        for (int start = 0, end; start < string.length(); start = end) {
+            end = tokenEnd(string, start);
+            tokenCounts.computeIfAbsent(string.substring(start, end), token -> new long[1])[0]++;
+        }
+        // the dictionary: every single char and every word occurring more than once, most frequent first
+        List<String> words = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : tokenCounts.entrySet()) {
+            if (entry.getKey().length() == 1 || entry.getValue()[0] > 1) {
+                words.add(entry.getKey());
+            }
+        }
+        words.sort((a, b) -> {
+            int byCount = Long.compare(tokenCounts.get(b)[0], tokenCounts.get(a)[0]);
+            return byCount != 0 ? byCount : a.compareTo(b);
+        });
+        if (words.size() > MAX_WORDS) {
+            words = new ArrayList<>(words.subList(0, MAX_WORDS));
+        }
+        Map<String, Integer> wordIndex = new HashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            wordIndex.put(words.get(i), i);
+        }
+        int escape = words.size();
+
+        // the char-level table spells the dictionary once and the escaped words every time
+        FrequencyTable charCounts = new FrequencyTable(FrequencyTable.CHAR_ALPHABET);
+        long escaped = 0;
+        for (String word : words) {
+            charCounts.addChars(word);
+        }
+        for (Map.Entry<String, long[]> entry : tokenCounts.entrySet()) {
+            if (!wordIndex.containsKey(entry.getKey())) {
+                for (long k = 0; k < entry.getValue()[0]; k++) {
+                    charCounts.addChars(entry.getKey());
+                }
+                escaped += entry.getValue()[0];
+            }
+        }
+        int[] charSymbols = charCounts.getSymbols();
+        int[] charLengths = LengthLimitedCodes.huffmanLengths(charCounts.getFrequencies(),
+                TableDecoder.MAX_CODE_LENGTH);
+        PackedEncoder charEncoder = new PackedEncoder(charSymbols, CanonicalCodes.assign(charSymbols, charLengths),
+                charLengths);
+
+        int[] wordSymbols = new int[escape + 1];
+        long[] wordFrequencies = new long[escape + 1];
+        for (int i = 0; i < escape; i++) {
+            wordSymbols[i] = i;
+            wordFrequencies[i] = tokenCounts.get(words.get(i))[0];
+        }
+        wordSymbols[escape] = escape;
+        wordFrequencies[escape] = Math.max(1, escaped);
+        int[] wordLengths = LengthLimitedCodes.huffmanLengths(wordFrequencies, TableDecoder.MAX_CODE_LENGTH);
+        int[] wordCodes = CanonicalCodes.assign(wordSymbols, wordLengths);
+
+        BitWriter bits = new BitWriter();
+        writeGamma(bits, words.size() + 1);
+        for (int i = 0; i < escape; i++) {
+            bits.write(wordLengths[i], CODE_LENGTH_BITS);
+            writeSpelled(bits, words.get(i), charEncoder);
+        }
+        bits.write(wordLengths[escape], CODE_LENGTH_BITS);
+        for (int start = 0, end; start < string.length(); start = end) {
+            end = tokenEnd(string, start);
+            Integer word = wordIndex.get(string.substring(start, end));
+            if (word != null) {
+                bits.write(wordCodes[word], wordLengths[word]);
+            } else {
+                bits.write(wordCodes[escape], wordLengths[escape]);
+                writeSpelled(bits, string.substring(start, end), charEncoder);
+            }
+        }
+
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        try {
+            HuffmanContainer.writeLengthTable(new DataOutputStream(model), charSymbols, charLengths);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return HuffmanContainer.writeWithModel(HuffmanContainer.FLAG_WORDS, string.length(), model.toByteArray(),
+                bits.toByteArray());
+    }
+
+    /**
+     * Decompresses a container written by [compress].
+     * @param container bytes of the container
+     * @return decompressed text
+     * @throws CorruptedDataException if the data is not a valid container
+     * @throws IOException if the container holds something else
+     */
+    public String decompress(byte[] container) throws IOException {
+        HuffmanContainer.Header header = HuffmanContainer.readHeader(ByteBuffer.wrap(container),
+                HuffmanContainer.FLAG_WORDS);
+        if (header.symbolCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Container holds too many chars to be decompressed into a String.");
+        }
+        ByteBuffer in = ByteBuffer.wrap(container, (int) header.payloadStart,
+                (int) (header.payloadEnd - header.payloadStart));
+        int[][] charTable = HuffmanContainer.readLengthTable(in);
+        TableDecoder charDecoder = newDecoder(charTable[0], charTable[1]);
+        BitReader reader = new BitReader(container, (long) in.position() * Byte.SIZE, header.payloadEnd * Byte.SIZE);
+
+        int symbols = readGamma(reader);
+        if (symbols - 1 > MAX_WORDS) {
+            throw new CorruptedDataException("Dictionary is corrupted.");
+        }
+        char[][] words = new char[symbols - 1][];
+        int[] wordSymbols = new int[symbols];
+        int[] wordLengths = new int[symbols];
+        for (int i = 0; i < symbols; i++) {
+            wordSymbols[i] = i;
+            wordLengths[i] = (int) reader.read(CODE_LENGTH_BITS);
+            if (i < words.length) {
+                words[i] = readSpelled(reader, charDecoder, Integer.MAX_VALUE);
+            }
+            if (reader.remaining() < 0) {
+                throw new CorruptedDataException("Dictionary is truncated.");
+            }
+        }
+        TableDecoder wordDecoder = newDecoder(wordSymbols, wordLengths);
+        int escape = words.length;
+
+        char[] text = new char[(int) header.symbolCount];
+        int decoded = 0;
+        while (decoded < text.length) {
+            int word = wordDecoder.decodeOne(reader);
+            if (word < 0) {
+                throw new CorruptedDataException("Container is truncated: " + decoded + " of " + text.length
+                        + " chars decoded.");
+            }
+            char[] chars = word == escape ? readSpelled(reader, charDecoder, text.length - decoded)
+                    : word < escape ? words[word] : null;
+            if (chars == null || chars.length > text.length - decoded) {
+                throw new CorruptedDataException("Code of an unknown word, the data is corrupted.");
+            }
+            System.arraycopy(chars, 0, text, decoded, chars.length);
+            decoded += chars.length;
+        }
+        return new String(text);
+    }
+
+    /**
+     * Compresses a stream of UTF-8 text. The dictionary is built for the whole text, so it is read into memory
+     * before anything is written.
+     * @param in stream with the text (is not closed)
+     * @param out stream the container is written to (is closed)
+     * @throws IOException if reading or writing fails
+     */
+    @Override
+    public void compress(InputStream in, OutputStream out) throws IOException {
+        try (OutputStream closedOut = out) {
+            closedOut.write(compress(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Decompresses a stream with a container into UTF-8 text.
+     * @param in stream with the container (is closed)
+     * @param out stream the text is written to (is not closed)
+     * @throws IOException if the data is corrupted or reading or writing fails
+     */
+    @Override
+    public void decompress(InputStream in, OutputStream out) throws IOException {
+        byte[] container;
+        try (InputStream closedIn = in) {
+            container = closedIn.readAllBytes();
+        }
+        out.write(decompress(container).getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * @return index after the token starting at start: a run of letters and digits, or a single other char
+     */
+    private static int tokenEnd(String text, int start) {
+        int end = start + 1;
+        if (Character.isLetterOrDigit(text.charAt(start))) {
+            while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private static void writeSpelled(BitWriter bits, String word, PackedEncoder charEncoder) {
+        writeGamma(bits, word.length());
+        charEncoder.encode(word, bits);
+    }
+
+    private static char[] readSpelled(BitReader reader, TableDecoder charDecoder, int maxLength)
+            throws CorruptedDataException {
+        int length = readGamma(reader);
+        if (length > maxLength) {
+            throw new CorruptedDataException("Word is longer than the text, the data is corrupted.");
+        }
+        char[] chars = new char[length];
+        if (charDecoder.decode(reader, chars, 0, length) != length) {
+            throw new CorruptedDataException("Container is truncated in a spelled word.");
+        }
+        return chars;
+    }
+
+    /**
+     * Writes a positive number as an Elias gamma code: as many 0s as it has bits after the highest one,
+     * then its bits.
+     */
+    private static void writeGamma(BitWriter bits, int value) {
+        int zeros = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value);
+        bits.write(0, zeros);
+        bits.write(value, zeros + 1);
+    }
+
+    private static int readGamma(BitReader reader) throws CorruptedDataException {
+        int zeros = 0;
+        while (reader.remaining() > 0 && reader.read(1) == 0) {
+            zeros++;
+            if (zeros >= Integer.SIZE - 1) {
+                throw new CorruptedDataException("Length is corrupted.");
+            }
+        }
+        if (reader.remaining() < zeros) {
+            throw new CorruptedDataException("Container is truncated in a length.");
+        }
+        return zeros == 0 ? 1 : (int) (1L << zeros | reader.read(zeros));
+    }
+
+    private static TableDecoder newDecoder(int[] symbols, int[] lengths) throws CorruptedDataException {
+        for (int length : lengths) {
+            if (length < 1 || length > TableDecoder.MAX_CODE_LENGTH) {
+                throw new CorruptedDataException("Code length table is corrupted.");
+            }
+        }
+        try {
+            return new TableDecoder(symbols, CanonicalCodes.assign(symbols, lengths), lengths);
+        } catch (IllegalArgumentException e) {
+            throw new CorruptedDataException("Code length table is corrupted: " + e.getMessage());
+        }
+    }
+}
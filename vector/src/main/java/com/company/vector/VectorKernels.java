@@ -0,0 +1,62 @@
+package com.company.vector;
+
+import com.company.FrequencyTable;
+import com.company.SymbolKernels;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels counting bytes with the Vector API (jdk.incubator.vector), chosen with -Dcom.company.kernels=vector.
+ *
+ * Every lane of an int vector has its own counters, the counter of byte value v in lane l being at v * lanes + l,
+ * so the lanes of one vector never increment the same counter. Chars are counted by the scalar kernels: the Vector
+ * API of JDK 17 can not load a char[] or a String.
+ * <p>
+ * The counts are the same as the ones of the scalar kernels, but on JDK 17 these kernels are slower than the four
+ * scalar lanes, so they are only used if asked for.
+ */
+public class VectorKernels extends SymbolKernels {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = INTS.length();
+    // int vectors converted from one byte vector
+    private static final int PARTS = BYTES.length() / LANES;
+    // below this length the lanes are not worth adding up
+    private static final int MIN_VECTOR_LENGTH = 1 << 10;
+
+    @Override
+    public String getName() {
+        return "vector " + INTS.vectorBitSize() + " bit";
+    }
+
+    @Override
+    public void countBytes(byte[] bytes, int offset, int length, long[] counts) {
+        if (length < MIN_VECTOR_LENGTH) {
+            super.countBytes(bytes, offset, length, counts);
+            return;
+        }
+        int[] lanes = new int[FrequencyTable.BYTE_ALPHABET * LANES];
+        int[] indexes = new int[LANES];
+        IntVector laneOffsets = IntVector.zero(INTS).addIndex(1);
+        int end = offset + length;
+        int i = offset;
+        for (int vectorEnd = offset + BYTES.loopBound(length); i < vectorEnd; i += BYTES.length()) {
+            ByteVector chunk = ByteVector.fromArray(BYTES, bytes, i);
+            for (int part = 0; part < PARTS; part++) {
+                IntVector values = (IntVector) chunk.convertShape(VectorOperators.B2I, INTS, part);
+                values.and(0xFF).mul(LANES).add(laneOffsets).intoArray(indexes, 0);
+                // gathering and scattering the counters crashes C2 of JDK 17 on AVX-512
+                // so they are incremented one by one
+                for (int index : indexes) {
+                    lanes[index]++;
+                }
+            }
+        }
+        for (int b = 0; b < FrequencyTable.BYTE_ALPHABET; b++) {
+            counts[b] += IntVector.fromArray(INTS, lanes, b * LANES).reduceLanesToLong(VectorOperators.ADD);
+        }
+        super.countBytes(bytes, i, end - i, counts);
+    }
+}
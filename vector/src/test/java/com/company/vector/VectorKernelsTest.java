@@ -0,0 +1,73 @@
+package com.company.vector;
+
+import com.company.FrequencyTable;
+import com.company.SymbolKernels;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VectorKernelsTest {
+    private static List<byte[]> samples() {
+        Random random = new Random(24);
+        List<byte[]> samples = new ArrayList<>();
+        byte[] uniform = new byte[(1 << 20) + 5];
+        random.nextBytes(uniform);
+        samples.add(uniform);
+        // long runs, which the lanes have to keep apart
+        byte[] skewed = new byte[100_003];
+        for (int i = 0; i < skewed.length; i++) {
+            skewed[i] = random.nextInt(8) == 0 ? (byte) random.nextInt() : (byte) (random.nextInt(3) - 1);
+        }
+        samples.add(skewed);
+        byte[] everyValue = new byte[256 * 64];
+        for (int i = 0; i < everyValue.length; i++) {
+            everyValue[i] = (byte) i;
+        }
+        samples.add(everyValue);
+        samples.add(new byte[1 << 16]);
+        samples.add(new byte[]{-1, 0, 1});
+        samples.add(new byte[0]);
+        return samples;
+    }
+
+    @Test
+    void vectorKernelsAreSelectedByTheProperty() {
+        // surefire sets com.company.kernels=vector
+        assertEquals(VectorKernels.class, SymbolKernels.get().getClass());
+    }
+
+    @Test
+    void byteCountsAreTheSameAsTheScalarCounts() {
+        VectorKernels kernels = new VectorKernels();
+        Random random = new Random(1);
+        for (byte[] bytes : samples()) {
+            for (int offset = 0; offset < Math.min(bytes.length, 4); offset++) {
+                int length = bytes.length - offset - random.nextInt(Math.min(bytes.length - offset, 5) + 1);
+                long[] expected = new long[FrequencyTable.BYTE_ALPHABET];
+                SymbolKernels.scalar().countBytes(bytes, offset, length, expected);
+                long[] counts = new long[FrequencyTable.BYTE_ALPHABET];
+                kernels.countBytes(bytes, offset, length, counts);
+                assertArrayEquals(expected, counts);
+            }
+        }
+    }
+
+    @Test
+    void charsAreCountedLikeTheScalarCounts() {
+        char[] chars = new char[5000];
+        Random random = new Random(2);
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) random.nextInt(300);
+        }
+        long[] expected = new long[FrequencyTable.CHAR_ALPHABET];
+        SymbolKernels.scalar().countChars(chars, 1, chars.length - 2, expected);
+        long[] counts = new long[FrequencyTable.CHAR_ALPHABET];
+        new VectorKernels().countChars(chars, 1, chars.length - 2, counts);
+        assertArrayEquals(expected, counts);
+    }
+}